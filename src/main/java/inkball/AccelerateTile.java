@@ -1,9 +1,12 @@
 package inkball;
 
+import processing.core.PGraphics;
 import processing.core.PImage;
 
 /**
  * Represents an acceleration tile that speeds up the ball in a specific direction when it passes over.
+ * The direction is turned into an axis and a signed amount when it is set, so accelerating a ball
+ * does not look at the direction string. A level compiles its tiles into a {@link ForceField}.
  */
 public class AccelerateTile extends Entity implements Drawable {
 
@@ -11,15 +14,24 @@ public class AccelerateTile extends Entity implements Drawable {
 
     /** The direction of acceleration ("up", "down", "left", "right"). */
     private String direction;
+    /** Axis values for {@link #accelerate} */
+    static final int AXIS_NONE = -1;
+    static final int AXIS_X = 0;
+    static final int AXIS_Y = 1;
+    /** Axis the velocity is changed along, or {@link #AXIS_NONE} if the direction is invalid */
+    private int axis;
+    /** Signed change in velocity along the axis */
+    private float amount;
+    /** Number of changes made to the tile, so a {@link ForceField} built from it can tell it is stale */
+    private int version;
     public static final float ACCELERATION_AMOUNT = 0.5f;
     public static final float MAX_SPEED = 5.0f;
+    private static final int FIXED_MAX_SPEED = FixedPoint.fromFloat(MAX_SPEED);
 
     int width;
     int height;
 
-    /** Buffer to reduce frequent collision detection. */
-    int collisionBuffer;
-    /** Minimum frames between collision checks. */
+    /** Frames at {@link App#FPS} during which a ball that was accelerated is not accelerated again. */
     public static final int BUFFER_THRESHOLD = 10;
 
     /**
@@ -32,10 +44,9 @@ public class AccelerateTile extends Entity implements Drawable {
      */
     public AccelerateTile(int x, int y, String direction, App p) {
         super(x, y, 0);  // color is not used for tiles, set to 0
-        this.direction = direction;
+        setDirection(direction);
         this.width = 32;  // Assuming tile size 32x32
         this.height = 32;
-        this.collisionBuffer = 0;
         loadImage(p);
     }
 
@@ -46,7 +57,7 @@ public class AccelerateTile extends Entity implements Drawable {
      */
     @Override
     public void loadImage(App p) {
-        tileImage = p.loadImage("inkball/acceleration_" + direction + ".png");
+        tileImage = SpriteCache.get(p, "inkball/acceleration_" + direction + ".png");
     }
 
     /**
@@ -54,23 +65,18 @@ public class AccelerateTile extends Entity implements Drawable {
      * If a collision is detected, applies acceleration to the ball in the tile's direction.
      *
      * @param ball The Ball object to check for collision and apply acceleration.
+     * @return True if the ball was on the tile and was accelerated, otherwise false.
      */
-    public void checkCollision(Ball ball) {
-        collisionBuffer++;  // Increment the collision buffer to prevent continuous detection
-
-        // Check collision only if buffer threshold is reached
-        if (collisionBuffer >= BUFFER_THRESHOLD) {
-            // Check if the ball's bounding box intersects with the tile
-            if (ball.getX() + ball.getRadius() > x && ball.getX() - ball.getRadius() < x + width &&
-                    ball.getY() + ball.getRadius() > y && ball.getY() - ball.getRadius() < y + height) {
-
-                // Apply acceleration based on direction
-                applyAcceleration(ball);
+    public boolean checkCollision(Ball ball) {
+        // Check if the ball's bounding box intersects with the tile
+        if (ball.getX() + ball.getRadius() > x && ball.getX() - ball.getRadius() < x + width &&
+                ball.getY() + ball.getRadius() > y && ball.getY() - ball.getRadius() < y + height) {
 
-                // Reset the collision buffer after collision
-                collisionBuffer = 0;
-            }
+            // Apply acceleration based on direction
+            applyAcceleration(ball);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -79,33 +85,34 @@ public class AccelerateTile extends Entity implements Drawable {
      * @param ball The Ball object to accelerate.
      */
     void applyAcceleration(Ball ball) {
-        switch (direction) {
-            case "up":
-                ball.setYVelocity(ball.getYVelocity() - ACCELERATION_AMOUNT);
-                if (ball.getYVelocity() < -MAX_SPEED) {
-                    ball.setYVelocity(-MAX_SPEED);
-                }
-                break;
-            case "down":
-                ball.setYVelocity(ball.getYVelocity() + ACCELERATION_AMOUNT);
-                if (ball.getYVelocity() > MAX_SPEED) {
-                    ball.setYVelocity(MAX_SPEED);
-                }
-                break;
-            case "left":
-                ball.setXVelocity(ball.getXVelocity() - ACCELERATION_AMOUNT);
-                if (ball.getXVelocity() < -MAX_SPEED) {
-                    ball.setXVelocity(-MAX_SPEED);
-                }
-                break;
-            case "right":
-                ball.setXVelocity(ball.getXVelocity() + ACCELERATION_AMOUNT);
-                if (ball.getXVelocity() > MAX_SPEED) {
-                    ball.setXVelocity(MAX_SPEED);
-                }
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid acceleration direction: " + direction);
+        if (axis == AXIS_NONE) {
+            throw new IllegalArgumentException("Invalid acceleration direction: " + direction);
+        }
+        accelerate(ball, axis, amount);
+    }
+
+    /**
+     * Changes a ball's velocity along one axis, clamping the result to {@link #MAX_SPEED} in the
+     * direction of the change. Balls held in fixed point are changed using integer arithmetic only.
+     *
+     * @param ball   The Ball object to accelerate.
+     * @param axis   {@link #AXIS_X} or {@link #AXIS_Y}.
+     * @param amount The signed change in velocity.
+     */
+    static void accelerate(Ball ball, int axis, float amount) {
+        if (ball.isFixedPoint()) {
+            int[] velocities = axis == AXIS_X ? ball.store.fvx : ball.store.fvy;
+            int slot = ball.slot;
+            int velocity = velocities[slot] + FixedPoint.fromFloat(amount);
+            velocities[slot] = amount > 0 ? Math.min(velocity, FIXED_MAX_SPEED) : Math.max(velocity, -FIXED_MAX_SPEED);
+            return;
+        }
+        if (axis == AXIS_X) {
+            float vx = ball.getXVelocity() + amount;
+            ball.setXVelocity(amount > 0 ? Math.min(vx, MAX_SPEED) : Math.max(vx, -MAX_SPEED));
+        } else {
+            float vy = ball.getYVelocity() + amount;
+            ball.setYVelocity(amount > 0 ? Math.min(vy, MAX_SPEED) : Math.max(vy, -MAX_SPEED));
         }
     }
 
@@ -119,22 +126,66 @@ public class AccelerateTile extends Entity implements Drawable {
         p.image(tileImage, x, y, width, height);
     }
 
+    /**
+     * Draws the acceleration tile onto an offscreen graphics buffer, such as a level's static layer.
+     *
+     * @param g The graphics buffer to draw on.
+     */
+    public void drawTo(PGraphics g) {
+        g.image(tileImage, x, y, width, height);
+    }
+
     public int getX() {
         return x;
     }
     public void setX(int x) {
         this.x = x;
+        version++;
     }
     public int getY() {
         return y;
     }
     public void setY(int y) {
         this.y = y;
+        version++;
     }
     public String getDirection() {
         return direction;
     }
+    int getAxis() { return axis; }
+    float getAmount() { return amount; }
+    public int getVersion() { return version; }
+
+    /**
+     * Sets the direction of acceleration and works out the axis and amount it stands for.
+     *
+     * @param direction The direction of acceleration ("up", "down", "left", "right").
+     */
     public void setDirection(String direction) {
         this.direction = direction;
+        version++;
+        switch (direction) {
+            case "up":
+                axis = AXIS_Y;
+                amount = -ACCELERATION_AMOUNT;
+                break;
+            case "down":
+                axis = AXIS_Y;
+                amount = ACCELERATION_AMOUNT;
+                break;
+            case "left":
+                axis = AXIS_X;
+                amount = -ACCELERATION_AMOUNT;
+                break;
+            case "right":
+                axis = AXIS_X;
+                amount = ACCELERATION_AMOUNT;
+                break;
+            default:
+                // Rejected when the tile is used, so that it can still be constructed and drawn
+                axis = AXIS_NONE;
+                amount = 0;
+                break;
+        }
     }
 }
@@ -22,6 +22,8 @@ public class App extends PApplet {
     public static final int BOARD_WIDTH = WIDTH / CELLSIZE;
     public static final int BOARD_HEIGHT = 20;
     public static final int FPS = 30;
+    /** Longest frame time caught up on by the physics, to avoid a spiral of slow frames */
+    public static final long MAX_FRAME_NANOS = 250_000_000L;
 
     ConfigReader configReader;
     boolean isPaused = false;
@@ -45,6 +47,27 @@ public class App extends PApplet {
     boolean timerFinished; // Indicates whether the timer has finished
     boolean levelEnded = false;
 
+    /** Batches the sprites that move each frame, drawing them from the sprite atlas */
+    final SpriteBatch spriteBatch = new SpriteBatch();
+    /** Repaints only the changed parts of the board, or null to repaint the whole canvas every frame */
+    DirtyRegions dirtyRegions;
+    /** Offscreen image the player-drawn lines are stroked onto as they are drawn */
+    final InkLayer inkLayer = new InkLayer();
+
+    /** Reused buffer for the balls removed from the level during an update */
+    private final List<Ball> inactiveBalls = new ArrayList<>();
+
+    // Fixed timestep variables
+    int physicsRate = FPS;   // Physics steps per second
+    boolean fixedPointPhysics = false; // Whether balls are simulated in 16.16 fixed point
+    boolean parallelPhysics = false; // Whether large numbers of balls are stepped on several cores
+    boolean batchIntegration = false; // Whether balls are moved together by the batch kernels
+    boolean distanceFieldCollisions = false; // Whether wall tiles are tested through a signed distance field
+    float lineTolerance = PlayerDrawnLine.DEFAULT_TOLERANCE; // Pixels by which drawn lines are simplified
+    int tickCount = 0;       // Number of physics steps run so far
+    long lastStepTime = 0;   // Time of the previous frame in nanoseconds
+    long stepAccumulator = 0; // Elapsed time not yet simulated in nanoseconds
+
     /**
      * Constructor to initialize the App with the config path.
      */
@@ -68,6 +91,14 @@ public class App extends PApplet {
         frameRate(FPS);
         configReader = new ConfigReader("config.json", this);
         totalLevels = configReader.getNumLevels();
+        physicsRate = configReader.getPhysicsRate();
+        fixedPointPhysics = configReader.isFixedPointPhysics();
+        parallelPhysics = configReader.isParallelPhysics();
+        batchIntegration = configReader.isBatchIntegration();
+        distanceFieldCollisions = configReader.isDistanceFieldCollisions();
+        lineTolerance = configReader.getLineTolerance();
+        spriteBatch.setAtlas(new SpriteAtlas(this));
+        dirtyRegions = configReader.isDirtyRectangles() ? new DirtyRegions() : null;
         loadLevel(currentLevelIndex);
     }
 
@@ -82,7 +113,7 @@ public class App extends PApplet {
             String layoutFile = levelConfig.getString("layout");
             int levelTime = levelConfig.getInt("time");
             int spawnInterval = levelConfig.getInt("spawn_interval");
-            spawnCounter = spawnInterval * App.FPS;
+            spawnCounter = secondsToTicks(spawnInterval);
 
             // Initialize the unspawnedBalls list
             unspawnedBalls = new ArrayList<>();
@@ -250,7 +281,7 @@ public class App extends PApplet {
             }
             // Otherwise, add a new line on left click
             else if (mouseButton == LEFT) {
-                PlayerDrawnLine newLine = new PlayerDrawnLine();
+                PlayerDrawnLine newLine = new PlayerDrawnLine(lineTolerance);
                 newLine.addPoint(mouseX, mouseY);
                 playerLines.add(newLine);
             }
@@ -316,12 +347,18 @@ public class App extends PApplet {
 
         // Only show the ball spawn countdown if necessary
         if (!unspawnedBalls.isEmpty()) {
-            float timeRemaining = Math.max(spawnCounter / (float) App.FPS, 0);
+            float timeRemaining = Math.max(spawnCounter / (float) physicsRate, 0);
             text(String.format("%.1f", timeRemaining), 192, TOPBAR - 30);
         } else {
             spawnCounter = 0;
         }
 
+        // Show how much of the canvas is repainted when only the changed parts are
+        if (dirtyRegions != null) {
+            textSize(12);
+            text(dirtyRegions.getTouchedSummary(), 250, TOPBAR - 15);
+        }
+
         // Display bottom black frame
         fill(0);
         rect(0, 12, 160, 36);
@@ -332,7 +369,12 @@ public class App extends PApplet {
      */
     @Override
     public void draw() {
-        background(200, 200, 200);
+        // The dirty region renderer keeps the last frame and repaints only what changed
+        if (dirtyRegions == null) {
+            background(200, 200, 200);
+        } else {
+            dirtyRegions.paintTopBar(this);
+        }
 
         //----------------------------------
         // Render Phase
@@ -342,9 +384,7 @@ public class App extends PApplet {
         //----------------------------------
         // Update Phase
         //----------------------------------
-        if (!isPaused && !isGameEnded && !levelEnded) {
-            updateGame();
-        }
+        stepPhysics();
 
         //----------------------------------
         // Final Render Phase
@@ -353,15 +393,14 @@ public class App extends PApplet {
     }
 
     /**
-     * Render game elements.
+     * Render game elements. The unspawned balls and the level's balls and yellow tiles are
+     * collected in the sprite batch and drawn together once the level has been drawn.
      */
     void render() {
         drawTopBar();
 
-        // Isolate clipping using push/pop
-        pushMatrix();
-        pushStyle();
-        clip(0, 12, 160, 36); // Define the clipping region
+        spriteBatch.begin();
+        spriteBatch.clip(0, 12, 160, 36); // Define the clipping region
 
         // Draw unspawned balls, only display at most 5
         for (int i = 0; i < Math.min(5, unspawnedBalls.size()); i++) {
@@ -373,15 +412,13 @@ public class App extends PApplet {
             }
             // Ensure the ball is within the clipping region
             if (ball.getX() >= 0 && ball.getX() <= 160 && ball.getY() >= 12 && ball.getY() <= 48) {
-                ball.draw(this);
+                ball.drawTo(spriteBatch);
             }
 
         }
 
-        // Disable clipping to avoid affecting further drawing
-        noClip(); // Disable clipping
-        popStyle();
-        popMatrix(); // Restore transformation and style states
+        // Disable clipping to avoid affecting the level's sprites
+        spriteBatch.noClip();
 
         if (currentLevel != null) {
             // Display pause message if the game is paused
@@ -392,13 +429,25 @@ public class App extends PApplet {
                 text("***PAUSED***", WIDTH / 2 + 50, TOPBAR / 2);
             }
 
-            currentLevel.draw(this);
+            if (dirtyRegions == null) {
+                currentLevel.draw(this);
+            } else {
+                currentLevel.queueSprites(this, spriteBatch);
+            }
         }
+        if (dirtyRegions != null) {
+            dirtyRegions.repaint(this, currentLevel, spriteBatch, playerLines);
+        }
+        spriteBatch.flush(this);
 
-        // Draw player-drawn lines
-        for (PlayerDrawnLine line : playerLines) {
-            line.draw(this);
+        // Draw player-drawn lines, stroking only their finished segments onto the ink layer
+        inkLayer.update(this, playerLines);
+        if (dirtyRegions == null) {
+            inkLayer.draw(this);
+        } else {
+            dirtyRegions.drawLayer(this, inkLayer.getGraphics());
         }
+        inkLayer.drawTails(this, playerLines);
 
         // Display game end messages
         if (timerFinished && !(currentLevel.getBalls().isEmpty() && unspawnedBalls.isEmpty())) {
@@ -414,6 +463,82 @@ public class App extends PApplet {
         }
     }
 
+    /**
+     * Runs as many fixed-length physics steps as needed to catch up with the time elapsed
+     * since the previous frame. The physics therefore runs at {@link #physicsRate} steps per
+     * second regardless of how fast frames are rendered.
+     */
+    void stepPhysics() {
+        long now = System.nanoTime();
+        if (lastStepTime == 0) {
+            lastStepTime = now;
+        }
+        // Limit the catch-up after very long frames, e.g. when the window was dragged
+        stepAccumulator += Math.min(now - lastStepTime, MAX_FRAME_NANOS);
+        lastStepTime = now;
+
+        long stepNanos = 1_000_000_000L / physicsRate;
+        while (stepAccumulator >= stepNanos) {
+            stepAccumulator -= stepNanos;
+            tick();
+        }
+    }
+
+    /**
+     * Runs a single physics step.
+     */
+    void tick() {
+        tickCount++;
+        if (!isPaused && !isGameEnded && !levelEnded) {
+            updateGame();
+        }
+        if (currentLevel != null) {
+            currentLevel.updateEndOfLevel(this);
+        }
+    }
+
+    /**
+     * Converts a duration into a number of physics steps.
+     *
+     * @param seconds The duration in seconds.
+     * @return The number of physics steps, at least 1 for a positive duration.
+     */
+    public int secondsToTicks(float seconds) {
+        int ticks = Math.round(seconds * physicsRate);
+        return seconds > 0 ? Math.max(ticks, 1) : ticks;
+    }
+
+    /**
+     * Checks whether the current physics step starts a new interval of the given length.
+     * Used for actions that happen at a fixed rate, such as the time bonus.
+     *
+     * @param seconds The length of the interval in seconds.
+     * @return True on the first step of each interval, otherwise false.
+     */
+    public boolean isIntervalTick(float seconds) {
+        return tickCount % secondsToTicks(seconds) == 0;
+    }
+
+    /**
+     * Returns how far a ball moves in one physics step relative to one frame at {@link #FPS}.
+     * Ball velocities are expressed in pixels per frame at {@link #FPS}.
+     *
+     * @return The fraction of the velocity applied in one physics step.
+     */
+    public float getTimeScale() {
+        return FPS / (float) physicsRate;
+    }
+
+    /**
+     * Returns the time scale of {@link #getTimeScale()} as a 16.16 fixed-point value, for
+     * the fixed-point physics.
+     *
+     * @return The fraction of the velocity applied in one physics step, in fixed point.
+     */
+    public int getFixedTimeScale() {
+        return FixedPoint.div(FixedPoint.fromInt(FPS), FixedPoint.fromInt(physicsRate));
+    }
+
     /**
      * Update game logic.
      */
@@ -424,32 +549,44 @@ public class App extends PApplet {
         // Update balls and check collisions
         currentLevel.update(this);
 
-        // Check for ball collisions with player-drawn lines
-        for (Ball ball : currentLevel.getBalls()) {
-            for (PlayerDrawnLine line : playerLines) {
-                line.checkCollision(ball);
+        // Balls moved by the batch kernels are not swept against the lines, so check them for
+        // overlaps with the player-drawn lines instead. Otherwise the level already bounced them.
+        // Indexed loops are used on the update path so that no iterators are allocated
+        // A ball that just hit a line is not tested against it again until its cooldown ends
+        List<Ball> balls = currentLevel.getBalls();
+        if (batchIntegration) {
+            ContactCache contacts = currentLevel.contacts;
+            for (int i = 0; i < balls.size(); i++) {
+                Ball ball = balls.get(i);
+                for (int j = 0; j < playerLines.size(); j++) {
+                    PlayerDrawnLine line = playerLines.get(j);
+                    if (!contacts.isCoolingDown(ball, line, tickCount) && line.checkCollision(ball)) {
+                        contacts.add(ball, line, tickCount + secondsToTicks(PlayerDrawnLine.BUFFER_THRESHOLD / (float) FPS));
+                    }
+                }
             }
         }
 
         // Remove inactive balls and add them back to the unspawned queue
-        List<Ball> inactiveBalls = new ArrayList<>();
-        for (Ball ball : currentLevel.getBalls()) {
-            if (!ball.getIsActive()) {
-                inactiveBalls.add(ball);
+        inactiveBalls.clear();
+        for (int i = 0; i < balls.size(); i++) {
+            if (!balls.get(i).getIsActive()) {
+                inactiveBalls.add(balls.get(i));
             }
         }
-        for (Ball ball : inactiveBalls) {
-            currentLevel.removeBall(ball);
-            addUnspawnedBall(ball);
+        currentLevel.removeBalls(inactiveBalls);
+        for (int i = 0; i < inactiveBalls.size(); i++) {
+            addUnspawnedBall(inactiveBalls.get(i));
         }
+        inactiveBalls.clear();
 
         // Update spawn counter and spawn a new ball if ready
         if (spawnCounter > 0) {
             spawnCounter--;
         } else {
             spawnNewBall();
-            spawnCounter = configReader.getLevelConfig(currentLevelIndex)
-                    .getInt("spawn_interval") * App.FPS;
+            spawnCounter = secondsToTicks(configReader.getLevelConfig(currentLevelIndex)
+                    .getInt("spawn_interval"));
         }
 
         // Check if the level should end
@@ -460,8 +597,9 @@ public class App extends PApplet {
         }
 
         // Update all holes to manage attracted balls
-        for (Hole hole : currentLevel.getHoles()) {
-            hole.updateAttractedBalls();
+        List<Hole> holes = currentLevel.getHoles();
+        for (int i = 0; i < holes.size(); i++) {
+            holes.get(i).updateAttractedBalls();
         }
 
         // Handle level end due to time up
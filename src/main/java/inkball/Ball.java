@@ -7,10 +7,16 @@ import java.util.Random;
 /**
  * Represents a ball entity in the Inkball game. The ball can move, be drawn, and interact
  * with other game entities. Each ball has a specific color, velocity, and radius.
+ *
+ * <p>While a ball is in a level, its position, velocity, radius, color and active flag live in
+ * the level's {@link BallStore} and the ball acts as a handle to its slot. Outside a level the
+ * ball keeps this state in its own fields.</p>
  */
 public class Ball extends Entity implements Movable, Drawable {
 
     private PImage ballImage;
+    /** Region of the ball's image in the {@link SpriteAtlas} */
+    private int spriteRegion = -1;
     private float radius;
     private float initialRadius;
     private float vx, vy;  // Velocity in x and y directions
@@ -20,6 +26,11 @@ public class Ball extends Entity implements Movable, Drawable {
     private static final float SPEED = 2.0f;  // Default speed for ball movement
     private static Random random = new Random();
 
+    /** The store holding this ball's state, or null while the ball is not in a level */
+    BallStore store;
+    /** The index of this ball in its store */
+    int slot = -1;
+
     /**
      * Constructs a Ball object with specified position, color, radius, and reference to the game app.
      *
@@ -48,23 +59,31 @@ public class Ball extends Entity implements Movable, Drawable {
 
     // Getter and setter methods
 
-    public int getX() { return this.x; }
-    public int getY() { return this.y; }
-    public float getXVelocity() { return this.vx; }
-    public float getYVelocity() { return this.vy; }
+    public int getX() { return store != null ? store.getX(slot) : this.x; }
+    public int getY() { return store != null ? store.getY(slot) : this.y; }
+    public float getXVelocity() { return store != null ? store.getXVelocity(slot) : this.vx; }
+    public float getYVelocity() { return store != null ? store.getYVelocity(slot) : this.vy; }
 
     public float getInitialXVelocity() { return initialVx; }
     public float getInitialYVelocity() { return initialVy; }
 
-    public float getRadius() { return this.radius; }
+    public float getRadius() { return store != null ? store.getRadius(slot) : this.radius; }
     public float getInitialRadius() { return  this.initialRadius; }
-    public int getColor() { return this.color; }
-    public boolean getIsActive() { return this.isActive; }
+    public int getColor() { return store != null ? store.color[slot] : this.color; }
+    public boolean getIsActive() { return store != null ? store.active.get(slot) : this.isActive; }
 
-    public void setX(int x) { this.x = x; }
-    public void setY(int y) { this.y = y; }
-    public void setXVelocity(float vx) { this.vx = vx; }
-    public void setYVelocity(float vy) { this.vy = vy; }
+    public void setX(int x) {
+        if (store != null) store.setX(slot, x); else this.x = x;
+    }
+    public void setY(int y) {
+        if (store != null) store.setY(slot, y); else this.y = y;
+    }
+    public void setXVelocity(float vx) {
+        if (store != null) store.setXVelocity(slot, vx); else this.vx = vx;
+    }
+    public void setYVelocity(float vy) {
+        if (store != null) store.setYVelocity(slot, vy); else this.vy = vy;
+    }
     public void setInitialVx(float initialVx) {
         this.initialVx = initialVx;
     }
@@ -72,36 +91,69 @@ public class Ball extends Entity implements Movable, Drawable {
         this.initialVy = initialVy;
     }
 
-    public void setRadius(float radius) { this.radius = radius; }
+    public void setRadius(float radius) {
+        if (store != null) store.setRadius(slot, radius); else this.radius = radius;
+    }
 
     /**
      * Resets the ball's radius to its initial value.
      */
     public void resetRadius() {
-        this.radius = this.initialRadius;
+        setRadius(this.initialRadius);
     }
 
     /**
-     * Sets the color of the ball and reloads the image accordingly.
+     * Sets the color of the ball and switches to the image of the new color.
      *
      * @param color The new color of the ball.
      * @param p     Reference to the main game object for loading images.
      */
     public void setColor(int color, App p) {
-        this.color = color;
-        loadImage(p);  // Reload the ball image to reflect the new color
+        if (store != null) store.color[slot] = color; else this.color = color;
+        loadImage(p);  // Point to the cached image of the new color
+    }
+
+    public void setIsActive(boolean isActive) {
+        if (store != null) store.active.set(slot, isActive); else this.isActive = isActive;
+    }
+
+    /**
+     * Checks whether the ball is simulated with fixed-point arithmetic.
+     *
+     * @return True if the ball is in a fixed-point {@link BallStore}, otherwise false.
+     */
+    boolean isFixedPoint() {
+        return store != null && store.fixedPoint;
     }
 
-    public void setIsActive(boolean isActive) { this.isActive = isActive; }
+    /**
+     * Copies the ball's state back from its store into its own fields and detaches it.
+     * Called by the store when the ball is removed.
+     */
+    void unbind() {
+        if (store == null) {
+            return;
+        }
+        this.x = getX();
+        this.y = getY();
+        this.vx = getXVelocity();
+        this.vy = getYVelocity();
+        this.radius = getRadius();
+        this.color = getColor();
+        this.isActive = getIsActive();
+        store = null;
+        slot = -1;
+    }
 
     /**
-     * Loads the image associated with the ball's color.
+     * Points the ball at the shared image of its color, which is loaded on first use.
      *
      * @param p Reference to the main game object for loading the image.
      */
     @Override
     public void loadImage(App p) {
-        ballImage = p.loadImage("inkball/ball" + color + ".png");
+        ballImage = SpriteCache.get(p, SpriteCache.ballName(getColor()));
+        spriteRegion = SpriteAtlas.regionOf(SpriteCache.ballName(getColor()));
     }
 
     /**
@@ -118,8 +170,43 @@ public class Ball extends Entity implements Movable, Drawable {
      */
     @Override
     public void updatePosition() {
-        x += vx;
-        y += vy;
+        if (isFixedPoint()) {
+            // Fixed-point positions keep the sub-pixel part of the movement
+            store.fx[slot] += store.fvx[slot];
+            store.fy[slot] += store.fvy[slot];
+            return;
+        }
+        if (store != null) {
+            // So do positions in a store; they are only rounded when read through getX and getY
+            store.x[slot] += store.vx[slot];
+            store.y[slot] += store.vy[slot];
+            return;
+        }
+        setX((int) (getX() + getXVelocity()));
+        setY((int) (getY() + getYVelocity()));
+    }
+
+    /**
+     * Updates the position of the ball by the part of its velocity covered in one physics step,
+     * so that it moves at the same speed whatever the physics rate.
+     *
+     * @param p The App instance holding the physics rate.
+     */
+    void updatePosition(App p) {
+        if (isFixedPoint()) {
+            int timeScale = p.getFixedTimeScale();
+            store.fx[slot] += FixedPoint.mul(store.fvx[slot], timeScale);
+            store.fy[slot] += FixedPoint.mul(store.fvy[slot], timeScale);
+            return;
+        }
+        float timeScale = p.getTimeScale();
+        if (store != null) {
+            store.x[slot] += store.vx[slot] * timeScale;
+            store.y[slot] += store.vy[slot] * timeScale;
+            return;
+        }
+        setX((int) (getX() + getXVelocity() * timeScale));
+        setY((int) (getY() + getYVelocity() * timeScale));
     }
 
     /**
@@ -129,6 +216,17 @@ public class Ball extends Entity implements Movable, Drawable {
      */
     @Override
     public void draw(App p) {
-        p.image(ballImage, x - radius, y - radius, radius * 2, radius * 2);
+        float radius = getRadius();
+        p.image(ballImage, getX() - radius, getY() - radius, radius * 2, radius * 2);
+    }
+
+    /**
+     * Adds the ball to a sprite batch, to be drawn with the other sprites of the frame.
+     *
+     * @param batch The sprite batch to add the ball to.
+     */
+    public void drawTo(SpriteBatch batch) {
+        float radius = getRadius();
+        batch.add(spriteRegion, ballImage, getX() - radius, getY() - radius, radius * 2, radius * 2);
     }
 }
@@ -0,0 +1,58 @@
+package inkball;
+
+/**
+ * The colors of balls, holes and walls. A color's ordinal is the number used for it in layouts,
+ * images and arrays, and its name is the one used in the config file.
+ */
+public enum BallColor {
+    GREY("grey"),
+    BLUE("blue"),
+    GREEN("green"),
+    ORANGE("orange"),
+    YELLOW("yellow");
+
+    /** Number of colors */
+    public static final int COUNT = values().length;
+    /** The colors by number, shared instead of copying {@link #values()} */
+    private static final BallColor[] BY_NUMBER = values();
+
+    private final String configName;
+
+    BallColor(String configName) {
+        this.configName = configName;
+    }
+
+    /**
+     * Returns the name of the color as used in the config file.
+     *
+     * @return The lowercase name of the color.
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Finds a color by its config name, ignoring case.
+     *
+     * @param name The name of the color.
+     * @return The color, or null if no color has that name.
+     */
+    public static BallColor fromName(String name) {
+        for (BallColor color : BY_NUMBER) {
+            if (color.configName.equalsIgnoreCase(name)) {
+                return color;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a color by its number.
+     *
+     * @param number The number of the color.
+     * @return The color, or null if the number does not match any color.
+     */
+    public static BallColor fromNumber(int number) {
+        return number >= 0 && number < COUNT ? BY_NUMBER[number] : null;
+    }
+}
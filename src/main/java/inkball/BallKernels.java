@@ -0,0 +1,128 @@
+package inkball;
+
+/**
+ * Batch versions of the per-ball motion updates, working on all slots of a {@link BallStore} at
+ * once. Each kernel is a simple counted loop over the store's primitive arrays with no branches
+ * or calls in its body. When the jdk.incubator.vector module is added at run time, the float
+ * loops run on the Java Vector API through {@link VectorKernels}; otherwise they are left to
+ * HotSpot's superword optimisation, which compiles them to SIMD instructions where it can.
+ *
+ * <p>{@link #integrateScalar} does the same work one ball at a time through
+ * {@link Ball#updatePosition(App)}, and is used to check that the kernels give identical results.
+ * A level moves its balls with {@link #integrate} when "batch_integration" is enabled in the
+ * config.</p>
+ */
+public class BallKernels {
+    /** Whether the Vector API is available, which needs the incubating module at run time */
+    static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Moves every ball in a store by the part of its velocity covered in one physics step, after
+     * clamping the velocity to {@link AccelerateTile#MAX_SPEED}, then keeps each ball's center
+     * within the given bounds. The result is identical to {@link #integrateScalar}.
+     *
+     * @param store The store holding the balls.
+     * @param p     The App instance holding the physics rate.
+     * @param minX  The smallest allowed x-coordinate.
+     * @param minY  The smallest allowed y-coordinate.
+     * @param maxX  The largest allowed x-coordinate.
+     * @param maxY  The largest allowed y-coordinate.
+     */
+    public static void integrate(BallStore store, App p, int minX, int minY, int maxX, int maxY) {
+        integrate(store, p, minX, minY, maxX, maxY, VECTOR_API);
+    }
+
+    /**
+     * Does the same as {@link #integrate(BallStore, App, int, int, int, int)}, choosing whether
+     * the float loops run on the Vector API.
+     */
+    static void integrate(BallStore store, App p, int minX, int minY, int maxX, int maxY, boolean vectors) {
+        int count = store.size();
+        if (store.fixedPoint) {
+            int maxSpeed = FixedPoint.fromFloat(AccelerateTile.MAX_SPEED);
+            int scale = p.getFixedTimeScale();
+            clamp(store.fvx, count, -maxSpeed, maxSpeed);
+            clamp(store.fvy, count, -maxSpeed, maxSpeed);
+            addScaled(store.fx, store.fvx, scale, count);
+            addScaled(store.fy, store.fvy, scale, count);
+            clamp(store.fx, count, FixedPoint.fromInt(minX), FixedPoint.fromInt(maxX));
+            clamp(store.fy, count, FixedPoint.fromInt(minY), FixedPoint.fromInt(maxY));
+        } else if (vectors) {
+            float scale = p.getTimeScale();
+            VectorKernels.clamp(store.vx, count, -AccelerateTile.MAX_SPEED, AccelerateTile.MAX_SPEED);
+            VectorKernels.clamp(store.vy, count, -AccelerateTile.MAX_SPEED, AccelerateTile.MAX_SPEED);
+            VectorKernels.addScaled(store.x, store.vx, scale, count);
+            VectorKernels.addScaled(store.y, store.vy, scale, count);
+            VectorKernels.clamp(store.x, count, minX, maxX);
+            VectorKernels.clamp(store.y, count, minY, maxY);
+        } else {
+            float scale = p.getTimeScale();
+            clamp(store.vx, count, -AccelerateTile.MAX_SPEED, AccelerateTile.MAX_SPEED);
+            clamp(store.vy, count, -AccelerateTile.MAX_SPEED, AccelerateTile.MAX_SPEED);
+            addScaled(store.x, store.vx, scale, count);
+            addScaled(store.y, store.vy, scale, count);
+            clamp(store.x, count, minX, maxX);
+            clamp(store.y, count, minY, maxY);
+        }
+    }
+
+    /**
+     * Does the same as {@link #integrate(BallStore, App, int, int, int, int)}, one ball at a time
+     * using {@link Ball#updatePosition(App)}.
+     *
+     * @param store The store holding the balls.
+     * @param p     The App instance holding the physics rate.
+     * @param minX  The smallest allowed x-coordinate.
+     * @param minY  The smallest allowed y-coordinate.
+     * @param maxX  The largest allowed x-coordinate.
+     * @param maxY  The largest allowed y-coordinate.
+     */
+    public static void integrateScalar(BallStore store, App p, int minX, int minY, int maxX, int maxY) {
+        for (int i = 0; i < store.size(); i++) {
+            Ball ball = store.get(i);
+            ball.setXVelocity(clamp(ball.getXVelocity(), -AccelerateTile.MAX_SPEED, AccelerateTile.MAX_SPEED));
+            ball.setYVelocity(clamp(ball.getYVelocity(), -AccelerateTile.MAX_SPEED, AccelerateTile.MAX_SPEED));
+            ball.updatePosition(p);
+
+            // Positions are clamped in place so their sub-pixel part is kept
+            if (store.fixedPoint) {
+                store.fx[i] = Math.max(FixedPoint.fromInt(minX), Math.min(FixedPoint.fromInt(maxX), store.fx[i]));
+                store.fy[i] = Math.max(FixedPoint.fromInt(minY), Math.min(FixedPoint.fromInt(maxY), store.fy[i]));
+            } else {
+                store.x[i] = Math.max(minX, Math.min(maxX, store.x[i]));
+                store.y[i] = Math.max(minY, Math.min(maxY, store.y[i]));
+            }
+        }
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static void clamp(float[] values, int count, float min, float max) {
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.max(min, Math.min(max, values[i]));
+        }
+    }
+
+    private static void clamp(int[] values, int count, int min, int max) {
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.max(min, Math.min(max, values[i]));
+        }
+    }
+
+    /**
+     * Adds scaled velocities to positions, keeping their sub-pixel part.
+     */
+    private static void addScaled(float[] positions, float[] velocities, float scale, int count) {
+        for (int i = 0; i < count; i++) {
+            positions[i] += velocities[i] * scale;
+        }
+    }
+
+    private static void addScaled(int[] positions, int[] velocities, int scale, int count) {
+        for (int i = 0; i < count; i++) {
+            positions[i] += (int) (((long) velocities[i] * scale) >> FixedPoint.SHIFT);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package inkball;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Holds the simulation state of the balls in a level as parallel primitive arrays, so the
+ * physics pass can walk positions and velocities sequentially instead of visiting one
+ * {@link Ball} object after another. Each ball added to the store becomes a handle to its slot:
+ * its getters and setters read and write the arrays until it is removed again.
+ *
+ * <p>The store is also the level's list of balls. Slots follow the list order, so removing a
+ * ball shifts the following slots down just like an {@code ArrayList} would. Balls leaving in
+ * the same tick should be removed together with {@link #removeAll}, which closes all the gaps
+ * in one pass.</p>
+ *
+ * <p>In fixed-point mode, positions, velocities and radii are kept as 16.16 {@link FixedPoint}
+ * values in the {@code fx}, {@code fy}, {@code fvx}, {@code fvy} and {@code fradius} arrays
+ * instead of the float arrays, so the physics keeps sub-pixel motion and is bit-identical on
+ * every run.</p>
+ */
+public class BallStore extends AbstractList<Ball> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Whether the state is kept in the fixed-point arrays rather than the float arrays */
+    final boolean fixedPoint;
+
+    float[] x;
+    float[] y;
+    float[] vx;
+    float[] vy;
+    float[] radius;
+    int[] fx;
+    int[] fy;
+    int[] fvx;
+    int[] fvy;
+    int[] fradius;
+    int[] color;
+    /** Bit i is set while the ball in slot i is active */
+    final BitSet active = new BitSet();
+    /** The ball handle bound to each slot */
+    private Ball[] handles;
+    /** Reused by {@link #removeAll} to mark the slots being removed */
+    private final BitSet removing = new BitSet();
+    private int size;
+
+    /**
+     * Constructs an empty store.
+     */
+    public BallStore() {
+        this(INITIAL_CAPACITY, false);
+    }
+
+    /**
+     * Constructs an empty store with room for the given number of balls.
+     *
+     * @param capacity The number of balls the store can hold before growing.
+     */
+    public BallStore(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Constructs an empty store with room for the given number of balls.
+     *
+     * @param capacity   The number of balls the store can hold before growing.
+     * @param fixedPoint Whether to keep the state as fixed-point values.
+     */
+    public BallStore(int capacity, boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        capacity = Math.max(capacity, 1);
+        if (fixedPoint) {
+            fx = new int[capacity];
+            fy = new int[capacity];
+            fvx = new int[capacity];
+            fvy = new int[capacity];
+            fradius = new int[capacity];
+        } else {
+            x = new float[capacity];
+            y = new float[capacity];
+            vx = new float[capacity];
+            vy = new float[capacity];
+            radius = new float[capacity];
+        }
+        color = new int[capacity];
+        handles = new Ball[capacity];
+    }
+
+    // Accessors used by the ball handles, converting from fixed point where needed
+
+    int getX(int slot) { return fixedPoint ? FixedPoint.toInt(fx[slot]) : (int) x[slot]; }
+    int getY(int slot) { return fixedPoint ? FixedPoint.toInt(fy[slot]) : (int) y[slot]; }
+    float getXVelocity(int slot) { return fixedPoint ? FixedPoint.toFloat(fvx[slot]) : vx[slot]; }
+    float getYVelocity(int slot) { return fixedPoint ? FixedPoint.toFloat(fvy[slot]) : vy[slot]; }
+    float getRadius(int slot) { return fixedPoint ? FixedPoint.toFloat(fradius[slot]) : radius[slot]; }
+
+    void setX(int slot, int value) {
+        if (fixedPoint) fx[slot] = FixedPoint.fromInt(value); else x[slot] = value;
+    }
+    void setY(int slot, int value) {
+        if (fixedPoint) fy[slot] = FixedPoint.fromInt(value); else y[slot] = value;
+    }
+    void setXVelocity(int slot, float value) {
+        if (fixedPoint) fvx[slot] = FixedPoint.fromFloat(value); else vx[slot] = value;
+    }
+    void setYVelocity(int slot, float value) {
+        if (fixedPoint) fvy[slot] = FixedPoint.fromFloat(value); else vy[slot] = value;
+    }
+    void setRadius(int slot, float value) {
+        if (fixedPoint) fradius[slot] = FixedPoint.fromFloat(value); else radius[slot] = value;
+    }
+
+    @Override
+    public Ball get(int index) {
+        checkIndex(index);
+        return handles[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a ball at the given position and binds it to that slot. A ball that belongs to
+     * another store is removed from it first, since a ball can only live in one store.
+     *
+     * @param index The position to insert the ball at.
+     * @param ball  The ball to insert.
+     */
+    @Override
+    public void add(int index, Ball ball) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (ball.store != null) {
+            if (ball.store == this && ball.slot < index) {
+                index--; // The removal below shifts the insertion point
+            }
+            ball.store.remove(ball.slot);
+        }
+        ensureCapacity(size + 1);
+        shift(index, index + 1, size - index);
+        size++;
+        bind(ball, index);
+        modCount++;
+    }
+
+    /**
+     * Replaces the ball at the given position.
+     *
+     * @param index The position of the ball to replace.
+     * @param ball  The new ball.
+     * @return The ball previously at that position, now unbound from the store.
+     */
+    @Override
+    public Ball set(int index, Ball ball) {
+        checkIndex(index);
+        Ball previous = handles[index];
+        if (previous == ball) {
+            return previous;
+        }
+        if (ball.store != null) {
+            ball.store.remove(ball.slot);
+            // Removing the ball may have shifted the slot being replaced
+            index = previous.slot;
+        }
+        previous.unbind();
+        bind(ball, index);
+        return previous;
+    }
+
+    /**
+     * Removes the ball at the given position. The ball keeps its state but no longer reads it
+     * from the store.
+     *
+     * @param index The position of the ball to remove.
+     * @return The removed ball.
+     */
+    @Override
+    public Ball remove(int index) {
+        checkIndex(index);
+        Ball ball = handles[index];
+        ball.unbind();
+        shift(index + 1, index, size - index - 1);
+        size--;
+        handles[size] = null;
+        active.clear(size);
+        modCount++;
+        return ball;
+    }
+
+    /**
+     * Removes the given balls, moving each remaining ball down at most once. Objects that are not
+     * balls in this store are ignored.
+     *
+     * @param c The balls to remove.
+     * @return True if any ball was removed.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c.isEmpty()) {
+            return false;
+        }
+        removing.clear();
+        if (c instanceof List && c instanceof RandomAccess) {
+            // Indexed access, since this runs on every tick and should not allocate an iterator
+            List<?> list = (List<?>) c;
+            for (int i = 0; i < list.size(); i++) {
+                mark(list.get(i));
+            }
+        } else {
+            for (Object o : c) {
+                mark(o);
+            }
+        }
+        if (removing.isEmpty()) {
+            return false;
+        }
+        int to = removing.nextSetBit(0);
+        for (int from = to; from < size; from++) {
+            if (removing.get(from)) {
+                handles[from].unbind();
+            } else {
+                shift(from, to, 1);
+                to++;
+            }
+        }
+        Arrays.fill(handles, to, size, null);
+        active.clear(to, size);
+        size = to;
+        modCount++;
+        return true;
+    }
+
+    private void mark(Object o) {
+        if (o instanceof Ball && ((Ball) o).store == this) {
+            removing.set(((Ball) o).slot);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            handles[i].unbind();
+            handles[i] = null;
+        }
+        active.clear();
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Copies a ball's state into a slot and makes the ball a handle to it.
+     */
+    private void bind(Ball ball, int slot) {
+        setX(slot, ball.getX());
+        setY(slot, ball.getY());
+        setXVelocity(slot, ball.getXVelocity());
+        setYVelocity(slot, ball.getYVelocity());
+        setRadius(slot, ball.getRadius());
+        color[slot] = ball.getColor();
+        active.set(slot, ball.getIsActive());
+        handles[slot] = ball;
+        ball.store = this;
+        ball.slot = slot;
+    }
+
+    /**
+     * Moves a range of slots, keeping the handles' slot numbers up to date.
+     */
+    private void shift(int from, int to, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (fixedPoint) {
+            System.arraycopy(fx, from, fx, to, count);
+            System.arraycopy(fy, from, fy, to, count);
+            System.arraycopy(fvx, from, fvx, to, count);
+            System.arraycopy(fvy, from, fvy, to, count);
+            System.arraycopy(fradius, from, fradius, to, count);
+        } else {
+            System.arraycopy(x, from, x, to, count);
+            System.arraycopy(y, from, y, to, count);
+            System.arraycopy(vx, from, vx, to, count);
+            System.arraycopy(vy, from, vy, to, count);
+            System.arraycopy(radius, from, radius, to, count);
+        }
+        System.arraycopy(color, from, color, to, count);
+        System.arraycopy(handles, from, handles, to, count);
+
+        // BitSet has no bulk move, so copy the bits in the direction that does not overwrite them
+        if (to > from) {
+            for (int i = count - 1; i >= 0; i--) {
+                active.set(to + i, active.get(from + i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                active.set(to + i, active.get(from + i));
+            }
+        }
+        for (int i = to; i < to + count; i++) {
+            handles[i].slot = i;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= handles.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, handles.length * 2);
+        if (fixedPoint) {
+            fx = Arrays.copyOf(fx, newCapacity);
+            fy = Arrays.copyOf(fy, newCapacity);
+            fvx = Arrays.copyOf(fvx, newCapacity);
+            fvy = Arrays.copyOf(fvy, newCapacity);
+            fradius = Arrays.copyOf(fradius, newCapacity);
+        } else {
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+            vx = Arrays.copyOf(vx, newCapacity);
+            vy = Arrays.copyOf(vy, newCapacity);
+            radius = Arrays.copyOf(radius, newCapacity);
+        }
+        color = Arrays.copyOf(color, newCapacity);
+        handles = Arrays.copyOf(handles, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
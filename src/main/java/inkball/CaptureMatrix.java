@@ -0,0 +1,67 @@
+package inkball;
+
+/**
+ * The outcome of a ball of each color falling into a hole of each color, compiled once per level.
+ * Each entry says whether the hole accepts the ball and by how much the score changes, with the
+ * level's score modifiers already applied, so handling a capture is a single array lookup.
+ *
+ * <p>A hole accepts a ball of its own color, and grey balls and grey holes accept any color.
+ * An accepted ball adds the level's capture score for its color; a rejected ball takes off the
+ * level's penalty for its color.</p>
+ */
+public class CaptureMatrix {
+    /** Whether the hole accepts the ball, indexed by ball color times {@link BallColor#COUNT} plus hole color */
+    private final boolean[] accepted = new boolean[BallColor.COUNT * BallColor.COUNT];
+    /** Signed change in score, indexed like {@link #accepted} */
+    private final int[] scoreDeltas = new int[BallColor.COUNT * BallColor.COUNT];
+
+    /**
+     * Compiles the outcomes from the score for capturing and the penalty for missing each color.
+     *
+     * @param scoreIncreases The score added for capturing a ball, by ball color.
+     * @param scoreDecreases The score taken off for a ball falling into a wrong hole, by ball color.
+     */
+    public CaptureMatrix(int[] scoreIncreases, int[] scoreDecreases) {
+        for (int ball = 0; ball < BallColor.COUNT; ball++) {
+            for (int hole = 0; hole < BallColor.COUNT; hole++) {
+                int index = ball * BallColor.COUNT + hole;
+                accepted[index] = ball == hole || ball == BallColor.GREY.ordinal() || hole == BallColor.GREY.ordinal();
+                scoreDeltas[index] = accepted[index] ? scoreIncreases[ball] : -scoreDecreases[ball];
+            }
+        }
+    }
+
+    /**
+     * Checks whether a hole accepts a ball.
+     *
+     * @param ballColor The color of the ball.
+     * @param holeColor The color of the hole.
+     * @return True if the ball is captured, false if it fell into a wrong hole.
+     */
+    public boolean isAccepted(int ballColor, int holeColor) {
+        // Colors outside the palette follow the same rule without a precompiled entry
+        if (!isValid(ballColor) || !isValid(holeColor)) {
+            int grey = BallColor.GREY.ordinal();
+            return ballColor == holeColor || ballColor == grey || holeColor == grey;
+        }
+        return accepted[ballColor * BallColor.COUNT + holeColor];
+    }
+
+    /**
+     * Returns the change in score for a ball falling into a hole.
+     *
+     * @param ballColor The color of the ball.
+     * @param holeColor The color of the hole.
+     * @return The signed change in score, or 0 if either color is outside the palette.
+     */
+    public int getScoreDelta(int ballColor, int holeColor) {
+        if (!isValid(ballColor) || !isValid(holeColor)) {
+            return 0;
+        }
+        return scoreDeltas[ballColor * BallColor.COUNT + holeColor];
+    }
+
+    private static boolean isValid(int color) {
+        return color >= 0 && color < BallColor.COUNT;
+    }
+}
@@ -1,32 +1,12 @@
 package inkball;
 
-import java.util.*;
-
 /**
  * Utility class for converting between color names and their corresponding numbers.
  * This is used to simplify the process of handling colors in the Inkball game.
+ * The colors themselves are listed in {@link BallColor}.
  */
 public class ColorUtils {
 
-    // Maps color names to their corresponding numeric values
-    static Map<String, Integer> colorNameToNumber = new HashMap<>();
-
-    // Maps numeric values to their corresponding color names
-    static Map<Integer, String> colorNumberToName = new HashMap<>();
-
-    static {
-        colorNameToNumber.put("grey", 0);
-        colorNameToNumber.put("blue", 1);
-        colorNameToNumber.put("green", 2);
-        colorNameToNumber.put("orange", 3);
-        colorNameToNumber.put("yellow", 4);
-
-        // Create reverse mapping from numbers to color names
-        for (Map.Entry<String, Integer> entry : colorNameToNumber.entrySet()) {
-            colorNumberToName.put(entry.getValue(), entry.getKey());
-        }
-    }
-
     /**
      * Converts a color name to its corresponding numeric value.
      *
@@ -34,7 +14,8 @@ public class ColorUtils {
      * @return The corresponding numeric value for the color, or -1 if the color is not found.
      */
     public static int colorToNumber(String colorName) {
-        return colorNameToNumber.getOrDefault(colorName.toLowerCase(), -1);
+        BallColor color = BallColor.fromName(colorName);
+        return color != null ? color.ordinal() : -1;
     }
 
     /**
@@ -44,6 +25,7 @@ public class ColorUtils {
      * @return The corresponding color name, or "unknown" if the number does not match any color.
      */
     public static String numberToColor(int colorNumber) {
-        return colorNumberToName.getOrDefault(colorNumber, "unknown");
+        BallColor color = BallColor.fromNumber(colorNumber);
+        return color != null ? color.getConfigName() : "unknown";
     }
 }
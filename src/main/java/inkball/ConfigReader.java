@@ -66,6 +66,77 @@ public class ConfigReader {
         return config.getJSONArray("levels").size();
     }
 
+    /**
+     * Retrieves the rate at which the game physics is updated, independently of the frame rate.
+     *
+     * @return The number of physics steps per second, or {@link App#FPS} if not configured.
+     */
+    public int getPhysicsRate() {
+        int physicsRate = config.getInt("physics_rate", App.FPS);
+        return physicsRate > 0 ? physicsRate : App.FPS;
+    }
+
+    /**
+     * Checks whether the physics should use deterministic fixed-point arithmetic.
+     *
+     * @return True if "fixed_point_physics" is enabled in the config, otherwise false.
+     */
+    public boolean isFixedPointPhysics() {
+        return config.getBoolean("fixed_point_physics", false);
+    }
+
+    /**
+     * Checks whether the balls of large levels should be stepped on several cores.
+     *
+     * @return True if "parallel_physics" is enabled in the config, otherwise false.
+     */
+    public boolean isParallelPhysics() {
+        return config.getBoolean("parallel_physics", false);
+    }
+
+    /**
+     * Checks whether balls should be moved together by the batch kernels in {@link BallKernels}
+     * and then checked for overlaps, instead of each being swept along its path. Collisions are
+     * then only found where a ball ends a step overlapping something, so a ball can pass the
+     * corner of a wall or the end of a line that its path crosses.
+     *
+     * @return True if "batch_integration" is enabled in the config, otherwise false.
+     */
+    public boolean isBatchIntegration() {
+        return config.getBoolean("batch_integration", false);
+    }
+
+    /**
+     * Checks whether balls should be tested against the wall tiles through a baked signed
+     * distance field instead of against each merged wall rectangle.
+     *
+     * @return True if "distance_field_collisions" is enabled in the config, otherwise false.
+     */
+    public boolean isDistanceFieldCollisions() {
+        return config.getBoolean("distance_field_collisions", false);
+    }
+
+    /**
+     * Checks whether only the parts of the board that changed should be repainted each frame,
+     * instead of the whole canvas.
+     *
+     * @return True if "dirty_rectangles" is enabled in the config, otherwise false.
+     */
+    public boolean isDirtyRectangles() {
+        return config.getBoolean("dirty_rectangles", false);
+    }
+
+    /**
+     * Retrieves how far in pixels player-drawn lines may be simplified away from the drawn points.
+     *
+     * @return The "line_tolerance" from the config, or {@link PlayerDrawnLine#DEFAULT_TOLERANCE}
+     *         if not configured. 0 keeps every drawn point.
+     */
+    public float getLineTolerance() {
+        float tolerance = config.getFloat("line_tolerance", PlayerDrawnLine.DEFAULT_TOLERANCE);
+        return tolerance >= 0 ? tolerance : PlayerDrawnLine.DEFAULT_TOLERANCE;
+    }
+
     /**
      * Retrieves the list of ball colors for a specific level.
      *
@@ -0,0 +1,194 @@
+package inkball;
+
+/**
+ * Remembers recent contacts between balls and obstacles so that a ball which has just bounced
+ * off an obstacle is not bounced by it again for a few ticks. Every other (ball, obstacle) pair
+ * is tested on every tick, so the collision work depends only on the real contacts rather than
+ * on how many balls share an obstacle.
+ *
+ * <p>Contacts are kept in an open-addressing hash table keyed by the identities of the ball and
+ * the obstacle. The table only grows when more contacts are active at once than ever before, so
+ * recording and expiring contacts does not allocate in steady state.</p>
+ *
+ * <p>Contacts that ran out are not searched for on every tick. Lookups treat them as gone, and
+ * they are dropped together by {@link #expire} just before the table would grow. Lookups never
+ * change the table, so balls stepped in parallel can check their contacts at the same time.</p>
+ */
+public class ContactCache {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Ball[] balls;
+    private Object[] obstacles;
+    /** The tick at which each contact stops suppressing collisions */
+    private int[] expiries;
+    private int size;
+    /** The current tick, as last passed to {@link #advance} */
+    private int tick;
+
+    /**
+     * Constructs an empty cache.
+     */
+    public ContactCache() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of contacts currently remembered.
+     *
+     * @return The number of contacts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether collisions between a ball and an obstacle are suppressed at a tick.
+     *
+     * @param ball     The ball.
+     * @param obstacle The obstacle, such as a wall, acceleration tile or line.
+     * @param tick     The current tick.
+     * @return True if the pair collided recently and should not be tested, otherwise false.
+     */
+    public boolean isCoolingDown(Ball ball, Object obstacle, int tick) {
+        int index = find(ball, obstacle);
+        return index >= 0 && tick < expiries[index];
+    }
+
+    /**
+     * Records a contact between a ball and an obstacle, suppressing further collisions between
+     * them until the given tick.
+     *
+     * @param ball     The ball.
+     * @param obstacle The obstacle it collided with.
+     * @param expiry   The first tick at which the pair is tested again.
+     */
+    public void add(Ball ball, Object obstacle, int expiry) {
+        int index = find(ball, obstacle);
+        if (index >= 0) {
+            expiries[index] = expiry;
+            return;
+        }
+        if ((size + 1) * 2 > balls.length) {
+            // Make room by dropping the contacts that ran out before growing the table
+            expire(tick);
+            if ((size + 1) * 2 > balls.length) {
+                grow();
+            }
+        }
+        insert(ball, obstacle, expiry);
+    }
+
+    /**
+     * Moves the cache on to a new tick. Contacts that ran out by then stop suppressing
+     * collisions at once, but are only deleted once the table fills.
+     *
+     * @param tick The current tick.
+     */
+    public void advance(int tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Forgets every contact that no longer suppresses collisions at the given tick.
+     *
+     * @param tick The current tick.
+     */
+    public void expire(int tick) {
+        if (size == 0) {
+            return;
+        }
+        int index = 0;
+        while (index < balls.length) {
+            if (balls[index] != null && tick >= expiries[index]) {
+                // Deleting shifts a later entry into this index, so check it again
+                delete(index);
+            } else {
+                index++;
+            }
+        }
+    }
+
+    /**
+     * Forgets every contact.
+     */
+    public void clear() {
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] = null;
+            obstacles[i] = null;
+        }
+        size = 0;
+    }
+
+    private int find(Ball ball, Object obstacle) {
+        if (size == 0) {
+            return -1;
+        }
+        int mask = balls.length - 1;
+        for (int index = hash(ball, obstacle) & mask; balls[index] != null; index = (index + 1) & mask) {
+            if (balls[index] == ball && obstacles[index] == obstacle) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(Ball ball, Object obstacle, int expiry) {
+        int mask = balls.length - 1;
+        int index = hash(ball, obstacle) & mask;
+        while (balls[index] != null) {
+            index = (index + 1) & mask;
+        }
+        balls[index] = ball;
+        obstacles[index] = obstacle;
+        expiries[index] = expiry;
+        size++;
+    }
+
+    /**
+     * Removes an entry and moves later entries of the same probe run back, so lookups never
+     * stop early at the hole left behind.
+     */
+    private void delete(int index) {
+        int mask = balls.length - 1;
+        int hole = index;
+        int next = (index + 1) & mask;
+        while (balls[next] != null) {
+            int home = hash(balls[next], obstacles[next]) & mask;
+            // Move the entry if its home slot is not cyclically between the hole and its position
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                balls[hole] = balls[next];
+                obstacles[hole] = obstacles[next];
+                expiries[hole] = expiries[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        balls[hole] = null;
+        obstacles[hole] = null;
+        size--;
+    }
+
+    private void grow() {
+        Ball[] oldBalls = balls;
+        Object[] oldObstacles = obstacles;
+        int[] oldExpiries = expiries;
+        allocate(oldBalls.length * 2);
+        for (int i = 0; i < oldBalls.length; i++) {
+            if (oldBalls[i] != null) {
+                insert(oldBalls[i], oldObstacles[i], oldExpiries[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        balls = new Ball[capacity];
+        obstacles = new Object[capacity];
+        expiries = new int[capacity];
+        size = 0;
+    }
+
+    private static int hash(Ball ball, Object obstacle) {
+        int h = System.identityHashCode(ball) * 31 + System.identityHashCode(obstacle);
+        return h ^ (h >>> 16);
+    }
+}
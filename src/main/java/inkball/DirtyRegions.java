@@ -0,0 +1,374 @@
+package inkball;
+
+import processing.core.PGraphics;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repaints only the parts of the board that change from one frame to the next. The rectangles
+ * covered by sprites in the previous frame and in this one, and by the parts of player-drawn
+ * lines that were added, cleared or removed, are marked dirty. Overlapping rectangles are
+ * merged, and each one is restored from the level's static layer before the sprites and the
+ * ink of the lines are drawn again over it. The rest of the canvas keeps what the last frame left on it.
+ *
+ * <p>The top bar shows the score and the timer, so it is repainted every frame. The whole board is
+ * repainted on the first frame, when the level or its static layer changes, and when so much has
+ * changed that repainting it in pieces would cost more than repainting it whole.</p>
+ *
+ * <p>The fraction of the canvas repainted in the last frame is kept as a metric, along with its
+ * average since the renderer was created.</p>
+ */
+public class DirtyRegions {
+    /** Most rectangles repainted separately before the whole board is repainted instead */
+    static final int MAX_RECTS = 64;
+    /** Fraction of the board past which the whole board is repainted instead */
+    static final float FULL_REPAINT_FRACTION = 0.5f;
+    /** Pixels added around each rectangle to cover anti-aliased edges */
+    static final int PADDING = 1;
+
+    /** Dirty rectangles of the board in the current frame, as left, top, right and bottom */
+    private int[] left = new int[MAX_RECTS];
+    private int[] top = new int[MAX_RECTS];
+    private int[] right = new int[MAX_RECTS];
+    private int[] bottom = new int[MAX_RECTS];
+    private int count;
+    /** Whether the whole board is repainted in the current frame */
+    private boolean fullRepaint = true;
+
+    /** Screen rectangles of the sprites drawn in the previous frame */
+    private float[] previousX = new float[MAX_RECTS];
+    private float[] previousY = new float[MAX_RECTS];
+    private float[] previousWidth = new float[MAX_RECTS];
+    private float[] previousHeight = new float[MAX_RECTS];
+    private int previousCount;
+
+    /** What each line looked like when it was last drawn */
+    private final Map<PlayerDrawnLine, LineState> lineStates = new IdentityHashMap<>();
+    /** Bounds of the part of a line that grew, reused for every line */
+    private final LineState grown = new LineState();
+    /** Number of frames painted, used to find lines that were not seen this frame */
+    private int frame;
+
+    /** Level and static layer version that the canvas was painted from */
+    private Level paintedLevel;
+    private int paintedLayerVersion;
+
+    private float touchedFraction;
+    private double touchedTotal;
+    private int frameCount;
+
+    /**
+     * Bounds of a line and how far it had been drawn when the last frame was painted.
+     */
+    private static final class LineState {
+        int version;
+        int generation;
+        int pointCount;
+        /** Where the last point of the line was, as a line may move it */
+        float tailX;
+        float tailY;
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        int seenFrame;
+
+        void include(PlayerDrawnLine line, int from) {
+            for (int i = from; i < line.getPointCount(); i++) {
+                include(line.getX(i), line.getY(i));
+            }
+        }
+
+        void include(float x, float y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        void reset() {
+            minX = Float.MAX_VALUE;
+            minY = Float.MAX_VALUE;
+            maxX = -Float.MAX_VALUE;
+            maxY = -Float.MAX_VALUE;
+        }
+
+        boolean isEmpty() {
+            return minX > maxX;
+        }
+    }
+
+    /**
+     * Returns the fraction of the canvas repainted in the last frame.
+     *
+     * @return The number of pixels repainted divided by the number of pixels on the canvas.
+     */
+    public float getTouchedFraction() { return touchedFraction; }
+
+    /**
+     * Returns the average fraction of the canvas repainted per frame.
+     *
+     * @return The average over every frame painted so far, or 0 if none has been.
+     */
+    public float getAverageTouchedFraction() {
+        return frameCount > 0 ? (float) (touchedTotal / frameCount) : 0;
+    }
+
+    /**
+     * Describes how much of the canvas is being repainted, for display in the top bar.
+     *
+     * @return The percentage repainted in the last frame and its average, rounded to whole numbers.
+     */
+    public String getTouchedSummary() {
+        return String.format("Repainted %.0f%% (avg %.0f%%)", touchedFraction * 100, getAverageTouchedFraction() * 100);
+    }
+
+    public int getRectCount() { return count; }
+    public boolean isFullRepaint() { return fullRepaint; }
+
+    /**
+     * Repaints the whole board on the next frame.
+     */
+    public void invalidate() {
+        paintedLevel = null;
+    }
+
+    /**
+     * Clears the top bar so it can be drawn again. This is called before anything else is drawn.
+     *
+     * @param p The App instance used for drawing.
+     */
+    public void paintTopBar(App p) {
+        p.pushStyle();
+        p.noStroke();
+        p.fill(200, 200, 200);
+        p.rect(0, 0, App.WIDTH, App.TOPBAR);
+        p.popStyle();
+    }
+
+    /**
+     * Works out the dirty rectangles of the board for this frame and restores them from the
+     * level's static layer. This is called once the sprites of the frame have been added to
+     * the batch and before they are drawn.
+     *
+     * @param p     The App instance used for drawing.
+     * @param level The current level, or null if there is none.
+     * @param batch The sprites of this frame.
+     * @param lines The player-drawn lines.
+     */
+    public void repaint(App p, Level level, SpriteBatch batch, List<PlayerDrawnLine> lines) {
+        frame++;
+        count = 0;
+        PGraphics layer = level != null ? level.getStaticLayer(p) : null;
+        fullRepaint = level == null || level != paintedLevel || level.getStaticLayerVersion() != paintedLayerVersion;
+
+        // Erase where sprites were and draw where they are now
+        for (int i = 0; i < previousCount && !fullRepaint; i++) {
+            mark(previousX[i], previousY[i], previousWidth[i], previousHeight[i]);
+        }
+        for (int i = 0; i < batch.getCount() && !fullRepaint; i++) {
+            mark(batch.getSpriteX(i), batch.getSpriteY(i), batch.getSpriteWidth(i), batch.getSpriteHeight(i));
+        }
+        markLineChanges(lines);
+        if (!fullRepaint) {
+            // Past a point merging costs more than it saves, and the board is repainted whole anyway
+            if (count <= 4 * MAX_RECTS) {
+                merge();
+            }
+            fullRepaint = count > MAX_RECTS || boardArea() > FULL_REPAINT_FRACTION * App.WIDTH * (App.HEIGHT - App.TOPBAR);
+        }
+
+        long touched = (long) App.WIDTH * App.TOPBAR;
+        if (fullRepaint) {
+            count = 0;
+            if (layer != null) {
+                p.image(layer, 0, App.TOPBAR);
+            } else {
+                p.pushStyle();
+                p.noStroke();
+                p.fill(200, 200, 200);
+                p.rect(0, App.TOPBAR, App.WIDTH, App.HEIGHT - App.TOPBAR);
+                p.popStyle();
+            }
+            touched += (long) App.WIDTH * (App.HEIGHT - App.TOPBAR);
+        } else {
+            for (int i = 0; i < count; i++) {
+                int w = right[i] - left[i];
+                int h = bottom[i] - top[i];
+                p.image(layer, left[i], top[i], w, h, left[i], top[i] - App.TOPBAR, right[i], bottom[i] - App.TOPBAR);
+            }
+            touched += boardArea();
+        }
+        paintedLevel = level;
+        paintedLayerVersion = level != null ? level.getStaticLayerVersion() : 0;
+
+        touchedFraction = touched / (float) (App.WIDTH * App.HEIGHT);
+        touchedTotal += touchedFraction;
+        frameCount++;
+
+        rememberSprites(batch);
+    }
+
+    /**
+     * Draws the parts of an overlay covering the whole canvas, such as the ink layer, that were
+     * repainted this frame: the top bar and the dirty rectangles, or everything on a full repaint.
+     *
+     * @param p     The App instance used for drawing.
+     * @param layer The overlay to draw.
+     */
+    public void drawLayer(App p, PGraphics layer) {
+        if (layer == null) {
+            return;
+        }
+        if (fullRepaint) {
+            p.image(layer, 0, 0);
+            return;
+        }
+        p.image(layer, 0, 0, App.WIDTH, App.TOPBAR, 0, 0, App.WIDTH, App.TOPBAR);
+        for (int i = 0; i < count; i++) {
+            p.image(layer, left[i], top[i], right[i] - left[i], bottom[i] - top[i], left[i], top[i], right[i], bottom[i]);
+        }
+    }
+
+    /**
+     * Marks the parts of the lines that changed since the last frame. Removed and cleared lines
+     * are erased over their old bounds, which the ink layer then redraws with whatever lines
+     * remain there, and lines that grew over the points added to them.
+     */
+    private void markLineChanges(List<PlayerDrawnLine> lines) {
+        for (int l = 0; l < lines.size(); l++) {
+            PlayerDrawnLine line = lines.get(l);
+            LineState state = lineStates.get(line);
+            if (state == null) {
+                state = new LineState();
+                state.version = line.getVersion() - 1;
+                state.generation = line.getGeneration();
+                lineStates.put(line, state);
+            }
+            state.seenFrame = frame;
+            if (state.version == line.getVersion()) {
+                continue;
+            }
+            if (line.getGeneration() != state.generation) {
+                markLine(state);
+                state.reset();
+                state.include(line, 0);
+                markLine(state);
+            } else {
+                // The last point may have moved, so the previous last segment is erased and drawn again too
+                grown.reset();
+                grown.include(line, Math.max(state.pointCount - 2, 0));
+                if (state.pointCount > 0) {
+                    grown.include(state.tailX, state.tailY);
+                }
+                markLine(grown);
+                state.include(line, Math.max(state.pointCount - 1, 0));
+            }
+            state.version = line.getVersion();
+            state.generation = line.getGeneration();
+            state.pointCount = line.getPointCount();
+            if (state.pointCount > 0) {
+                state.tailX = line.getX(state.pointCount - 1);
+                state.tailY = line.getY(state.pointCount - 1);
+            }
+        }
+
+        Iterator<LineState> removed = lineStates.values().iterator();
+        while (removed.hasNext()) {
+            LineState state = removed.next();
+            if (state.seenFrame != frame) {
+                markLine(state);
+                removed.remove();
+            }
+        }
+    }
+
+    private void markLine(LineState state) {
+        if (fullRepaint || state.isEmpty()) {
+            return;
+        }
+        float reach = PlayerDrawnLine.LINE_THICKNESS / 2;
+        mark(state.minX - reach, state.minY - reach, state.maxX - state.minX + 2 * reach, state.maxY - state.minY + 2 * reach);
+    }
+
+    /**
+     * Marks a rectangle as dirty, widened to whole pixels and cut to the board.
+     */
+    void mark(float x, float y, float w, float h) {
+        int rectLeft = Math.max(0, (int) Math.floor(x) - PADDING);
+        int rectTop = Math.max(App.TOPBAR, (int) Math.floor(y) - PADDING);
+        int rectRight = Math.min(App.WIDTH, (int) Math.ceil(x + w) + PADDING);
+        int rectBottom = Math.min(App.HEIGHT, (int) Math.ceil(y + h) + PADDING);
+        if (rectLeft >= rectRight || rectTop >= rectBottom) {
+            return;
+        }
+        if (count == left.length) {
+            int capacity = count * 2;
+            left = Arrays.copyOf(left, capacity);
+            top = Arrays.copyOf(top, capacity);
+            right = Arrays.copyOf(right, capacity);
+            bottom = Arrays.copyOf(bottom, capacity);
+        }
+        left[count] = rectLeft;
+        top[count] = rectTop;
+        right[count] = rectRight;
+        bottom[count] = rectBottom;
+        count++;
+    }
+
+    /**
+     * Merges overlapping rectangles into their bounding box until none overlap, so that no pixel
+     * is repainted twice.
+     */
+    private void merge() {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (left[i] < right[j] && left[j] < right[i] && top[i] < bottom[j] && top[j] < bottom[i]) {
+                        left[i] = Math.min(left[i], left[j]);
+                        top[i] = Math.min(top[i], top[j]);
+                        right[i] = Math.max(right[i], right[j]);
+                        bottom[i] = Math.max(bottom[i], bottom[j]);
+                        count--;
+                        left[j] = left[count];
+                        top[j] = top[count];
+                        right[j] = right[count];
+                        bottom[j] = bottom[count];
+                        j = i;
+                        merged = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private long boardArea() {
+        long area = 0;
+        for (int i = 0; i < count; i++) {
+            area += (long) (right[i] - left[i]) * (bottom[i] - top[i]);
+        }
+        return area;
+    }
+
+    private void rememberSprites(SpriteBatch batch) {
+        previousCount = batch.getCount();
+        if (previousCount > previousX.length) {
+            previousX = Arrays.copyOf(previousX, previousCount);
+            previousY = Arrays.copyOf(previousY, previousCount);
+            previousWidth = Arrays.copyOf(previousWidth, previousCount);
+            previousHeight = Arrays.copyOf(previousHeight, previousCount);
+        }
+        for (int i = 0; i < previousCount; i++) {
+            previousX[i] = batch.getSpriteX(i);
+            previousY[i] = batch.getSpriteY(i);
+            previousWidth[i] = batch.getSpriteWidth(i);
+            previousHeight[i] = batch.getSpriteHeight(i);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package inkball;
+
+import java.util.Arrays;
+
+/**
+ * A signed distance field of the wall tiles in a {@link TileMap}, sampled several times per cell.
+ * Each sample holds the distance from its position to the nearest wall surface, negative inside
+ * walls, along with the gradient of the field and the color of the nearest wall. Distances are
+ * only worked out up to one cell away from the walls, which is further than any ball reaches.
+ *
+ * <p>A ball is checked against all the tiles at once by interpolating the field at its center:
+ * it touches a wall when the distance is less than its radius, and the gradient points straight
+ * out of the nearest surface. The cost of a check therefore does not depend on the number of
+ * walls. The field is baked when it is created; a level bakes a new one when its tile map changes.</p>
+ */
+public class DistanceField {
+    /** Number of samples along each side of a cell used when none is configured */
+    public static final int DEFAULT_SAMPLES_PER_CELL = 4;
+
+    private final TileMap tileMap;
+    private final int samplesPerCell;
+    /** Distance in pixels between neighbouring samples */
+    private final float spacing;
+    /** Largest distance stored, beyond which samples are clamped */
+    private final float band;
+    private final int sampleCols;
+    private final int sampleRows;
+
+    /** Signed distance at each sample, stored row by row */
+    private final float[] distances;
+    /** Gradient of the field at each sample */
+    private final float[] gradientX;
+    private final float[] gradientY;
+    /** Color of the wall nearest to each sample, or {@link TileMap#EMPTY} if none is in range */
+    private final byte[] colors;
+    /** Depth of each sample inside the walls, used while baking */
+    private final float[] depths;
+    /** Version of the tile map the field was baked from */
+    private int bakedVersion;
+
+    /**
+     * Constructs and bakes the distance field of a tile map.
+     *
+     * @param tileMap        The tile map holding the walls.
+     * @param samplesPerCell The number of samples along each side of a cell.
+     */
+    public DistanceField(TileMap tileMap, int samplesPerCell) {
+        if (samplesPerCell < 1) {
+            throw new IllegalArgumentException("Invalid number of samples per cell: " + samplesPerCell);
+        }
+        this.tileMap = tileMap;
+        this.samplesPerCell = samplesPerCell;
+        this.spacing = tileMap.getCellSize() / (float) samplesPerCell;
+        this.band = tileMap.getCellSize();
+        // Even an empty map has one cell of samples to interpolate between
+        this.sampleCols = Math.max(tileMap.getCols(), 1) * samplesPerCell + 1;
+        this.sampleRows = Math.max(tileMap.getRows(), 1) * samplesPerCell + 1;
+        int count = sampleCols * sampleRows;
+        distances = new float[count];
+        gradientX = new float[count];
+        gradientY = new float[count];
+        colors = new byte[count];
+        depths = new float[count];
+        bake();
+    }
+
+    public int getSampleCols() { return sampleCols; }
+    public int getSampleRows() { return sampleRows; }
+    public float getSpacing() { return spacing; }
+
+    /**
+     * Checks whether the field still matches a tile map.
+     *
+     * @param map The tile map to compare with.
+     * @return True if the field was baked from this map and the map has not changed since.
+     */
+    public boolean isBakedFrom(TileMap map) {
+        return map == tileMap && map.getVersion() == bakedVersion;
+    }
+
+    /**
+     * Works out the distance, gradient and nearest color of every sample from the wall tiles.
+     * Each wall cell only updates the samples within the band around it, and each empty cell
+     * the samples within the band inside the walls, so baking grows with the number of cells
+     * rather than with cells times samples.
+     */
+    private void bake() {
+        Arrays.fill(distances, band);
+        Arrays.fill(depths, band);
+        Arrays.fill(colors, TileMap.EMPTY);
+
+        // Distance outside the walls is the distance to the nearest wall cell, and distance
+        // inside is the distance to the nearest empty cell.
+        for (int row = 0; row < tileMap.getRows(); row++) {
+            for (int col = 0; col < tileMap.getCols(); col++) {
+                int color = tileMap.getColor(col, row);
+                if (color != TileMap.EMPTY) {
+                    spreadFromCell(col, row, distances, colors, (byte) color);
+                } else {
+                    spreadFromCell(col, row, depths, null, TileMap.EMPTY);
+                }
+            }
+        }
+
+        // Samples touching a wall take their depth inside it as a negative distance
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] == 0) {
+                distances[i] = -depths[i];
+            }
+        }
+
+        // Central differences, falling back to one-sided ones along the edges
+        for (int row = 0; row < sampleRows; row++) {
+            for (int col = 0; col < sampleCols; col++) {
+                int left = Math.max(col - 1, 0);
+                int right = Math.min(col + 1, sampleCols - 1);
+                int up = Math.max(row - 1, 0);
+                int down = Math.min(row + 1, sampleRows - 1);
+                int i = row * sampleCols + col;
+                gradientX[i] = (distances[row * sampleCols + right] - distances[row * sampleCols + left]) / ((right - left) * spacing);
+                gradientY[i] = (distances[down * sampleCols + col] - distances[up * sampleCols + col]) / ((down - up) * spacing);
+            }
+        }
+        bakedVersion = tileMap.getVersion();
+    }
+
+    /**
+     * Lowers the values of the samples within the band around a cell to their distance from it.
+     */
+    private void spreadFromCell(int col, int row, float[] field, byte[] nearestColors, byte color) {
+        float cellLeft = col * samplesPerCell * spacing;
+        float cellTop = row * samplesPerCell * spacing;
+        float cellRight = cellLeft + tileMap.getCellSize();
+        float cellBottom = cellTop + tileMap.getCellSize();
+        int reach = (int) Math.ceil(band / spacing);
+        int minCol = Math.max(0, col * samplesPerCell - reach);
+        int maxCol = Math.min(sampleCols - 1, (col + 1) * samplesPerCell + reach);
+        int minRow = Math.max(0, row * samplesPerCell - reach);
+        int maxRow = Math.min(sampleRows - 1, (row + 1) * samplesPerCell + reach);
+
+        for (int sampleRow = minRow; sampleRow <= maxRow; sampleRow++) {
+            float y = sampleRow * spacing;
+            float dy = Math.max(0, Math.max(cellTop - y, y - cellBottom));
+            for (int sampleCol = minCol; sampleCol <= maxCol; sampleCol++) {
+                float x = sampleCol * spacing;
+                float dx = Math.max(0, Math.max(cellLeft - x, x - cellRight));
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                int i = sampleRow * sampleCols + sampleCol;
+                if (distance < field[i]) {
+                    field[i] = distance;
+                    if (nearestColors != null) {
+                        nearestColors[i] = color;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the signed distance from a point to the nearest wall surface, interpolated
+     * between the surrounding samples.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return The distance, negative inside walls and at most one cell.
+     */
+    public float sample(float x, float y) {
+        float fx = clampSample((x - tileMap.getOriginX()) / spacing, sampleCols);
+        float fy = clampSample((y - tileMap.getOriginY()) / spacing, sampleRows);
+        int col = Math.min((int) fx, sampleCols - 2);
+        int row = Math.min((int) fy, sampleRows - 2);
+        return interpolate(distances, row * sampleCols + col, fx - col, fy - row);
+    }
+
+    /**
+     * Checks whether a ball overlaps a wall tile. If it does, the ball is pushed out along the
+     * gradient of the field, its velocity is reflected if it is moving into the wall, and it
+     * takes on the color of the nearest wall (except for color 0).
+     *
+     * @param ball The ball to check.
+     * @param p    The App instance, used for updating the ball's color if necessary.
+     * @return True if the ball touched a wall, otherwise false.
+     */
+    public boolean checkCollision(Ball ball, App p) {
+        float x = ball.getX();
+        float y = ball.getY();
+        float radius = ball.getRadius();
+
+        // The same four samples give the distance and the gradient
+        float fx = clampSample((x - tileMap.getOriginX()) / spacing, sampleCols);
+        float fy = clampSample((y - tileMap.getOriginY()) / spacing, sampleRows);
+        int col = Math.min((int) fx, sampleCols - 2);
+        int row = Math.min((int) fy, sampleRows - 2);
+        int corner = row * sampleCols + col;
+        float tx = fx - col;
+        float ty = fy - row;
+        float distance = interpolate(distances, corner, tx, ty);
+        if (distance >= radius) {
+            return false;
+        }
+        float normalX = interpolate(gradientX, corner, tx, ty);
+        float normalY = interpolate(gradientY, corner, tx, ty);
+        float length = (float) Math.sqrt(normalX * normalX + normalY * normalY);
+        if (length == 0) {
+            return false;
+        }
+        normalX /= length;
+        normalY /= length;
+
+        // Push the ball out of the wall, rounding away from it so that no overlap remains
+        float push = radius - distance;
+        float newX = x + normalX * push;
+        float newY = y + normalY * push;
+        ball.setX((int) (normalX > 0 ? Math.ceil(newX) : normalX < 0 ? Math.floor(newX) : newX));
+        ball.setY((int) (normalY > 0 ? Math.ceil(newY) : normalY < 0 ? Math.floor(newY) : newY));
+
+        // Reflect the ball's velocity about the surface normal if it is heading into the wall
+        float vx = ball.getXVelocity();
+        float vy = ball.getYVelocity();
+        float dot = vx * normalX + vy * normalY;
+        if (dot < 0) {
+            ball.setXVelocity(vx - 2 * dot * normalX);
+            ball.setYVelocity(vy - 2 * dot * normalY);
+        }
+
+        // Take the color of the nearest wall from the closest sample
+        int color = colors[corner + (ty >= 0.5f ? sampleCols : 0) + (tx >= 0.5f ? 1 : 0)];
+        if (color > 0) {
+            ball.setColor(color, p);
+        }
+        return true;
+    }
+
+    private static float clampSample(float position, int samples) {
+        return Math.max(0, Math.min(samples - 1, position));
+    }
+
+    /**
+     * Bilinearly interpolates a field between the sample at a corner and its right, lower and
+     * lower right neighbours.
+     */
+    private float interpolate(float[] field, int corner, float tx, float ty) {
+        float top = field[corner] + (field[corner + 1] - field[corner]) * tx;
+        float bottom = field[corner + sampleCols] + (field[corner + sampleCols + 1] - field[corner + sampleCols]) * tx;
+        return top + (bottom - top) * ty;
+    }
+}
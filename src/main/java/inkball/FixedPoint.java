@@ -0,0 +1,114 @@
+package inkball;
+
+/**
+ * Utility class for 16.16 fixed-point arithmetic. A fixed-point value is an {@code int} holding
+ * the real value multiplied by 65536, so positions keep their sub-pixel part and every operation
+ * is plain integer arithmetic that gives bit-identical results on any JVM.
+ *
+ * <p>Values are limited to about +/-32767, which comfortably covers the game window and ball
+ * speeds.</p>
+ */
+public class FixedPoint {
+    /** Number of fractional bits */
+    public static final int SHIFT = 16;
+    /** The fixed-point representation of 1 */
+    public static final int ONE = 1 << SHIFT;
+
+    /**
+     * Converts an integer to fixed point.
+     *
+     * @param value The integer value.
+     * @return The fixed-point value.
+     */
+    public static int fromInt(int value) {
+        return value << SHIFT;
+    }
+
+    /**
+     * Converts a float to fixed point, rounding to the nearest representable value.
+     *
+     * @param value The float value.
+     * @return The fixed-point value.
+     */
+    public static int fromFloat(float value) {
+        return Math.round(value * ONE);
+    }
+
+    /**
+     * Converts a fixed-point value to an integer, rounding down.
+     *
+     * @param value The fixed-point value.
+     * @return The largest integer not greater than the value.
+     */
+    public static int toInt(int value) {
+        return value >> SHIFT;
+    }
+
+    /**
+     * Converts a fixed-point value to a float. The conversion is exact for values below 256.
+     *
+     * @param value The fixed-point value.
+     * @return The float value.
+     */
+    public static float toFloat(int value) {
+        return value / (float) ONE;
+    }
+
+    /**
+     * Multiplies two fixed-point values.
+     *
+     * @param a The first value.
+     * @param b The second value.
+     * @return The product, rounded towards negative infinity.
+     */
+    public static int mul(int a, int b) {
+        return (int) (((long) a * b) >> SHIFT);
+    }
+
+    /**
+     * Divides two fixed-point values.
+     *
+     * @param a The dividend.
+     * @param b The divisor, which must not be zero.
+     * @return The quotient, rounded towards zero.
+     */
+    public static int div(int a, int b) {
+        return (int) (((long) a << SHIFT) / b);
+    }
+
+    /**
+     * Calculates the length of a vector.
+     *
+     * @param x The x component in fixed point.
+     * @param y The y component in fixed point.
+     * @return The length in fixed point, rounded down.
+     */
+    public static int length(int x, int y) {
+        // The squared length has 32 fractional bits, so its square root has 16
+        return (int) sqrt((long) x * x + (long) y * y);
+    }
+
+    /**
+     * Calculates the integer square root of a non-negative long, bit by bit.
+     *
+     * @param value The value.
+     * @return The largest integer whose square does not exceed the value.
+     */
+    static long sqrt(long value) {
+        long result = 0;
+        long bit = 1L << 62;
+        while (bit > value) {
+            bit >>= 2;
+        }
+        while (bit != 0) {
+            if (value >= result + bit) {
+                value -= result + bit;
+                result = (result >> 1) + bit;
+            } else {
+                result >>= 1;
+            }
+            bit >>= 2;
+        }
+        return result;
+    }
+}
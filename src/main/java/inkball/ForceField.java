@@ -0,0 +1,198 @@
+package inkball;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A per-cell force field compiled from a level's acceleration tiles. Each cell holds the
+ * acceleration tiles whose centers lie in it, and each tile's entry stores its bounds along with
+ * the change in velocity it applies: an axis and a signed amount that is also the direction the
+ * velocity is clamped in. A ball is accelerated by looking up the few cells around it and
+ * reading these entries, so the work per ball does not grow with the number of tiles.
+ *
+ * <p>Layout tiles fill exactly one cell each. Tiles placed between cells, or on top of each
+ * other, are chained within the cell of their center, so every tile is found once.</p>
+ *
+ * <p>Tiles with an invalid direction are recorded, so that the field can tell when it is stale,
+ * but left out of every cell, so a ball that touches them is not accelerated. Accelerating balls
+ * never throws, as it runs on the worker threads that step the balls.</p>
+ */
+public class ForceField {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int originX;
+    private final int originY;
+    private final int cols;
+    private final int rows;
+    private final int cellSize;
+    /** First entry of each cell, or -1 if no tile is centered in it */
+    private final int[] cellHeads;
+
+    /** The tile of each entry, used as the key of its contacts */
+    private AccelerateTile[] tiles = new AccelerateTile[INITIAL_CAPACITY];
+    /** Bounds of each tile */
+    private int[] left = new int[INITIAL_CAPACITY];
+    private int[] top = new int[INITIAL_CAPACITY];
+    private int[] right = new int[INITIAL_CAPACITY];
+    private int[] bottom = new int[INITIAL_CAPACITY];
+    /** Axis and signed amount of the change in velocity of each tile */
+    private int[] axes = new int[INITIAL_CAPACITY];
+    private float[] amounts = new float[INITIAL_CAPACITY];
+    /** Version of each tile when it was added */
+    private int[] versions = new int[INITIAL_CAPACITY];
+    /** Next entry in the same cell, or -1 */
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int count;
+    /** Largest distance from a tile's center to its edge, which bounds the cells to look up */
+    private int maxHalfSize;
+
+    /**
+     * Constructs an empty force field covering the given area.
+     *
+     * @param originX  The x-coordinate of the top-left corner of the field.
+     * @param originY  The y-coordinate of the top-left corner of the field.
+     * @param cols     The number of columns in the field.
+     * @param rows     The number of rows in the field.
+     * @param cellSize The width and height of a single cell in pixels.
+     */
+    public ForceField(int originX, int originY, int cols, int rows, int cellSize) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cols = Math.max(cols, 1);
+        this.rows = Math.max(rows, 1);
+        this.cellSize = cellSize;
+        this.cellHeads = new int[this.cols * this.rows];
+        Arrays.fill(cellHeads, -1);
+    }
+
+    public int getTileCount() { return count; }
+
+    /**
+     * Removes every tile from the field.
+     */
+    public void clear() {
+        Arrays.fill(cellHeads, -1);
+        Arrays.fill(tiles, 0, count, null);
+        count = 0;
+        maxHalfSize = 0;
+    }
+
+    /**
+     * Compiles a list of acceleration tiles into the field, replacing what it held before.
+     *
+     * @param accelerationTiles The tiles to compile.
+     */
+    public void build(List<AccelerateTile> accelerationTiles) {
+        clear();
+        for (int i = 0; i < accelerationTiles.size(); i++) {
+            add(accelerationTiles.get(i));
+        }
+    }
+
+    /**
+     * Checks whether the field still matches a list of tiles.
+     *
+     * @param accelerationTiles The tiles to compare with.
+     * @return True if the field was built from these tiles, in this order, and none of them has
+     *         changed since.
+     */
+    public boolean isBuiltFrom(List<AccelerateTile> accelerationTiles) {
+        if (accelerationTiles.size() != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            AccelerateTile tile = accelerationTiles.get(i);
+            if (tile != tiles[i] || tile.getVersion() != versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a tile to the cell its center lies in. Tiles outside the field are kept in the border
+     * cells, and tiles with an invalid direction in none.
+     *
+     * @param tile The tile to add.
+     */
+    public void add(AccelerateTile tile) {
+        if (count == tiles.length) {
+            int capacity = count * 2;
+            tiles = Arrays.copyOf(tiles, capacity);
+            left = Arrays.copyOf(left, capacity);
+            top = Arrays.copyOf(top, capacity);
+            right = Arrays.copyOf(right, capacity);
+            bottom = Arrays.copyOf(bottom, capacity);
+            axes = Arrays.copyOf(axes, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        tiles[count] = tile;
+        left[count] = tile.getX();
+        top[count] = tile.getY();
+        right[count] = tile.getX() + tile.width;
+        bottom[count] = tile.getY() + tile.height;
+        axes[count] = tile.getAxis();
+        amounts[count] = tile.getAmount();
+        versions[count] = tile.getVersion();
+        maxHalfSize = Math.max(maxHalfSize, (Math.max(tile.width, tile.height) + 1) / 2);
+
+        if (axes[count] == AccelerateTile.AXIS_NONE) {
+            next[count] = -1;
+            count++;
+            return;
+        }
+
+        // Chain the tile into the cell of its center
+        int cell = rowOf(tile.getY() + tile.height / 2f) * cols + colOf(tile.getX() + tile.width / 2f);
+        next[count] = cellHeads[cell];
+        cellHeads[cell] = count;
+        count++;
+    }
+
+    /**
+     * Accelerates a ball by every tile its bounding box overlaps, unless the ball was accelerated
+     * by that tile too recently. Each tile that accelerates the ball is recorded as a contact in
+     * the buffer, so that it is left alone until the cooldown ends.
+     *
+     * @param ball     The ball to accelerate.
+     * @param contacts The level's recent contacts.
+     * @param tick     The current physics tick.
+     * @param cooldown The number of ticks a tile leaves a ball alone after accelerating it.
+     * @param buffer   The buffer to record contacts in.
+     */
+    void accelerate(Ball ball, ContactCache contacts, int tick, int cooldown, StepBuffer buffer) {
+        if (count == 0) {
+            return;
+        }
+        float x = ball.getX();
+        float y = ball.getY();
+        float radius = ball.getRadius();
+
+        // A tile can only touch the ball if its center is within half its size of the ball's box
+        int minCol = colOf(x - radius - maxHalfSize);
+        int maxCol = colOf(x + radius + maxHalfSize);
+        int minRow = rowOf(y - radius - maxHalfSize);
+        int maxRow = rowOf(y + radius + maxHalfSize);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+                    if (x + radius > left[i] && x - radius < right[i] && y + radius > top[i] && y - radius < bottom[i]
+                            && !contacts.isCoolingDown(ball, tiles[i], tick)) {
+                        AccelerateTile.accelerate(ball, axes[i], amounts[i]);
+                        buffer.addContact(ball, tiles[i], tick + cooldown);
+                    }
+                }
+            }
+        }
+    }
+
+    private int colOf(float x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor((x - originX) / cellSize)));
+    }
+
+    private int rowOf(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellSize)));
+    }
+}
@@ -0,0 +1,102 @@
+package inkball;
+
+/**
+ * A ring buffer of the gameplay events raised while the balls of a level are updated. The
+ * physics only records what happened, such as a ball dropping into a hole, and the level applies
+ * the events to the score, the queue of unspawned balls and its list of balls once per tick, after
+ * it has finished walking its balls.
+ *
+ * <p>Events are kept in parallel arrays that are allocated up front and only grow when more
+ * events are pending at once than ever before, so recording and draining them does not
+ * allocate in steady state. Events raised while draining, such as a respawn following a missed
+ * capture, are appended and applied in the same drain.</p>
+ */
+public class GameEvents {
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The kinds of gameplay event.
+     */
+    public enum Type {
+        /** A ball dropped into a hole of a matching color; the source is the hole */
+        CAPTURE,
+        /** A ball dropped into a hole of the wrong color; the source is the hole */
+        MISS,
+        /** A ball bounced off a player-drawn line; the source is the line */
+        BOUNCE,
+        /** A ball has to be put back at a spawner straight away; the source is the hole */
+        SPAWN
+    }
+
+    private Type[] types = new Type[INITIAL_CAPACITY];
+    private Ball[] balls = new Ball[INITIAL_CAPACITY];
+    private Object[] sources = new Object[INITIAL_CAPACITY];
+    /** Index of the oldest pending event */
+    private int head;
+    private int size;
+
+    /**
+     * Returns the number of events waiting to be applied.
+     *
+     * @return The number of pending events.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Records an event to apply at the next drain.
+     *
+     * @param type   The kind of event.
+     * @param ball   The ball the event happened to.
+     * @param source The hole or line involved.
+     */
+    public void add(Type type, Ball ball, Object source) {
+        if (size == types.length) {
+            grow();
+        }
+        int index = (head + size) & (types.length - 1);
+        types[index] = type;
+        balls[index] = ball;
+        sources[index] = source;
+        size++;
+    }
+
+    /**
+     * Applies every pending event to the level in the order they were recorded, including
+     * events recorded while draining.
+     *
+     * @param level The level the events happened in.
+     * @param app   The main game application holding the score and the unspawned balls.
+     */
+    public void drain(Level level, App app) {
+        while (size > 0) {
+            Type type = types[head];
+            Ball ball = balls[head];
+            Object source = sources[head];
+            balls[head] = null;
+            sources[head] = null;
+            head = (head + 1) & (types.length - 1);
+            size--;
+            level.applyEvent(type, ball, source, app);
+        }
+    }
+
+    /**
+     * Doubles the capacity, unwrapping the pending events to the start of the arrays.
+     */
+    private void grow() {
+        int capacity = types.length;
+        types = unwrap(types, new Type[capacity * 2]);
+        balls = unwrap(balls, new Ball[capacity * 2]);
+        sources = unwrap(sources, new Object[capacity * 2]);
+        head = 0;
+    }
+
+    private <T> T[] unwrap(T[] from, T[] to) {
+        int firstPart = from.length - head;
+        System.arraycopy(from, head, to, 0, firstPart);
+        System.arraycopy(from, 0, to, firstPart, head);
+        return to;
+    }
+}
@@ -1,9 +1,10 @@
 package inkball;
 
+import processing.core.PGraphics;
 import processing.core.PImage;
-import processing.core.PVector;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Represents a Hole object in the Inkball game. Holes attract balls within a certain range
@@ -15,9 +16,18 @@ public class Hole extends Entity implements Drawable {
 
     /** The attraction force factor applied to nearby balls. */
     private static final float ATTRACTION_FACTOR = 0.005f;
+    /** Distance from the hole's center within which balls are attracted */
+    static final float ATTRACTION_RADIUS = 32;
+    /** Distance from the hole's center within which balls are captured */
+    private static final float CAPTURE_RADIUS = 15;
+    private static final int FIXED_ATTRACTION_FACTOR = FixedPoint.fromFloat(ATTRACTION_FACTOR);
+    private static final int FIXED_ATTRACTION_RADIUS = FixedPoint.fromFloat(ATTRACTION_RADIUS);
 
-    /** Set to track balls currently being attracted to the hole. */
-    private Set<Ball> attractedBalls = new HashSet<>();
+    /**
+     * Balls currently being attracted to the hole. A hole only ever attracts a few balls at
+     * once, so a list is scanned instead of hashing into a set, which allocates on every add.
+     */
+    private List<Ball> attractedBalls = new ArrayList<>();
 
     /**
      * Constructs a Hole object with specified position, color, and reference to the game app.
@@ -41,7 +51,7 @@ public class Hole extends Entity implements Drawable {
      */
     @Override
     public void loadImage(App p) {
-        holeImage = p.loadImage("inkball/hole" + color + ".png");
+        holeImage = SpriteCache.get(p, SpriteCache.holeName(color));
     }
 
     /**
@@ -54,6 +64,15 @@ public class Hole extends Entity implements Drawable {
         p.image(holeImage, x, y, width, height);
     }
 
+    /**
+     * Draws the hole onto an offscreen graphics buffer, such as a level's static layer.
+     *
+     * @param g The graphics buffer to draw on.
+     */
+    public void drawTo(PGraphics g) {
+        g.image(holeImage, x, y, width, height);
+    }
+
     /**
      * Attracts the ball toward the hole if the ball is within a certain range.
      *
@@ -62,89 +81,159 @@ public class Hole extends Entity implements Drawable {
      * @param app   Reference to the main game application.
      */
     public void attractBall(Ball ball, Level level, App app) {
-        float holeCenterX = x + width / 2.0f;
-        float holeCenterY = y + height / 2.0f;
+        settleBall(ball, applyPull(ball, app), level, app);
+        level.events.drain(level, app);
+    }
 
-        float ballCenterX = ball.getX();
-        float ballCenterY = ball.getY();
+    /**
+     * Pulls the ball towards the hole if it is within range, or restores its radius if it has
+     * just left the range. Only the ball itself is changed, so different balls can be pulled by
+     * different threads at once as long as {@link #settleBall} is not running.
+     *
+     * @param ball The ball to attract.
+     * @param app  Reference to the main game application.
+     * @return The distance between the ball and the center of the hole, or -1 if the ball is
+     *         out of range.
+     */
+    float applyPull(Ball ball, App app) {
+        float distanceToHole = ball.isFixedPoint() ? pullBallFixed(ball, app) : pullBall(ball, app);
+        if (distanceToHole < 0 && attractedBalls.contains(ball)) {
+            // Ball is no longer within attraction range, reset its radius
+            ball.resetRadius();
+        }
+        return distanceToHole;
+    }
 
-        // Calculate the distance between the ball and the center of the hole
-        float distanceToHole = PVector.dist(new PVector(ballCenterX, ballCenterY), new PVector(holeCenterX, holeCenterY));
+    /**
+     * Checks whether a ball at the given distance from the center of a hole is captured.
+     *
+     * @param distanceToHole The distance returned by {@link #applyPull}.
+     * @return True if the ball is close enough to be captured, otherwise false.
+     */
+    static boolean isCaptured(float distanceToHole) {
+        return distanceToHole >= 0 && distanceToHole < CAPTURE_RADIUS;
+    }
 
+    /**
+     * Records whether the ball is attracted after {@link #applyPull}, and captures it if it is
+     * close enough. A captured ball is deactivated straight away, and a capture or miss event
+     * is raised for the level to update the score and the queue of unspawned balls.
+     *
+     * @param ball           The ball that was pulled.
+     * @param distanceToHole The distance returned by {@link #applyPull}.
+     * @param level          The current level instance.
+     * @param app            Reference to the main game application.
+     */
+    void settleBall(Ball ball, float distanceToHole, Level level, App app) {
         // Check if the ball is within the attraction range (32 pixels)
-        if (distanceToHole <= 32) {
-            // Add the ball to the attractedBalls set if not already present
+        if (distanceToHole >= 0) {
+            // Add the ball to the attracted balls if not already present
             if (!attractedBalls.contains(ball)) {
                 attractedBalls.add(ball);
             }
 
-            // Calculate attraction force
-            PVector direction = new PVector(holeCenterX - ballCenterX, holeCenterY - ballCenterY);
-            direction.normalize();
-            PVector attraction = direction.mult(ATTRACTION_FACTOR / distanceToHole);
-
-            // Update the ball's velocity to move toward the hole
-            ball.setXVelocity(ball.getXVelocity() + attraction.x);
-            ball.setYVelocity(ball.getYVelocity() + attraction.y);
-
-            // Decrease the ball's size proportionally
-            float newRadius = ball.getInitialRadius() * (distanceToHole / 32.0f);
-            newRadius = Math.max(newRadius, 0);  // Prevent negative radius
-            ball.setRadius(newRadius);
-
             // Check if the ball has been successfully captured by the hole
-            if (distanceToHole < 15) {  // Ball is close enough to be captured
-                if (ball.getColor() == this.color || ball.getColor() == ColorUtils.colorToNumber("grey") || this.color == ColorUtils.colorToNumber("grey")) {
-
-                    // Successful capture, remove the ball
-                    level.increaseScore(ball.getColor(), app);
-                    ball.setIsActive(false);  // Deactivate the ball to prevent further updates
-
+            if (isCaptured(distanceToHole)) {
+                ball.setIsActive(false);  // Deactivate the ball to prevent further updates
+                if (level.captureMatrix.isAccepted(ball.getColor(), this.color)) {
+                    // Successful capture, the level removes the ball
+                    level.events.add(GameEvents.Type.CAPTURE, ball, this);
                 } else {
-
-                    // Capture failed, move the ball back to the unspawned queue
-                    level.decreaseScore(ball.getColor(), app);
-                    ball.setIsActive(false);
-
-                    // Check if the unspawned queue is empty, and if so, immediately spawn a new ball
-                    if (app.unspawnedBalls.isEmpty()) {
-                        app.spawnNewBallImmediate(ball);
-                    } else {
-                        app.addUnspawnedBall(ball);
-                    }
+                    // Capture failed, the level moves the ball back to the unspawned queue
+                    level.events.add(GameEvents.Type.MISS, ball, this);
                 }
                 // Remove the ball from attractedBalls as it's no longer active
                 attractedBalls.remove(ball);
             }
         } else {
-            // If the ball was previously attracted but is no longer within range, reset its radius
-            if (attractedBalls.contains(ball)) {
-                ball.resetRadius();
-                attractedBalls.remove(ball);
-            }
+            // The ball's radius was reset when it left the range
+            attractedBalls.remove(ball);
         }
     }
 
+    /**
+     * Accelerates a ball within the attraction range towards the hole, more strongly the closer
+     * it is, and shrinks it proportionally to its distance.
+     *
+     * @param ball The ball to attract.
+     * @param app  Reference to the main game application.
+     * @return The distance between the ball and the center of the hole, or -1 if the ball is
+     *         out of range and was left unchanged.
+     */
+    private float pullBall(Ball ball, App app) {
+        float holeCenterX = x + width / 2.0f;
+        float holeCenterY = y + height / 2.0f;
+
+        float offsetX = holeCenterX - ball.getX();
+        float offsetY = holeCenterY - ball.getY();
+        float distanceSquared = offsetX * offsetX + offsetY * offsetY;
+        if (distanceSquared > ATTRACTION_RADIUS * ATTRACTION_RADIUS) {
+            return -1;
+        }
+        float distanceToHole = (float) Math.sqrt(distanceSquared);
+
+        if (distanceToHole > 0) {
+            float strength = ATTRACTION_FACTOR * app.getTimeScale() / distanceToHole;
+            ball.setXVelocity(ball.getXVelocity() + offsetX / distanceToHole * strength);
+            ball.setYVelocity(ball.getYVelocity() + offsetY / distanceToHole * strength);
+        }
+
+        // Decrease the ball's size proportionally
+        float newRadius = ball.getInitialRadius() * (distanceToHole / ATTRACTION_RADIUS);
+        ball.setRadius(Math.max(newRadius, 0));  // Prevent negative radius
+        return distanceToHole;
+    }
+
+    /**
+     * Does the same as {@link #pullBall} for a ball held in 16.16 fixed point, using only
+     * integer arithmetic.
+     *
+     * @param ball The ball to attract, bound to a fixed-point store.
+     * @param app  Reference to the main game application.
+     * @return The distance between the ball and the center of the hole, or -1 if the ball is
+     *         out of range and was left unchanged.
+     */
+    private float pullBallFixed(Ball ball, App app) {
+        BallStore store = ball.store;
+        int slot = ball.slot;
+        int offsetX = FixedPoint.fromInt(x) + FixedPoint.fromInt(width) / 2 - store.fx[slot];
+        int offsetY = FixedPoint.fromInt(y) + FixedPoint.fromInt(height) / 2 - store.fy[slot];
+        int distanceToHole = FixedPoint.length(offsetX, offsetY);
+        if (distanceToHole > FIXED_ATTRACTION_RADIUS) {
+            return -1;
+        }
+
+        if (distanceToHole > 0) {
+            int strength = FixedPoint.div(FixedPoint.mul(FIXED_ATTRACTION_FACTOR, app.getFixedTimeScale()), distanceToHole);
+            store.fvx[slot] += FixedPoint.mul(FixedPoint.div(offsetX, distanceToHole), strength);
+            store.fvy[slot] += FixedPoint.mul(FixedPoint.div(offsetY, distanceToHole), strength);
+        }
+
+        // Decrease the ball's size proportionally
+        int initialRadius = FixedPoint.fromFloat(ball.getInitialRadius());
+        store.fradius[slot] = Math.max(FixedPoint.mul(initialRadius, FixedPoint.div(distanceToHole, FIXED_ATTRACTION_RADIUS)), 0);
+        return FixedPoint.toFloat(distanceToHole);
+    }
+
     /**
      * Updates attracted balls and restores their radius if they are no longer attracted.
      */
     public void updateAttractedBalls() {
-        Set<Ball> ballsToRemove = new HashSet<>();
-        for (Ball ball : attractedBalls) {
-            float holeCenterX = x + width / 2.0f;
-            float holeCenterY = y + height / 2.0f;
-            float ballCenterX = ball.getX();
-            float ballCenterY = ball.getY();
-            float distanceToHole = PVector.dist(new PVector(ballCenterX, ballCenterY), new PVector(holeCenterX, holeCenterY));
-
-            if (distanceToHole > 32) {
+        float holeCenterX = x + width / 2.0f;
+        float holeCenterY = y + height / 2.0f;
+
+        // Iterate backwards so that balls can be removed while scanning
+        for (int i = attractedBalls.size() - 1; i >= 0; i--) {
+            Ball ball = attractedBalls.get(i);
+            float offsetX = holeCenterX - ball.getX();
+            float offsetY = holeCenterY - ball.getY();
+
+            if (offsetX * offsetX + offsetY * offsetY > ATTRACTION_RADIUS * ATTRACTION_RADIUS) {
                 // Ball is no longer within attraction range, reset its radius
                 ball.resetRadius();
-                ballsToRemove.add(ball);
+                attractedBalls.remove(i);
             }
         }
-        // Remove balls that are no longer attracted
-        attractedBalls.removeAll(ballsToRemove);
     }
 
     // Getters and Setters
@@ -184,7 +273,13 @@ public class Hole extends Entity implements Drawable {
     public void setHoleImage(PImage holeImage) {
         this.holeImage = holeImage;
     }
-    public Set<Ball> getAttractedBalls() {
+    public float getCenterX() {
+        return x + width / 2.0f;
+    }
+    public float getCenterY() {
+        return y + height / 2.0f;
+    }
+    public Collection<Ball> getAttractedBalls() {
         return attractedBalls;
     }
 }
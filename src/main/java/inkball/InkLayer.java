@@ -0,0 +1,142 @@
+package inkball;
+
+import processing.core.PGraphics;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An offscreen image holding the ink of every player-drawn line. Each segment is stroked onto it
+ * once, when it is added to its line, and the image is drawn to the screen in one call per frame,
+ * so drawing the lines costs the same however much ink is on the board.
+ *
+ * <p>The last segment of a line is left off the image and drawn straight to the screen each
+ * frame instead, because a line that simplifies itself moves its last point as the pointer moves.
+ * A segment only goes onto the image once a point is added after it, when it can no longer change.</p>
+ *
+ * <p>Ink cannot be taken off the image, so when a line is erased or cleared on collision the
+ * image is cleared and every remaining line is stroked onto it again.</p>
+ */
+public class InkLayer {
+    private PGraphics graphics;
+    /** How much of each line has been stroked onto the image */
+    private final Map<PlayerDrawnLine, Stroked> strokedLines = new IdentityHashMap<>();
+    /** Number of updates so far, used to find lines that were not seen in this one */
+    private int frame;
+    /** Number of times the image has been stroked again from scratch */
+    private int regenerations;
+
+    /**
+     * The version of a line and the number of its segments on the image when it was last stroked.
+     */
+    private static final class Stroked {
+        int version = -1;
+        int generation;
+        int segments;
+        int seenFrame;
+    }
+
+    public PGraphics getGraphics() { return graphics; }
+    public int getRegenerations() { return regenerations; }
+
+    /**
+     * Strokes the segments finished since the last update onto the image. If a line
+     * was removed or cleared since then, the image is stroked again from scratch instead.
+     *
+     * @param p     The App instance used to create the image.
+     * @param lines The player-drawn lines.
+     */
+    public void update(App p, List<PlayerDrawnLine> lines) {
+        frame++;
+        boolean regenerate = false;
+        if (graphics == null) {
+            graphics = p.createGraphics(App.WIDTH, App.HEIGHT);
+            regenerate = true;
+        }
+
+        for (int l = 0; l < lines.size(); l++) {
+            PlayerDrawnLine line = lines.get(l);
+            Stroked stroked = strokedLines.get(line);
+            if (stroked == null) {
+                stroked = new Stroked();
+                stroked.generation = line.getGeneration();
+                strokedLines.put(line, stroked);
+            }
+            stroked.seenFrame = frame;
+            if (stroked.generation != line.getGeneration()) {
+                regenerate = true;
+            }
+        }
+        Iterator<Stroked> removed = strokedLines.values().iterator();
+        while (removed.hasNext()) {
+            if (removed.next().seenFrame != frame) {
+                removed.remove();
+                regenerate = true;
+            }
+        }
+
+        boolean drawing = false;
+        if (regenerate) {
+            beginStroke();
+            graphics.clear();
+            drawing = true;
+            regenerations++;
+        }
+        for (int l = 0; l < lines.size(); l++) {
+            PlayerDrawnLine line = lines.get(l);
+            Stroked stroked = strokedLines.get(line);
+            if (!regenerate && stroked.version == line.getVersion()) {
+                continue;
+            }
+            if (!drawing) {
+                beginStroke();
+                drawing = true;
+            }
+            // Every segment but the last is finished, as only the last point of a line can move
+            int finished = Math.max(line.getPointCount() - 2, 0);
+            line.drawSegments(graphics, regenerate ? 0 : stroked.segments, finished);
+            stroked.version = line.getVersion();
+            stroked.generation = line.getGeneration();
+            stroked.segments = finished;
+        }
+        if (drawing) {
+            graphics.endDraw();
+        }
+    }
+
+    /**
+     * Draws the ink onto the screen.
+     *
+     * @param p The App instance used for drawing.
+     */
+    public void draw(App p) {
+        if (graphics != null) {
+            p.image(graphics, 0, 0);
+        }
+    }
+
+    /**
+     * Draws the last segment of each line, which is not on the image, onto the screen.
+     *
+     * @param p     The App instance used for drawing.
+     * @param lines The player-drawn lines.
+     */
+    public void drawTails(App p, List<PlayerDrawnLine> lines) {
+        p.pushStyle();
+        p.stroke(0);  // Set the line color to black
+        p.strokeWeight(PlayerDrawnLine.LINE_THICKNESS);
+        for (int l = 0; l < lines.size(); l++) {
+            PlayerDrawnLine line = lines.get(l);
+            line.drawSegments(p.g, line.getPointCount() - 2, line.getPointCount() - 1);
+        }
+        p.popStyle();
+    }
+
+    private void beginStroke() {
+        graphics.beginDraw();
+        graphics.stroke(0);  // Set the line color to black
+        graphics.strokeWeight(PlayerDrawnLine.LINE_THICKNESS);
+    }
+}
@@ -2,8 +2,11 @@ package inkball;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import processing.data.JSONArray;
 import processing.data.JSONObject;
+import processing.core.PGraphics;
 import processing.core.PImage;
 
 /**
@@ -14,18 +17,69 @@ import processing.core.PImage;
  */
 public class Level {
     /** Score increase values for each ball color */
-    int[] scoreIncreaseArray = new int[5];
-    int[] scoreDecreaseArray = new int[5];
-    private List<Ball> balls;
+    int[] scoreIncreaseArray = new int[BallColor.COUNT];
+    int[] scoreDecreaseArray = new int[BallColor.COUNT];
+    /** Whether each hole accepts each ball and the resulting change in score, with the modifiers applied */
+    CaptureMatrix captureMatrix;
+    /** The balls in play, with their simulation state kept in parallel arrays */
+    private BallStore balls;
+    /** Static wall tiles loaded from the layout */
+    TileMap tileMap;
+    /** Signed distance field of the wall tiles, or null when balls are tested against each wall rectangle */
+    DistanceField distanceField;
+    /** Walls added individually rather than loaded from the layout */
     private List<Wall> walls;
+    /** View over both the tile map walls and the individually added walls */
+    private List<Wall> wallView;
     private List<Spawner> spawners;
     private List<Hole> holes;
     List<AccelerateTile> accelerationTiles;
     private ConfigReader configReader;
 
+    /** Broad phase grid mapping each cell to the walls inside it */
+    SpatialGrid<Wall> wallGrid;
+    /** Number of walls the grid was built from, used to detect walls added after loading */
+    private int wallGridSize = -1;
+    /** Maps each cell to the holes whose attraction radius overlaps it */
+    SpatialGrid<Hole> holeGrid;
+    /** Number of holes the grid was built from, used to detect holes added after loading */
+    private int holeGridSize = -1;
+    /** Acceleration tiles compiled into the change in velocity they apply in each cell */
+    ForceField forceField;
+    /** Scratch space and deferred events for each worker stepping the balls */
+    private StepBuffer[] stepBuffers = {new StepBuffer()};
+    /** Recent contacts between balls and walls, acceleration tiles and lines */
+    final ContactCache contacts = new ContactCache();
+    /** Gameplay events raised by the balls during the current update */
+    final GameEvents events = new GameEvents();
+    /** Broad phase and resolution of collisions between balls */
+    final SweepAndPrune ballCollisions = new SweepAndPrune();
+    /** Temporary store used to move balls that are not in any level */
+    private final BallStore looseBalls = new BallStore(1);
+
+    /** Maximum number of bounces resolved for a single ball in one update */
+    static final int MAX_SWEEP_ITERATIONS = 3;
+    /** Distance a ball is kept from a surface after a swept hit */
+    static final float CONTACT_SKIN = 0.5f;
+    /** Fewest balls given to each worker when the update runs in parallel */
+    static final int MIN_BALLS_PER_WORKER = 512;
+    /** Seconds between time bonus points and yellow tile moves (2 frames at 30 FPS) */
+    static final float BONUS_INTERVAL = 2f / App.FPS;
+
     boolean isLevelEnded = false;
     int timeBonusRemaining = 0;
     private PImage defaultTileImage;
+    /** Offscreen image of the tiles, walls, holes, spawners and acceleration tiles, or null until first drawn */
+    PGraphics staticLayer;
+    /** Tile map and list sizes the static layer was drawn from, used to detect changes to the layout */
+    private TileMap staticLayerMap;
+    private int staticLayerMapVersion;
+    private int staticLayerWalls = -1;
+    private int staticLayerHoles;
+    private int staticLayerSpawners;
+    private int staticLayerTiles;
+    /** Number of times the static layer has been drawn, so that a copy of it can tell when it is out of date */
+    private int staticLayerVersion;
     YellowTile yellowTileTopLeft;
     YellowTile yellowTileBottomRight;
 
@@ -38,29 +92,34 @@ public class Level {
      */
     public Level(int levelIndex, ConfigReader configReader, App p) {
 
-        balls = new ArrayList<>();
+        balls = new BallStore(16, p.fixedPointPhysics);
         walls = new ArrayList<>();
         spawners = new ArrayList<>();
         holes = new ArrayList<>();
         accelerationTiles = new ArrayList<>();
+        tileMap = new TileMap(0, App.TOPBAR, App.BOARD_WIDTH, (App.HEIGHT - App.TOPBAR) / App.CELLSIZE, App.CELLSIZE);
+        wallView = new WallList();
+        wallGrid = new SpatialGrid<>(0, App.TOPBAR, App.BOARD_WIDTH, (App.HEIGHT - App.TOPBAR) / App.CELLSIZE, App.CELLSIZE);
+        holeGrid = new SpatialGrid<>(0, App.TOPBAR, App.BOARD_WIDTH, (App.HEIGHT - App.TOPBAR) / App.CELLSIZE, App.CELLSIZE);
+        forceField = new ForceField(0, App.TOPBAR, App.BOARD_WIDTH, (App.HEIGHT - App.TOPBAR) / App.CELLSIZE, App.CELLSIZE);
 
         // Load images directly in Level class
-        defaultTileImage = p.loadImage("inkball/tile.png");
+        defaultTileImage = SpriteCache.get(p, "inkball/tile.png");
 
         // Retrieve score modifiers from the ConfigReader
         double scoreIncreaseModifier = configReader.getScoreIncreaseModifier(levelIndex);
         double scoreDecreaseModifier = configReader.getScoreDecreaseModifier(levelIndex);
 
         // Populate the score arrays for each color using ConfigReader
-        for (int i = 0; i < 5; i++) {
-            String color = ColorUtils.numberToColor(i);
-            int baseIncreaseValue = configReader.getScoreIncrease(color);
-            int baseDecreaseValue = configReader.getScoreDecrease(color);
+        for (BallColor color : BallColor.values()) {
+            int baseIncreaseValue = configReader.getScoreIncrease(color.getConfigName());
+            int baseDecreaseValue = configReader.getScoreDecrease(color.getConfigName());
 
             // Apply score modifiers to base values
-            scoreIncreaseArray[i] = (int) (baseIncreaseValue * scoreIncreaseModifier);
-            scoreDecreaseArray[i] = (int) (baseDecreaseValue * scoreDecreaseModifier);
+            scoreIncreaseArray[color.ordinal()] = (int) (baseIncreaseValue * scoreIncreaseModifier);
+            scoreDecreaseArray[color.ordinal()] = (int) (baseDecreaseValue * scoreDecreaseModifier);
         }
+        captureMatrix = new CaptureMatrix(scoreIncreaseArray, scoreDecreaseArray);
     }
 
     /**
@@ -93,8 +152,17 @@ public class Level {
     public List<Ball> getBalls() {
         return balls;
     }
+    /**
+     * Returns all walls in the level. Walls loaded from the layout come first, as read-only
+     * views of the tile map: each access creates a new view, moving one throws an
+     * {@link UnsupportedOperationException}, and they cannot be inserted or removed by index.
+     * They are changed through the tile map instead. Walls added to this list are kept
+     * separately, collide individually and can be modified or removed.
+     *
+     * @return A list of every wall in the level.
+     */
     public List<Wall> getWalls() {
-        return walls;
+        return wallView;
     }
     public List<Spawner> getSpawners() {
         return spawners;
@@ -118,7 +186,18 @@ public class Level {
      * @param ball The ball to be removed.
      */
     public void removeBall(Ball ball) {
-        balls.remove(ball);
+        if (ball.store == balls) {
+            balls.remove(ball.slot);
+        }
+    }
+
+    /**
+     * Removes a number of balls from the current level in a single pass over its balls.
+     *
+     * @param removed The balls to be removed.
+     */
+    public void removeBalls(List<Ball> removed) {
+        balls.removeAll(removed);
     }
 
     /**
@@ -130,6 +209,15 @@ public class Level {
     public void loadLevel(String layoutFile, App p) {
         String[] lines = p.loadStrings(layoutFile);  // Load the layout file as lines
 
+        // Size the tile map to fit the layout, but never smaller than the board
+        int cols = App.BOARD_WIDTH;
+        for (String line : lines) {
+            cols = Math.max(cols, line.length());
+        }
+        int rows = Math.max(lines.length, (App.HEIGHT - App.TOPBAR) / App.CELLSIZE);
+        tileMap = new TileMap(0, App.TOPBAR, cols, rows, App.CELLSIZE);
+        tileMap.loadImages(p);
+
         // Iterate over each line in the file (row by row)
         for (int row = 0; row < lines.length; row++) {
             String line = lines[row];
@@ -140,19 +228,13 @@ public class Level {
 
                 switch (entity) {
                     case 'X':  // Wall 0
-                        walls.add(new Wall(col * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR, 0, p));
+                        tileMap.setColor(col, row, 0);
                         break;
                     case '1':  // Wall 1
-                        walls.add(new Wall(col * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR, 1, p));
-                        break;
                     case '2':  // Wall 2
-                        walls.add(new Wall(col * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR, 2, p));
-                        break;
                     case '3':  // Wall 3
-                        walls.add(new Wall(col * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR, 3, p));
-                        break;
                     case '4':  // Wall 4
-                        walls.add(new Wall(col * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR, 4, p));
+                        tileMap.setColor(col, row, entity - '0');
                         break;
                     case 'S':  // Spawner
                         spawners.add(new Spawner(col * App.CELLSIZE, row * App.CELLSIZE + App.TOPBAR, -1, p));
@@ -192,44 +274,438 @@ public class Level {
                 }
             }
         }
+
+        // Index the individually added walls and holes by cell once the whole layout is known
+        wallGrid = new SpatialGrid<>(0, App.TOPBAR, cols, rows, App.CELLSIZE);
+        buildWallGrid();
+        holeGrid = new SpatialGrid<>(0, App.TOPBAR, cols, rows, App.CELLSIZE);
+        buildHoleGrid();
+        forceField = new ForceField(0, App.TOPBAR, cols, rows, App.CELLSIZE);
+        buildForceField();
+
+        // Bake the wall tiles into a distance field if it is selected over the per-wall checks
+        distanceField = p.distanceFieldCollisions ? new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL) : null;
+
+        // The layout has changed, so the static layer is drawn again on the next frame
+        invalidateStaticLayer();
     }
 
     /**
-     * Updates the positions of all balls and checks for collisions with walls and holes.
+     * Rebuilds the wall grid from the current list of walls.
+     */
+    void buildWallGrid() {
+        wallGrid.clear();
+        for (Wall wall : walls) {
+            wallGrid.insert(wall, wall.getX(), wall.getY(), wall.width, wall.height);
+        }
+        wallGridSize = walls.size();
+    }
+
+    /**
+     * Rebuilds the hole grid, so that each cell lists only the holes that can attract a ball
+     * whose center lies in it.
+     */
+    void buildHoleGrid() {
+        holeGrid.clear();
+        for (Hole hole : holes) {
+            holeGrid.insertCircle(hole, hole.getCenterX(), hole.getCenterY(), Hole.ATTRACTION_RADIUS);
+        }
+        holeGridSize = holes.size();
+    }
+
+    /**
+     * Rebuilds the force field from the current list of acceleration tiles.
+     */
+    void buildForceField() {
+        forceField.build(accelerationTiles);
+    }
+
+    /**
+     * Updates the positions of all balls and checks for collisions with walls, holes and
+     * other balls.
+     *
+     * <p>Each ball is first stepped on its own, changing only its own state, while everything
+     * shared between balls is recorded in a {@link StepBuffer}. The buffers are then applied in
+     * the order of the balls. When parallel physics is enabled, the balls are split into ranges
+     * that are stepped on the common {@link ForkJoinPool}; since the events are still applied in
+     * the same order, the result is exactly the same as stepping them on one thread.</p>
+     *
+     * <p>When batch integration is enabled, every ball is first moved in one pass by
+     * {@link BallKernels#integrate} and the step only resolves the overlaps the balls end up in,
+     * as the per-ball checks did before balls were swept along their paths. Nothing is swept in
+     * this mode, so a contact is only found once a ball ends a step overlapping an obstacle, and a
+     * ball that only crosses an obstacle's corner during the step passes it.</p>
      *
      * @param p The App object used for the game's main loop.
      */
     public void update(App p) {
-        // Iterate through the list of active balls
-        for (int i = 0; i < balls.size(); i++) {
+        // Walls may have been added through getWalls() since the grid was built
+        if (wallGridSize != walls.size()) {
+            buildWallGrid();
+        }
+        if (holeGridSize != holes.size()) {
+            buildHoleGrid();
+        }
+        if (!forceField.isBuiltFrom(accelerationTiles)) {
+            buildForceField();
+        }
+        // Merge any changed wall tiles before the balls are stepped, possibly in parallel
+        tileMap.ensureMerged();
+        if (distanceField != null && !distanceField.isBakedFrom(tileMap)) {
+            distanceField = new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL);
+        }
+
+        // Contacts whose cooldown has run out are tested again from this tick on
+        contacts.advance(p.tickCount);
+
+        // Move all the balls together, keeping their centers on the board
+        if (p.batchIntegration) {
+            int right = tileMap.getOriginX() + tileMap.getCols() * tileMap.getCellSize();
+            int bottom = tileMap.getOriginY() + tileMap.getRows() * tileMap.getCellSize();
+            BallKernels.integrate(balls, p, tileMap.getOriginX(), tileMap.getOriginY(), right, bottom);
+        }
+
+        int count = balls.size();
+        int workers = p.parallelPhysics ? Math.min(ForkJoinPool.getCommonPoolParallelism() + 1, count / MIN_BALLS_PER_WORKER) : 1;
+        if (workers > 1) {
+            if (stepBuffers.length < workers) {
+                int oldLength = stepBuffers.length;
+                stepBuffers = Arrays.copyOf(stepBuffers, workers);
+                for (int w = oldLength; w < workers; w++) {
+                    stepBuffers[w] = new StepBuffer();
+                }
+            }
+            ForkJoinPool.commonPool().invoke(new StepTask(0, workers, workers, count, p));
+        } else {
+            workers = 1;
+            stepBalls(0, count, stepBuffers[0], p);
+        }
+
+        // Apply what the balls did to shared state, in the order of the balls
+        for (int w = 0; w < workers; w++) {
+            stepBuffers[w].apply(this, p);
+        }
+        events.drain(this, p);
+
+        // Bounce balls off each other once they have all moved
+        ballCollisions.collide(balls);
+
+        // Check if the level should end (no active balls and no spawners)
+        if (balls.isEmpty() && spawners.isEmpty() && !isLevelEnded) {
+            endLevel(p, "normal");
+        }
+    }
+
+    /**
+     * Applies a gameplay event raised while updating the balls.
+     *
+     * @param type   The kind of event.
+     * @param ball   The ball the event happened to.
+     * @param source The hole or line involved.
+     * @param p      The App object holding the score and the unspawned balls.
+     */
+    void applyEvent(GameEvents.Type type, Ball ball, Object source, App p) {
+        switch (type) {
+            case CAPTURE:
+                // The matrix holds the score gained for a capture, with the level's modifier applied
+                p.increaseScore(captureMatrix.getScoreDelta(ball.getColor(), ((Hole) source).getColor()));
+                removeBall(ball);
+                break;
+            case MISS:
+                // A ball in a wrong hole has a negative score change
+                p.increaseScore(captureMatrix.getScoreDelta(ball.getColor(), ((Hole) source).getColor()));
+                // If the unspawned queue is empty, the ball is immediately spawned again
+                if (p.unspawnedBalls.isEmpty()) {
+                    events.add(GameEvents.Type.SPAWN, ball, source);
+                } else {
+                    removeBall(ball);
+                    p.addUnspawnedBall(ball);
+                }
+                break;
+            case BOUNCE:
+                // Lines disappear once a ball bounces off them
+                ((PlayerDrawnLine) source).clear();
+                break;
+            case SPAWN:
+                p.spawnNewBallImmediate(ball);
+                break;
+        }
+    }
+
+    /**
+     * Steps a range of balls: moves them and checks them against the walls, holes and
+     * acceleration tiles. Changes to anything but the balls themselves are recorded in the
+     * buffer, so separate ranges can be stepped at the same time.
+     *
+     * @param from   The slot of the first ball to step.
+     * @param to     The slot after the last ball to step.
+     * @param buffer The buffer to record events in.
+     * @param p      The App object used for the game's main loop.
+     */
+    void stepBalls(int from, int to, StepBuffer buffer, App p) {
+        int tick = p.tickCount;
+        int accelerationCooldown = p.secondsToTicks(AccelerateTile.BUFFER_THRESHOLD / (float) App.FPS);
+        int wallCooldown = p.secondsToTicks(Wall.BUFFER_THRESHOLD / (float) App.FPS);
+        List<Wall> nearbyWalls = buffer.nearbyWalls;
+        for (int i = from; i < to; i++) {
             Ball ball = balls.get(i);
-            ball.updatePosition();
+            if (!p.batchIntegration) {
+                moveBall(balls, i, p, buffer);
+            }
 
-            // Check for collisions between the ball and walls
-            for (Wall wall : walls) {
-                wall.checkCollision(ball, p);
+            // Check for collisions between the ball and the wall tiles and walls in the cells it overlaps.
+            // Fixed-point balls keep to the tile map, whose checks are exact on their integers.
+            // The wall tiles share one contact, keyed by the tile map, with the same cooldown as walls.
+            if (!contacts.isCoolingDown(ball, tileMap, tick)) {
+                boolean hitTiles = distanceField != null && !ball.isFixedPoint()
+                        ? distanceField.checkCollision(ball, p) : tileMap.checkCollision(ball, p);
+                if (hitTiles) {
+                    buffer.addContact(ball, tileMap, tick + wallCooldown);
+                }
+            }
+            nearbyWalls.clear();
+            wallGrid.query(ball.getX(), ball.getY(), ball.getRadius(), nearbyWalls);
+            for (int w = 0; w < nearbyWalls.size(); w++) {
+                Wall wall = nearbyWalls.get(w);
+                if (!contacts.isCoolingDown(ball, wall, tick) && wall.checkCollision(ball, p)) {
+                    buffer.addContact(ball, wall, tick + wallCooldown);
+                }
             }
 
-            // Check for attraction between the ball and holes
-            for (Hole hole : holes) {
-                hole.attractBall(ball, this, p);
+            // Check for attraction between the ball and the holes that can reach its cell. Balls
+            // leaving a hole's range are released by Hole.updateAttractedBalls.
+            List<Hole> nearbyHoles = holeGrid.getCellAt(ball.getX(), ball.getY());
+            for (int h = 0; h < nearbyHoles.size(); h++) {
+                Hole hole = nearbyHoles.get(h);
+                float distanceToHole = hole.applyPull(ball, p);
+                buffer.addHoleEvent(ball, hole, distanceToHole);
 
-                // If the ball is no longer active (captured or deactivated)
-                if (!ball.getIsActive()) {
-                    balls.remove(i);
+                if (Hole.isCaptured(distanceToHole)) {
                     break; // No need to check further holes for this ball
                 }
             }
 
-            // Check for collisions with acceleration tiles
-            for (AccelerateTile tile : accelerationTiles) {
-                tile.checkCollision(ball);  // Accelerates the ball if it's on the tile
+            // Accelerate the ball by the tiles in the cells around it
+            forceField.accelerate(ball, contacts, tick, accelerationCooldown, buffer);
+        }
+    }
+
+    /**
+     * Steps the balls of a group of workers, splitting the group in half until each worker has
+     * its own range of balls.
+     */
+    private class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstWorker;
+        private final int workerCount;
+        private final int totalWorkers;
+        private final int ballCount;
+        private final App p;
+
+        StepTask(int firstWorker, int workerCount, int totalWorkers, int ballCount, App p) {
+            this.firstWorker = firstWorker;
+            this.workerCount = workerCount;
+            this.totalWorkers = totalWorkers;
+            this.ballCount = ballCount;
+            this.p = p;
+        }
+
+        @Override
+        protected void compute() {
+            if (workerCount == 1) {
+                int from = (int) ((long) ballCount * firstWorker / totalWorkers);
+                int to = (int) ((long) ballCount * (firstWorker + 1) / totalWorkers);
+                stepBalls(from, to, stepBuffers[firstWorker], p);
+                return;
             }
+            int half = workerCount / 2;
+            invokeAll(new StepTask(firstWorker, half, totalWorkers, ballCount, p),
+                    new StepTask(firstWorker + half, workerCount - half, totalWorkers, ballCount, p));
         }
+    }
 
-        // Check if the level should end (no active balls and no spawners)
-        if (balls.isEmpty() && spawners.isEmpty() && !isLevelEnded) {
-            endLevel(p, "normal");
+    /**
+     * Moves a ball by its velocity using continuous collision detection. The first wall,
+     * wall tile or player-drawn line touched along the way stops the ball at the point of
+     * contact and reflects its velocity, and the rest of the movement continues in the new
+     * direction. This prevents fast balls from passing through thin lines.
+     *
+     * @param ball The ball to move.
+     * @param p    The App object holding the player-drawn lines.
+     */
+    void moveBall(Ball ball, App p) {
+        if (ball.store != null) {
+            moveBall(ball.store, ball.slot, p);
+            return;
+        }
+        looseBalls.add(ball);
+        moveBall(looseBalls, 0, p);
+        looseBalls.clear();
+    }
+
+    /**
+     * Moves the ball in a slot of a ball store, working directly on the store's arrays.
+     *
+     * @param store The store holding the ball.
+     * @param slot  The slot of the ball in the store.
+     * @param p     The App object holding the player-drawn lines.
+     */
+    void moveBall(BallStore store, int slot, App p) {
+        StepBuffer buffer = stepBuffers[0];
+        moveBall(store, slot, p, buffer);
+        buffer.apply(this, p);
+        events.drain(this, p);
+    }
+
+    /**
+     * Moves the ball in a slot of a ball store, recording the lines it bounces off in a buffer
+     * instead of removing them straight away.
+     *
+     * @param store  The store holding the ball.
+     * @param slot   The slot of the ball in the store.
+     * @param p      The App object holding the player-drawn lines.
+     * @param buffer The buffer to record bounced lines in.
+     */
+    void moveBall(BallStore store, int slot, App p, StepBuffer buffer) {
+        if (store.fixedPoint) {
+            moveBallFixed(store, slot, p, buffer);
+            return;
+        }
+        SweepHit sweepHit = buffer.sweepHit;
+        List<Wall> nearbyWalls = buffer.nearbyWalls;
+        // Lines this ball bounces off are recorded from here on
+        int firstBouncedLine = buffer.bouncedLineCount();
+        float[] xs = store.x;
+        float[] ys = store.y;
+        float[] vxs = store.vx;
+        float[] vys = store.vy;
+        float timeScale = p.getTimeScale();
+        float radius = store.radius[slot];
+        float remaining = 1;
+
+        for (int iteration = 0; iteration < MAX_SWEEP_ITERATIONS && remaining > 0; iteration++) {
+            float x = xs[slot];
+            float y = ys[slot];
+            float dx = vxs[slot] * timeScale * remaining;
+            float dy = vys[slot] * timeScale * remaining;
+
+            // Find the first obstacle along the ball's path
+            sweepHit.reset();
+            tileMap.sweep(x, y, dx, dy, radius, sweepHit);
+
+            nearbyWalls.clear();
+            wallGrid.queryRect(Math.min(x, x + dx) - radius, Math.min(y, y + dy) - radius,
+                    Math.max(x, x + dx) + radius, Math.max(y, y + dy) + radius, nearbyWalls);
+            for (int w = 0; w < nearbyWalls.size(); w++) {
+                Wall wall = nearbyWalls.get(w);
+                float time = SweptCollision.sweepCircleAabb(x, y, dx, dy, radius, wall.getX(), wall.getY(),
+                        wall.getX() + wall.width, wall.getY() + wall.height, sweepHit.candidateNormal);
+                if (sweepHit.offer(time)) {
+                    sweepHit.color = wall.getColor();
+                }
+            }
+
+            for (int l = 0; l < p.playerLines.size(); l++) {
+                PlayerDrawnLine line = p.playerLines.get(l);
+                // A line the ball has already bounced off is gone for the rest of its move
+                if (!buffer.hasBouncedLine(line, firstBouncedLine)) {
+                    line.sweep(x, y, dx, dy, radius, sweepHit);
+                }
+            }
+
+            if (!sweepHit.isHit()) {
+                // Positions keep their sub-pixel part, so slow balls still move at high physics rates
+                xs[slot] = x + dx;
+                ys[slot] = y + dy;
+                return;
+            }
+
+            // Move the ball to the point of contact, keeping it just off the surface
+            float normalX = sweepHit.normalX;
+            float normalY = sweepHit.normalY;
+            xs[slot] = x + dx * sweepHit.time + normalX * CONTACT_SKIN;
+            ys[slot] = y + dy * sweepHit.time + normalY * CONTACT_SKIN;
+
+            // Reflect the ball's velocity about the contact normal
+            float dot = vxs[slot] * normalX + vys[slot] * normalY;
+            vxs[slot] -= 2 * dot * normalX;
+            vys[slot] -= 2 * dot * normalY;
+
+            if (sweepHit.line != null) {
+                // Lines disappear once a ball bounces off them
+                buffer.addBouncedLine(store.get(slot), sweepHit.line);
+            } else if (sweepHit.color > 0) {
+                store.get(slot).setColor(sweepHit.color, p);
+            }
+
+            remaining *= 1 - sweepHit.time;
+        }
+    }
+
+    /**
+     * Moves a ball held in fixed point by its velocity. The move is split into sub-steps no
+     * longer than half the ball's radius and overlapping wall tiles are resolved after each
+     * one, so fast balls cannot pass through tiles. The move is first swept against the
+     * player-drawn lines and cut short at the first one it touches, so balls cannot pass
+     * through lines either. Positions and velocities stay 16.16 integers; only the line sweep
+     * is worked out in floats, which Java evaluates the same way on every platform, so the
+     * result is the same on every run.
+     *
+     * @param store  The fixed-point store holding the ball.
+     * @param slot   The slot of the ball in the store.
+     * @param p      The App object holding the player-drawn lines and used for updating the ball's color.
+     * @param buffer The buffer to record bounced lines in.
+     */
+    void moveBallFixed(BallStore store, int slot, App p, StepBuffer buffer) {
+        int timeScale = p.getFixedTimeScale();
+        int dx = FixedPoint.mul(store.fvx[slot], timeScale);
+        int dy = FixedPoint.mul(store.fvy[slot], timeScale);
+        int startX = store.fx[slot];
+        int startY = store.fy[slot];
+        Ball ball = store.get(slot);
+
+        // Find the first line along the ball's path and stop the move where it touches it
+        SweepHit sweepHit = buffer.sweepHit;
+        sweepHit.reset();
+        float x = FixedPoint.toFloat(startX);
+        float y = FixedPoint.toFloat(startY);
+        float sweepX = FixedPoint.toFloat(dx);
+        float sweepY = FixedPoint.toFloat(dy);
+        float radius = FixedPoint.toFloat(store.fradius[slot]);
+        for (int l = 0; l < p.playerLines.size(); l++) {
+            p.playerLines.get(l).sweep(x, y, sweepX, sweepY, radius, sweepHit);
+        }
+        if (sweepHit.isHit()) {
+            int time = FixedPoint.fromFloat(sweepHit.time);
+            dx = FixedPoint.mul(dx, time);
+            dy = FixedPoint.mul(dy, time);
+        }
+
+        int maxStep = Math.max(store.fradius[slot] / 2, FixedPoint.ONE);
+        int steps = 1 + Math.max(Math.abs(dx), Math.abs(dy)) / maxStep;
+        for (int step = 1; step <= steps; step++) {
+            store.fx[slot] = startX + (int) ((long) dx * step / steps);
+            store.fy[slot] = startY + (int) ((long) dy * step / steps);
+
+            // A bounce reverses the velocity, so the rest of this move is dropped
+            if (tileMap.checkCollision(ball, p)) {
+                return;
+            }
+        }
+
+        if (sweepHit.isHit()) {
+            // Keep the ball just off the line and reflect its velocity about the contact normal
+            int normalX = FixedPoint.fromFloat(sweepHit.normalX);
+            int normalY = FixedPoint.fromFloat(sweepHit.normalY);
+            store.fx[slot] += FixedPoint.fromFloat(sweepHit.normalX * CONTACT_SKIN);
+            store.fy[slot] += FixedPoint.fromFloat(sweepHit.normalY * CONTACT_SKIN);
+            int dot = FixedPoint.mul(store.fvx[slot], normalX) + FixedPoint.mul(store.fvy[slot], normalY);
+            store.fvx[slot] -= 2 * FixedPoint.mul(dot, normalX);
+            store.fvy[slot] -= 2 * FixedPoint.mul(dot, normalY);
+
+            // Lines disappear once a ball bounces off them
+            buffer.addBouncedLine(ball, sweepHit.line);
         }
     }
 
@@ -263,47 +739,138 @@ public class Level {
 
     /**
      * Draws all entities in the current level, including walls, spawners, holes, and balls.
+     * Everything that does not move is drawn from the static layer in a single image, which is
+     * only drawn again when the layout changes; balls and yellow tiles are drawn on top of it.
+     * They are added to the App's sprite batch, which is drawn here unless the App has started
+     * it to draw them together with its own sprites.
      *
      * @param p The main game application instance used to draw entities.
      */
     public void draw(App p) {
-        drawDefaultTiles(p);
+        p.image(getStaticLayer(p), 0, App.TOPBAR);
 
-        for (Wall wall : walls) {
-            wall.draw(p);
+        SpriteBatch batch = p.spriteBatch;
+        boolean ownsBatch = !batch.isDrawing();
+        if (ownsBatch) {
+            batch.begin();
         }
-
-        for (Hole hole : holes) {
-            hole.draw(p);
+        queueSprites(p, batch);
+        if (ownsBatch) {
+            batch.flush(p);
         }
+    }
 
-        for (Spawner spawner : spawners) {
-            spawner.draw(p);
+    /**
+     * Adds the balls, and the yellow tiles while the end of level animation runs, to a sprite
+     * batch.
+     *
+     * @param p     The main game application instance.
+     * @param batch The sprite batch to add the sprites to.
+     */
+    void queueSprites(App p, SpriteBatch batch) {
+        for (Ball ball : balls) {
+            ball.drawTo(batch);
         }
 
-        for (AccelerateTile tile : accelerationTiles) {
-            tile.draw(p);
+        // Draw yellow tile
+        if (isLevelEnded && !p.getIsPaused() && !p.isTimerFinished()) {
+            if (yellowTileTopLeft != null) {
+                yellowTileTopLeft.drawTo(batch);
+            }
+            if (yellowTileBottomRight != null) {
+                yellowTileBottomRight.drawTo(batch);
+            }
         }
+    }
 
-        for (Ball ball : balls) {
-            ball.draw(p);
+    /**
+     * Returns the static layer, drawing it first if the layout has changed since it was last drawn.
+     *
+     * @param p The main game application instance used to create and draw the layer.
+     * @return The static layer, covering the board below the top bar.
+     */
+    PGraphics getStaticLayer(App p) {
+        if (isStaticLayerStale()) {
+            renderStaticLayer(p);
         }
+        return staticLayer;
+    }
+
+    public int getStaticLayerVersion() { return staticLayerVersion; }
 
-        // Handle the remaining time and yellow tile animation
+    /**
+     * Advances the end of level animation by one physics step, converting the remaining
+     * time into score and moving the yellow tiles.
+     *
+     * @param p The main game application instance.
+     */
+    public void updateEndOfLevel(App p) {
         if (isLevelEnded && !p.getIsPaused() && !p.isTimerFinished()) {
             updateTimeBonus(p);
             moveYellowTiles(p);
         }
+    }
 
-        // Draw yellow tile
-        if (isLevelEnded && !p.getIsPaused() && !p.isTimerFinished()) {
-            if (yellowTileTopLeft != null) {
-                yellowTileTopLeft.draw(p);
-            }
-            if (yellowTileBottomRight != null) {
-                yellowTileBottomRight.draw(p);
-            }
+    /**
+     * Checks whether the static layer needs to be drawn again, because it has not been drawn yet
+     * or the tile map, walls, holes, spawners or acceleration tiles have changed since.
+     *
+     * @return True if the static layer is out of date, otherwise false.
+     */
+    boolean isStaticLayerStale() {
+        return staticLayer == null || staticLayerMap != tileMap || staticLayerMapVersion != tileMap.getVersion()
+                || staticLayerWalls != walls.size() || staticLayerHoles != holes.size()
+                || staticLayerSpawners != spawners.size() || staticLayerTiles != accelerationTiles.size();
+    }
+
+    /**
+     * Marks the static layer as out of date, so that it is drawn again on the next frame.
+     */
+    void invalidateStaticLayer() {
+        staticLayerWalls = -1;
+    }
+
+    /**
+     * Draws the default tiles, walls, holes, spawners and acceleration tiles into the static
+     * layer, creating it on first use. The layer covers the board below the top bar and is
+     * drawn in screen coordinates shifted up by the top bar.
+     *
+     * @param p The main game application instance used to create and draw the layer.
+     */
+    void renderStaticLayer(App p) {
+        if (staticLayer == null) {
+            staticLayer = p.createGraphics(App.WIDTH, App.HEIGHT - App.TOPBAR);
+        }
+        staticLayer.beginDraw();
+        staticLayer.clear();
+        staticLayer.translate(0, -App.TOPBAR);
+
+        drawDefaultTilesTo(staticLayer);
+        tileMap.drawTo(p, staticLayer);
+        for (Wall wall : walls) {
+            wall.drawTo(staticLayer);
+        }
+
+        for (Hole hole : holes) {
+            hole.drawTo(staticLayer);
         }
+
+        for (Spawner spawner : spawners) {
+            spawner.drawTo(staticLayer);
+        }
+
+        for (AccelerateTile tile : accelerationTiles) {
+            tile.drawTo(staticLayer);
+        }
+        staticLayer.endDraw();
+
+        staticLayerMap = tileMap;
+        staticLayerMapVersion = tileMap.getVersion();
+        staticLayerWalls = walls.size();
+        staticLayerHoles = holes.size();
+        staticLayerSpawners = spawners.size();
+        staticLayerTiles = accelerationTiles.size();
+        staticLayerVersion++;
     }
 
     /**
@@ -312,11 +879,20 @@ public class Level {
      * @param p The main game application instance used for drawing.
      */
     void drawDefaultTiles(App p) {
+        drawDefaultTilesTo(p.g);
+    }
+
+    /**
+     * Draws the default tiles for all positions (except the top bar) onto a graphics buffer.
+     *
+     * @param g The graphics buffer to draw on.
+     */
+    void drawDefaultTilesTo(PGraphics g) {
         for (int row = 0; row < (App.HEIGHT - App.TOPBAR) / App.CELLSIZE; row++) {
             for (int col = 0; col < App.BOARD_WIDTH; col++) {
                 int x = col * App.CELLSIZE;
                 int y = row * App.CELLSIZE + App.TOPBAR;
-                p.image(defaultTileImage, x, y, App.CELLSIZE, App.CELLSIZE);
+                g.image(defaultTileImage, x, y, App.CELLSIZE, App.CELLSIZE);
             }
         }
     }
@@ -328,8 +904,7 @@ public class Level {
      */
     void updateTimeBonus(App p) {
         if (timeBonusRemaining > 0) {
-            long currentTime = p.millis();
-            if (p.frameCount % 2 == 0) { // Every 2 frames (~0.067 seconds at 30 FPS)
+            if (p.isIntervalTick(BONUS_INTERVAL)) { // Every ~0.067 seconds
                 p.increaseScore(1);
                 timeBonusRemaining -= 1;
                 p.setRemainingTime(timeBonusRemaining);
@@ -351,7 +926,7 @@ public class Level {
      * @param p The main game application instance used for animation.
      */
     void moveYellowTiles(App p) {
-        if (p.frameCount % 2 == 0) { // Every 2 frames (~0.067 seconds at 30 FPS)
+        if (p.isIntervalTick(BONUS_INTERVAL)) { // Every ~0.067 seconds
             // Move the top-left yellow tile clockwise
             if (yellowTileTopLeft != null) {
                 yellowTileTopLeft.update(p);
@@ -362,4 +937,39 @@ public class Level {
             }
         }
     }
+
+    /**
+     * A list of all walls in the level. The walls of the tile map come first and are
+     * created as views on demand; walls added to the list are stored individually.
+     */
+    private class WallList extends AbstractList<Wall> {
+        @Override
+        public Wall get(int index) {
+            int tileWalls = tileMap.getWallCount();
+            return index < tileWalls ? tileMap.getWall(index) : walls.get(index - tileWalls);
+        }
+
+        @Override
+        public int size() {
+            return tileMap.getWallCount() + walls.size();
+        }
+
+        @Override
+        public void add(int index, Wall wall) {
+            walls.add(toWallIndex(index), wall);
+        }
+
+        @Override
+        public Wall remove(int index) {
+            return walls.remove(toWallIndex(index));
+        }
+
+        private int toWallIndex(int index) {
+            int wallIndex = index - tileMap.getWallCount();
+            if (wallIndex < 0) {
+                throw new UnsupportedOperationException("Walls loaded from the layout cannot be modified");
+            }
+            return wallIndex;
+        }
+    }
 }
@@ -1,49 +1,209 @@
 package inkball;
 
 import processing.core.PApplet;
+import processing.core.PGraphics;
 import processing.core.PVector;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Represents a line drawn by the player in the Inkball game.
  * Manages the points that define the line, handles drawing the line on the game screen,
- * and checks for collisions with balls.
+ * and checks for collisions with balls. The segments of the line are kept in a
+ * {@link SegmentIndex} so that collision and erase checks only look at nearby segments.
+ *
+ * <p>A line created with a tolerance simplifies itself as points arrive. Points closer than the
+ * tolerance to the previous one are dropped, and while every point received since the last kept
+ * corner stays within the tolerance of a straight segment, the end of that segment just follows
+ * the pointer instead of adding a point. This is a streaming form of the Ramer-Douglas-Peucker
+ * simplification: no received point ends up further than the tolerance from the line.</p>
+ *
+ * <p>Points are kept in a flat array of coordinates. The unit normal, length and bounding box of
+ * each segment are worked out once when its points are set, so collision checks only read them.</p>
  */
 public class PlayerDrawnLine {
-    /** Stores the points that make up the line */
-    List<PVector> points;
+    /** Coordinates of the points that make up the line, stored as x0, y0, x1, y1, ... */
+    private float[] coords = new float[INITIAL_CAPACITY * 2];
+    private int pointCount;
+    /** Number of times the points of the line have changed, used to tell when it needs drawing again */
+    private int version;
+    /** Number of times the line has been cleared, used to tell when its drawn ink must be erased */
+    private int generation;
+    /** Unit normal, length and bounding box of each segment, indexed by its first point */
+    private float[] segNormalX = new float[INITIAL_CAPACITY];
+    private float[] segNormalY = new float[INITIAL_CAPACITY];
+    private float[] segLength = new float[INITIAL_CAPACITY];
+    private float[] segMinX = new float[INITIAL_CAPACITY];
+    private float[] segMinY = new float[INITIAL_CAPACITY];
+    private float[] segMaxX = new float[INITIAL_CAPACITY];
+    private float[] segMaxY = new float[INITIAL_CAPACITY];
+    /** Spatial index over the segments of the line */
+    private final SegmentIndex segmentIndex;
     static final float LINE_THICKNESS = 10;
     public static final int DELETE_THRESHOLD = 15;
-    /** Buffer to avoid continuous collision detection */
-    private int collisionBuffer;
-    /** Number of frames to wait before checking collisions again */
+    /** Frames at {@link App#FPS} during which a ball that hit the line is not tested against it again */
     public static final int BUFFER_THRESHOLD = 5;
+    /** Default distance in pixels by which a simplified line may differ from the drawn points */
+    public static final float DEFAULT_TOLERANCE = 1.5f;
+    /** Most points one segment may stand for, which bounds the work per added point */
+    static final int MAX_PENDING = 64;
+    /** Cosine of the sharpest turn that is smoothed over rather than kept as a corner */
+    static final float MAX_TURN_COS = 0.5f;
+    /** Number of points room is made for when a line is created */
+    static final int INITIAL_CAPACITY = 32;
+
+    /** Largest distance between a received point and the line, or 0 to keep every point */
+    private final float tolerance;
+    /** Points received since the second to last point, which the last segment stands for */
+    private float[] pendingX = new float[MAX_PENDING];
+    private float[] pendingY = new float[MAX_PENDING];
+    private int pendingCount;
 
     /**
-     * Constructs a PlayerDrawnLine object.
+     * Constructs a PlayerDrawnLine object that keeps every point added to it.
      */
     public PlayerDrawnLine() {
-        points = new ArrayList<>();
+        this(0);
     }
 
     /**
-     * Adds a new point to the line.
+     * Constructs a PlayerDrawnLine object that simplifies itself as points are added.
+     *
+     * @param tolerance The largest distance in pixels between an added point and the line,
+     *                  or 0 to keep every point.
+     */
+    public PlayerDrawnLine(float tolerance) {
+        segmentIndex = new SegmentIndex();
+        this.tolerance = Math.max(tolerance, 0);
+    }
+
+    /**
+     * Adds a new point to the line. If the line has a tolerance, the point may instead be
+     * dropped or replace the end of the last segment.
      *
      * @param x The x-coordinate of the point.
      * @param y The y-coordinate of the point.
      */
     public void addPoint(float x, float y) {
-        points.add(new PVector(x, y));
+        if (tolerance > 0 && pendingCount > 0 && pendingCount < MAX_PENDING) {
+            // Points that barely moved from the end of the line are only remembered, so that
+            // the last segment stays close to them if it is stretched later
+            if (dist(x, y, getX(pointCount - 1), getY(pointCount - 1)) < tolerance) {
+                addPending(x, y);
+                return;
+            }
+            if (pointCount > 1 && canExtendLastSegment(x, y)) {
+                coords[2 * (pointCount - 1)] = x;
+                coords[2 * (pointCount - 1) + 1] = y;
+                updateSegment(pointCount - 2);
+                addPending(x, y);
+                version++;
+                return;
+            }
+        }
+        if (pointCount == segLength.length) {
+            grow();
+        }
+        coords[2 * pointCount] = x;
+        coords[2 * pointCount + 1] = y;
+        pointCount++;
+        pendingCount = 0;
+        addPending(x, y);
+        version++;
+
+        // Set up the new segment between the previous point and this one
+        if (pointCount > 1) {
+            updateSegment(pointCount - 2);
+        }
+    }
+
+    /**
+     * Works out the cached geometry of a segment from its endpoints and adds it to the index.
+     *
+     * @param i The index of the first point of the segment.
+     */
+    private void updateSegment(int i) {
+        float x1 = coords[2 * i];
+        float y1 = coords[2 * i + 1];
+        float x2 = coords[2 * i + 2];
+        float y2 = coords[2 * i + 3];
+
+        float length = dist(x1, y1, x2, y2);
+        segLength[i] = length;
+        // A segment without length has no direction, so it keeps a zero normal
+        segNormalX[i] = length != 0 ? -(y2 - y1) / length : 0;
+        segNormalY[i] = length != 0 ? (x2 - x1) / length : 0;
+        segMinX[i] = Math.min(x1, x2);
+        segMinY[i] = Math.min(y1, y2);
+        segMaxX[i] = Math.max(x1, x2);
+        segMaxY[i] = Math.max(y1, y2);
+
+        segmentIndex.add(i, x1, y1, x2, y2);
+    }
+
+    /**
+     * Doubles the number of points and segments the line has room for.
+     */
+    private void grow() {
+        int capacity = segLength.length * 2;
+        coords = Arrays.copyOf(coords, capacity * 2);
+        segNormalX = Arrays.copyOf(segNormalX, capacity);
+        segNormalY = Arrays.copyOf(segNormalY, capacity);
+        segLength = Arrays.copyOf(segLength, capacity);
+        segMinX = Arrays.copyOf(segMinX, capacity);
+        segMinY = Arrays.copyOf(segMinY, capacity);
+        segMaxX = Arrays.copyOf(segMaxX, capacity);
+        segMaxY = Arrays.copyOf(segMaxY, capacity);
+    }
+
+    /**
+     * Checks whether the last segment can be stretched to end at a new point, which is the case
+     * when the line does not turn sharply there and every point the segment stands for stays
+     * within the tolerance of the stretched segment.
+     */
+    private boolean canExtendLastSegment(float x, float y) {
+        int segment = pointCount - 2;
+        float anchorX = getX(segment);
+        float anchorY = getY(segment);
+        float lastX = getX(segment + 1);
+        float lastY = getY(segment + 1);
+
+        // Keep sharp corners once the last segment is long enough to have a direction
+        float segX = lastX - anchorX;
+        float segY = lastY - anchorY;
+        float stepX = x - lastX;
+        float stepY = y - lastY;
+        float length = segLength[segment];
+        if (length >= tolerance
+                && segX * stepX + segY * stepY < MAX_TURN_COS * length * dist(x, y, lastX, lastY)) {
+            return false;
+        }
+
+        for (int i = 0; i < pendingCount; i++) {
+            if (distToSegment(pendingX[i], pendingY[i], anchorX, anchorY, x, y) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addPending(float x, float y) {
+        pendingX[pendingCount] = x;
+        pendingY[pendingCount] = y;
+        pendingCount++;
     }
 
     /**
      * Clears the points in the line, effectively removing it.
      */
     public void clear() {
-        points.clear();
+        pointCount = 0;
+        segmentIndex.clear();
+        pendingCount = 0;
+        version++;
+        generation++;
     }
 
     /**
@@ -54,75 +214,116 @@ public class PlayerDrawnLine {
     public void draw(App p) {
         p.pushStyle(); // Save current drawing style
 
-        if (points.size() > 1) {
+        if (pointCount > 1) {
             p.stroke(0);  // Set the line color to black
             p.strokeWeight(LINE_THICKNESS);  // Set the thickness of the line
-            for (int i = 0; i < points.size() - 1; i++) {
-                PVector p1 = points.get(i);
-                PVector p2 = points.get(i + 1);
-                p.line(p1.x, p1.y, p2.x, p2.y);  // Draw the line between consecutive points
+            for (int i = 0; i < pointCount - 1; i++) {
+                // Draw the line between consecutive points
+                p.line(coords[2 * i], coords[2 * i + 1], coords[2 * i + 2], coords[2 * i + 3]);
             }
         }
 
         p.popStyle(); // Restore drawing style
     }
 
+    /**
+     * Strokes a range of segments of the line onto a graphics buffer, such as the ink layer. The
+     * stroke style is left to the caller, so that it is set once for all lines.
+     *
+     * @param g    The graphics buffer to draw on.
+     * @param from The index of the first point of the first segment to draw.
+     * @param to   The index of the first point of the segment after the last one to draw.
+     */
+    public void drawSegments(PGraphics g, int from, int to) {
+        for (int i = Math.max(from, 0); i < Math.min(to, pointCount - 1); i++) {
+            g.line(coords[2 * i], coords[2 * i + 1], coords[2 * i + 2], coords[2 * i + 3]);
+        }
+    }
+
     /**
      * Checks for collisions between the ball and the line.
      * If a collision is detected, the ball's velocity is updated, and the line is cleared.
      *
      * @param ball The ball object to check for collision.
+     * @return True if a collision was detected, otherwise false.
      */
-    public void checkCollision(Ball ball) {
-        // Increment the collision buffer to avoid constant collision checks
-        collisionBuffer++;
-
-        // Only check for collisions after the buffer threshold has been reached
-        if (collisionBuffer >= BUFFER_THRESHOLD) {
-            for (int i = 0; i < points.size() - 1; i++) {
-                PVector p1 = points.get(i);
-                PVector p2 = points.get(i + 1);
-
-                // Calculate the future position of the ball based on its current velocity
-                PVector ballPosition = new PVector(ball.getX() + ball.getXVelocity(), ball.getY() + ball.getYVelocity());
-
-                // Calculate the distances from the ball to both ends of the line segment
-                float distanceToP1 = PVector.dist(p1, ballPosition);
-                float distanceToP2 = PVector.dist(p2, ballPosition);
-                float lineLength = PVector.dist(p1, p2);
-
-                // Check if the ball is close enough to the line to detect a collision
-                if (distanceToP1 + distanceToP2 < lineLength + ball.getRadius()) {
-                    // Collision detected, calculate the reflection vector
-                    PVector lineVector = PVector.sub(p2, p1);
-                    PVector normal1 = new PVector(-lineVector.y, lineVector.x);  // Perpendicular normal vector 1
-                    PVector normal2 = new PVector(lineVector.y, -lineVector.x);  // Perpendicular normal vector 2
-
-                    // Normalize the normal vectors
-                    normal1.normalize();
-                    normal2.normalize();
-
-                    // Choose the normal vector that is closer to the ball
-                    PVector midpoint = PVector.add(p1, p2).div(2);
-                    PVector normal = PVector.dist(midpoint.copy().add(normal1), ballPosition) <
-                            PVector.dist(midpoint.copy().add(normal2), ballPosition) ? normal1 : normal2;
-
-                    // Calculate the new velocity using the reflection formula
-                    PVector velocity = new PVector(ball.getXVelocity(), ball.getYVelocity());
-                    float dotProduct = velocity.dot(normal);
-                    PVector newVelocity = PVector.sub(velocity, PVector.mult(normal, 2 * dotProduct));
-
-                    // Update the ball's velocity
-                    ball.setXVelocity(newVelocity.x);
-                    ball.setYVelocity(newVelocity.y);
-
-                    // Clear the line after the collision
-                    clear();
-
-                    // Reset the collision buffer after detecting a collision
-                    collisionBuffer = 0;
-                    break;
+    public boolean checkCollision(Ball ball) {
+        // Calculate the future position of the ball based on its current velocity
+        float futureX = ball.getX() + ball.getXVelocity();
+        float futureY = ball.getY() + ball.getYVelocity();
+
+        // A ball can only satisfy the collision test below within this distance of a segment
+        float radius = ball.getRadius();
+        float reach = (float) Math.sqrt(segmentIndex.getMaxSegmentLength() * radius / 2 + radius * radius / 4);
+        int candidateCount = segmentIndex.query(futureX - reach, futureY - reach, futureX + reach, futureY + reach);
+        int[] candidates = segmentIndex.getResults();
+
+        for (int c = 0; c < candidateCount; c++) {
+            int i = candidates[c];
+            // Skip segments whose bounding box is out of reach before measuring any distance
+            if (futureX < segMinX[i] - reach || futureX > segMaxX[i] + reach
+                    || futureY < segMinY[i] - reach || futureY > segMaxY[i] + reach) {
+                continue;
+            }
+            float x1 = coords[2 * i];
+            float y1 = coords[2 * i + 1];
+
+            // Calculate the distances from the ball to both ends of the line segment
+            float distanceToP1 = dist(x1, y1, futureX, futureY);
+            float distanceToP2 = dist(coords[2 * i + 2], coords[2 * i + 3], futureX, futureY);
+
+            // Check if the ball is close enough to the line to detect a collision
+            if (distanceToP1 + distanceToP2 < segLength[i] + radius) {
+                // Collision detected, take the unit normal on the side of the segment facing the ball
+                float normalX = segNormalX[i];
+                float normalY = segNormalY[i];
+                if ((futureX - x1) * normalX + (futureY - y1) * normalY <= 0) {
+                    normalX = -normalX;
+                    normalY = -normalY;
                 }
+
+                // Calculate the new velocity using the reflection formula
+                float vx = ball.getXVelocity();
+                float vy = ball.getYVelocity();
+                float dotProduct = vx * normalX + vy * normalY;
+
+                // Update the ball's velocity
+                ball.setXVelocity(vx - 2 * dotProduct * normalX);
+                ball.setYVelocity(vy - 2 * dotProduct * normalY);
+
+                // Clear the line after the collision
+                clear();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the first segment of the line a moving ball would touch during a step, treating the
+     * line as having its drawn thickness, and records it in the hit if it is earlier than the
+     * hit found so far.
+     *
+     * @param x      The x-coordinate of the ball at the start of the step.
+     * @param y      The y-coordinate of the ball at the start of the step.
+     * @param dx     The x displacement of the ball during the step.
+     * @param dy     The y displacement of the ball during the step.
+     * @param radius The radius of the ball.
+     * @param hit    The hit record to update.
+     */
+    public void sweep(float x, float y, float dx, float dy, float radius, SweepHit hit) {
+        float reach = radius + LINE_THICKNESS / 2;
+        // Balls may be swept by several threads at once, each querying into its own hit's buffer
+        int candidateCount = segmentIndex.query(Math.min(x, x + dx) - reach, Math.min(y, y + dy) - reach,
+                Math.max(x, x + dx) + reach, Math.max(y, y + dy) + reach, hit.segmentQuery);
+        int[] candidates = hit.segmentQuery.getResults();
+
+        for (int c = 0; c < candidateCount; c++) {
+            int i = candidates[c];
+            float time = SweptCollision.sweepCircleCapsule(x, y, dx, dy, radius, coords[2 * i],
+                    coords[2 * i + 1], coords[2 * i + 2], coords[2 * i + 3], LINE_THICKNESS / 2, hit.candidateNormal);
+            if (hit.offer(time)) {
+                hit.line = this;
             }
         }
     }
@@ -135,12 +336,22 @@ public class PlayerDrawnLine {
      * @return True if the line is near the point, otherwise false.
      */
     public boolean isNear(float x, float y) {
-        for (int i = 0; i < points.size() - 1; i++) {
-            PVector p1 = points.get(i);
-            PVector p2 = points.get(i + 1);
+        // Only the segments in the cells around the point can be close enough
+        int candidateCount = segmentIndex.query(x - DELETE_THRESHOLD, y - DELETE_THRESHOLD,
+                x + DELETE_THRESHOLD, y + DELETE_THRESHOLD);
+        int[] candidates = segmentIndex.getResults();
+
+        for (int c = 0; c < candidateCount; c++) {
+            int i = candidates[c];
+            // Segments whose bounding box is too far away cannot be near the point
+            if (x < segMinX[i] - DELETE_THRESHOLD || x > segMaxX[i] + DELETE_THRESHOLD
+                    || y < segMinY[i] - DELETE_THRESHOLD || y > segMaxY[i] + DELETE_THRESHOLD) {
+                continue;
+            }
 
             // Calculate the shortest distance from the point to the line segment
-            float distanceToLine = distToSegment(new PVector(x, y), p1, p2);
+            float distanceToLine = distToSegment(x, y, coords[2 * i], coords[2 * i + 1],
+                    coords[2 * i + 2], coords[2 * i + 3]);
             if (distanceToLine < DELETE_THRESHOLD) {
                 return true;  // Return true if the point is close enough to the line
             }
@@ -149,23 +360,53 @@ public class PlayerDrawnLine {
     }
 
     /**
-     * Helper method to calculate the shortest distance from a point to a line segment.
+     * Calculates the shortest distance from a point to a line segment without allocating.
      *
-     * @param point The point to check.
-     * @param v     One endpoint of the line segment.
-     * @param w     The other endpoint of the line segment.
+     * @param px The x-coordinate of the point.
+     * @param py The y-coordinate of the point.
+     * @param vx The x-coordinate of one endpoint of the segment.
+     * @param vy The y-coordinate of one endpoint of the segment.
+     * @param wx The x-coordinate of the other endpoint of the segment.
+     * @param wy The y-coordinate of the other endpoint of the segment.
      * @return The shortest distance from the point to the line segment.
      */
-    private float distToSegment(PVector point, PVector v, PVector w) {
-        float l2 = PVector.dist(v, w) * PVector.dist(v, w);  // Length of the segment squared
-        if (l2 == 0.0) return PVector.dist(point, v);  // If v == w, return distance to point v
-        float t = PVector.dot(PVector.sub(point, v), PVector.sub(w, v)) / l2;
+    static float distToSegment(float px, float py, float vx, float vy, float wx, float wy) {
+        float segX = wx - vx;
+        float segY = wy - vy;
+        float l2 = segX * segX + segY * segY;  // Length of the segment squared
+        if (l2 == 0.0) return dist(px, py, vx, vy);  // If v == w, return distance to point v
+        float t = ((px - vx) * segX + (py - vy) * segY) / l2;
         t = Math.max(0, Math.min(1, t));  // Clamp t to the range [0,1]
-        PVector projection = PVector.add(v, PVector.mult(PVector.sub(w, v), t));  // Projection of the point on the line
-        return PVector.dist(point, projection);  // Distance from the point to the line segment
+        return dist(px, py, vx + segX * t, vy + segY * t);  // Distance to the projection on the segment
     }
 
+    /**
+     * Calculates the distance between two points.
+     *
+     * @return The distance between (x1, y1) and (x2, y2).
+     */
+    static float dist(float x1, float y1, float x2, float y2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public int getPointCount() { return pointCount; }
+    public int getVersion() { return version; }
+    public int getGeneration() { return generation; }
+    public float getX(int i) { return coords[2 * i]; }
+    public float getY(int i) { return coords[2 * i + 1]; }
+
+    /**
+     * Returns a copy of the points of the line. Changing the copy does not change the line.
+     *
+     * @return The points that make up the line, in drawing order.
+     */
     public List<PVector> getPoints() {
-        return points;
+        List<PVector> copy = new ArrayList<>(pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            copy.add(new PVector(coords[2 * i], coords[2 * i + 1]));
+        }
+        return copy;
     }
 }
@@ -0,0 +1,238 @@
+package inkball;
+
+import java.util.Arrays;
+
+/**
+ * A spatial index over the segments of a player-drawn line. It keeps the bounding box of all
+ * segments plus a grid of cell buckets holding the ids of the segments crossing each cell.
+ * Segments are added one at a time as the line grows, so the index never has to be rebuilt
+ * while drawing. Queries return candidate segment ids in ascending order, which lets callers
+ * keep the same "first segment wins" behavior as a linear scan.
+ *
+ * <p>A query only reads the index, writing its results to a {@link QueryBuffer}, so threads
+ * with their own buffers can query the same index at once.</p>
+ */
+public class SegmentIndex {
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    /** Segment ids per cell, allocated on first use */
+    private int[][] buckets;
+    private int[] bucketSizes;
+
+    /** Bounding box of all indexed segments */
+    private float minX, minY, maxX, maxY;
+    private boolean isEmpty = true;
+    /** Length of the longest indexed segment */
+    private float maxSegmentLength;
+
+    /** One more than the largest segment id added */
+    private int idLimit;
+
+    /** Buffer for the queries that do not bring their own */
+    private final QueryBuffer ownBuffer = new QueryBuffer();
+
+    /**
+     * Receives the results of queries. Each thread querying an index needs its own buffer, which
+     * it can reuse across indices.
+     */
+    public static class QueryBuffer {
+        /** Candidate segment ids, valid up to the count returned by the query */
+        private int[] results = new int[16];
+        /** Marks the query in which each segment id was last reported, to avoid duplicates */
+        private int[] stamps = new int[16];
+        private int currentStamp;
+
+        /**
+         * Returns the ids found by the last query into this buffer.
+         *
+         * @return The candidate segment ids, valid up to the count returned by the query.
+         */
+        public int[] getResults() {
+            return results;
+        }
+    }
+
+    /**
+     * Constructs an empty index covering the game window.
+     */
+    public SegmentIndex() {
+        this(App.CELLSIZE, (App.WIDTH + App.CELLSIZE - 1) / App.CELLSIZE, (App.HEIGHT + App.CELLSIZE - 1) / App.CELLSIZE);
+    }
+
+    /**
+     * Constructs an empty index with a grid of the given size, starting at (0, 0).
+     *
+     * @param cellSize The width and height of a cell in pixels.
+     * @param cols     The number of columns in the grid.
+     * @param rows     The number of rows in the grid.
+     */
+    public SegmentIndex(int cellSize, int cols, int rows) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(cols, 1);
+        this.rows = Math.max(rows, 1);
+    }
+
+    public float getMaxSegmentLength() { return maxSegmentLength; }
+    public boolean isEmpty() { return isEmpty; }
+    public float getMinX() { return minX; }
+    public float getMinY() { return minY; }
+    public float getMaxX() { return maxX; }
+    public float getMaxY() { return maxY; }
+
+    /**
+     * Adds a segment to the index. Adding the latest segment again after one of its endpoints
+     * moved adds it to any new cells it covers; its old cells keep it as a harmless extra
+     * candidate.
+     *
+     * @param id The id of the segment (its index in the line).
+     * @param x1 The x-coordinate of the first endpoint.
+     * @param y1 The y-coordinate of the first endpoint.
+     * @param x2 The x-coordinate of the second endpoint.
+     * @param y2 The y-coordinate of the second endpoint.
+     */
+    public void add(int id, float x1, float y1, float x2, float y2) {
+        if (buckets == null) {
+            buckets = new int[cols * rows][];
+            bucketSizes = new int[cols * rows];
+        }
+
+        float segMinX = Math.min(x1, x2);
+        float segMinY = Math.min(y1, y2);
+        float segMaxX = Math.max(x1, x2);
+        float segMaxY = Math.max(y1, y2);
+
+        // Grow the bounding box of the whole line
+        if (isEmpty) {
+            minX = segMinX;
+            minY = segMinY;
+            maxX = segMaxX;
+            maxY = segMaxY;
+            isEmpty = false;
+        } else {
+            minX = Math.min(minX, segMinX);
+            minY = Math.min(minY, segMinY);
+            maxX = Math.max(maxX, segMaxX);
+            maxY = Math.max(maxY, segMaxY);
+        }
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        maxSegmentLength = Math.max(maxSegmentLength, (float) Math.sqrt(dx * dx + dy * dy));
+
+        // Add the segment id to every cell its bounding box covers
+        int maxCol = colOf(segMaxX);
+        int maxRow = rowOf(segMaxY);
+        for (int row = rowOf(segMinY); row <= maxRow; row++) {
+            for (int col = colOf(segMinX); col <= maxCol; col++) {
+                addToBucket(row * cols + col, id);
+            }
+        }
+    }
+
+    /**
+     * Removes every segment from the index.
+     */
+    public void clear() {
+        if (bucketSizes != null) {
+            Arrays.fill(bucketSizes, 0);
+        }
+        isEmpty = true;
+        maxSegmentLength = 0;
+    }
+
+    /**
+     * Finds the segments whose cells overlap a rectangle. The ids are stored in
+     * {@link #getResults()} in ascending order, each at most once.
+     *
+     * @param queryMinX The left edge of the rectangle.
+     * @param queryMinY The top edge of the rectangle.
+     * @param queryMaxX The right edge of the rectangle.
+     * @param queryMaxY The bottom edge of the rectangle.
+     * @return The number of candidate segments found.
+     */
+    public int query(float queryMinX, float queryMinY, float queryMaxX, float queryMaxY) {
+        return query(queryMinX, queryMinY, queryMaxX, queryMaxY, ownBuffer);
+    }
+
+    /**
+     * Finds the segments whose cells overlap a rectangle. The ids are stored in the given
+     * buffer in ascending order, each at most once.
+     *
+     * @param queryMinX The left edge of the rectangle.
+     * @param queryMinY The top edge of the rectangle.
+     * @param queryMaxX The right edge of the rectangle.
+     * @param queryMaxY The bottom edge of the rectangle.
+     * @param buffer    The buffer receiving the results.
+     * @return The number of candidate segments found.
+     */
+    public int query(float queryMinX, float queryMinY, float queryMaxX, float queryMaxY, QueryBuffer buffer) {
+        // Reject queries that miss the whole line
+        if (isEmpty || queryMaxX < minX || queryMinX > maxX || queryMaxY < minY || queryMinY > maxY) {
+            return 0;
+        }
+
+        if (buffer.stamps.length < idLimit) {
+            buffer.stamps = Arrays.copyOf(buffer.stamps, Math.max(idLimit, buffer.stamps.length * 2));
+        }
+        int[] stamps = buffer.stamps;
+        int[] results = buffer.results;
+        int currentStamp = ++buffer.currentStamp;
+        int count = 0;
+        int maxCol = colOf(queryMaxX);
+        int maxRow = rowOf(queryMaxY);
+        for (int row = rowOf(queryMinY); row <= maxRow; row++) {
+            for (int col = colOf(queryMinX); col <= maxCol; col++) {
+                int cell = row * cols + col;
+                int[] bucket = buckets[cell];
+                for (int i = 0; i < bucketSizes[cell]; i++) {
+                    int id = bucket[i];
+                    if (stamps[id] != currentStamp) {
+                        stamps[id] = currentStamp;
+                        if (count == results.length) {
+                            results = Arrays.copyOf(results, count * 2);
+                            buffer.results = results;
+                        }
+                        results[count++] = id;
+                    }
+                }
+            }
+        }
+        Arrays.sort(results, 0, count);
+        return count;
+    }
+
+    /**
+     * Returns the results of the last query made without a buffer of its own.
+     *
+     * @return The candidate segment ids, valid up to the count returned by the query.
+     */
+    public int[] getResults() {
+        return ownBuffer.results;
+    }
+
+    private void addToBucket(int cell, int id) {
+        int[] bucket = buckets[cell];
+        // Segments are added in order, so a segment already in the cell is its last entry
+        if (bucket != null && bucketSizes[cell] > 0 && bucket[bucketSizes[cell] - 1] == id) {
+            return;
+        }
+        if (bucket == null) {
+            bucket = new int[4];
+            buckets[cell] = bucket;
+        } else if (bucketSizes[cell] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            buckets[cell] = bucket;
+        }
+        bucket[bucketSizes[cell]++] = id;
+
+        idLimit = Math.max(idLimit, id + 1);
+    }
+
+    private int colOf(float x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int rowOf(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+}
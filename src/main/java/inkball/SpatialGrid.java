@@ -0,0 +1,230 @@
+package inkball;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A uniform grid that maps each board cell to the objects overlapping it. It is used as a
+ * broad phase so that a ball only needs to be tested against the objects in the cells
+ * its bounding circle touches, instead of against every object in the level.
+ *
+ * @param <T> The type of object stored in the grid.
+ */
+public class SpatialGrid<T> {
+    private final int originX;
+    private final int originY;
+    private final int cols;
+    private final int rows;
+    private final int cellSize;
+    /** Buckets of objects for each cell, allocated on first insertion */
+    private final List<List<T>> cells;
+
+    /**
+     * Constructs an empty grid covering the given area.
+     *
+     * @param originX  The x-coordinate of the top-left corner of the grid.
+     * @param originY  The y-coordinate of the top-left corner of the grid.
+     * @param cols     The number of columns in the grid.
+     * @param rows     The number of rows in the grid.
+     * @param cellSize The width and height of a single cell in pixels.
+     */
+    public SpatialGrid(int originX, int originY, int cols, int rows, int cellSize) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cols = Math.max(cols, 1);
+        this.rows = Math.max(rows, 1);
+        this.cellSize = cellSize;
+        this.cells = new ArrayList<>(this.cols * this.rows);
+        for (int i = 0; i < this.cols * this.rows; i++) {
+            cells.add(null);
+        }
+    }
+
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
+    public int getCellSize() { return cellSize; }
+
+    /**
+     * Converts an x-coordinate to a column index, clamped to the grid.
+     * Objects outside the grid are therefore kept in the border cells.
+     *
+     * @param x The x-coordinate in pixels.
+     * @return The column index.
+     */
+    int colOf(float x) {
+        int col = (int) Math.floor((x - originX) / cellSize);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    /**
+     * Converts a y-coordinate to a row index, clamped to the grid.
+     *
+     * @param y The y-coordinate in pixels.
+     * @return The row index.
+     */
+    int rowOf(float y) {
+        int row = (int) Math.floor((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Inserts an object into every cell overlapped by its bounding box.
+     *
+     * @param item   The object to insert.
+     * @param x      The x-coordinate of the object's bounding box.
+     * @param y      The y-coordinate of the object's bounding box.
+     * @param width  The width of the object's bounding box.
+     * @param height The height of the object's bounding box.
+     */
+    public void insert(T item, float x, float y, float width, float height) {
+        // The right and bottom edges are exclusive, so a 32x32 tile only occupies its own cell
+        int minCol = colOf(x);
+        int maxCol = colOf(Math.max(x, x + width - 1));
+        int minRow = rowOf(y);
+        int maxRow = rowOf(Math.max(y, y + height - 1));
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int index = row * cols + col;
+                List<T> bucket = cells.get(index);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(2);
+                    cells.set(index, bucket);
+                }
+                bucket.add(item);
+            }
+        }
+    }
+
+    /**
+     * Inserts an object into every cell that a circle overlaps, including cells it only touches
+     * at the edge. Cells covered by the circle's bounding box but not by the circle are skipped.
+     *
+     * @param item    The object to insert.
+     * @param centerX The x-coordinate of the circle's center.
+     * @param centerY The y-coordinate of the circle's center.
+     * @param radius  The radius of the circle.
+     */
+    public void insertCircle(T item, float centerX, float centerY, float radius) {
+        int minCol = colOf(centerX - radius);
+        int maxCol = colOf(centerX + radius);
+        int minRow = rowOf(centerY - radius);
+        int maxRow = rowOf(centerY + radius);
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                // Distance from the center to the closest point of the cell
+                float cellX = originX + col * cellSize;
+                float cellY = originY + row * cellSize;
+                float dx = centerX - Math.max(cellX, Math.min(centerX, cellX + cellSize));
+                float dy = centerY - Math.max(cellY, Math.min(centerY, cellY + cellSize));
+                if (dx * dx + dy * dy > radius * radius) {
+                    continue;
+                }
+                int index = row * cols + col;
+                List<T> bucket = cells.get(index);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(2);
+                    cells.set(index, bucket);
+                }
+                bucket.add(item);
+            }
+        }
+    }
+
+    /**
+     * Removes every object from the grid.
+     */
+    public void clear() {
+        for (List<T> bucket : cells) {
+            if (bucket != null) {
+                bucket.clear();
+            }
+        }
+    }
+
+    /**
+     * Collects the objects in all cells overlapped by a circle's bounding box.
+     * Each object is added to the output list at most once.
+     *
+     * @param x      The x-coordinate of the circle's center.
+     * @param y      The y-coordinate of the circle's center.
+     * @param radius The radius of the circle.
+     * @param out    The list the matching objects are appended to.
+     */
+    public void query(float x, float y, float radius, List<T> out) {
+        queryRect(x - radius, y - radius, x + radius, y + radius, out);
+    }
+
+    /**
+     * Collects the objects in all cells overlapped by a rectangle.
+     * Each object is added to the output list at most once.
+     *
+     * @param minX The left edge of the rectangle.
+     * @param minY The top edge of the rectangle.
+     * @param maxX The right edge of the rectangle.
+     * @param maxY The bottom edge of the rectangle.
+     * @param out  The list the matching objects are appended to.
+     */
+    public void queryRect(float minX, float minY, float maxX, float maxY, List<T> out) {
+        int start = out.size();
+        int minCol = colOf(minX);
+        int maxCol = colOf(maxX);
+        int minRow = rowOf(minY);
+        int maxRow = rowOf(maxY);
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                List<T> bucket = cells.get(row * cols + col);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size(); i++) {
+                    T item = bucket.get(i);
+                    // Objects spanning several cells must only be reported once
+                    if (!containsFrom(out, start, item)) {
+                        out.add(item);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the objects stored in a single cell.
+     *
+     * @param col The column of the cell.
+     * @param row The row of the cell.
+     * @return The objects in the cell, or an empty list if there are none.
+     */
+    public List<T> getCell(int col, int row) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            return new ArrayList<>();
+        }
+        List<T> bucket = cells.get(row * cols + col);
+        return bucket == null ? new ArrayList<>() : bucket;
+    }
+
+    /**
+     * Returns the objects stored in the cell containing a point, without allocating. Points
+     * outside the grid fall into the nearest border cell.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return The objects in the cell, or an empty list if there are none.
+     */
+    public List<T> getCellAt(float x, float y) {
+        List<T> bucket = cells.get(rowOf(y) * cols + colOf(x));
+        return bucket == null ? Collections.emptyList() : bucket;
+    }
+
+    private boolean containsFrom(List<T> list, int start, T item) {
+        for (int i = start; i < list.size(); i++) {
+            if (list.get(i) == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,5 +1,6 @@
 package inkball;
 
+import processing.core.PGraphics;
 import processing.core.PImage;
 
 /**
@@ -30,7 +31,7 @@ public class Spawner extends Entity implements Drawable {
      */
     @Override
     public void loadImage(App p) {
-        spawnerImage = p.loadImage("inkball/entrypoint.png");
+        spawnerImage = SpriteCache.get(p, "inkball/entrypoint.png");
     }
 
     /**
@@ -43,6 +44,15 @@ public class Spawner extends Entity implements Drawable {
         p.image(spawnerImage, x, y);
     }
 
+    /**
+     * Draws the spawner onto an offscreen graphics buffer, such as a level's static layer.
+     *
+     * @param g The graphics buffer to draw on.
+     */
+    public void drawTo(PGraphics g) {
+        g.image(spawnerImage, x, y);
+    }
+
     // Getter and setter methods
     public int getX() {
         return x;
@@ -0,0 +1,140 @@
+package inkball;
+
+import processing.core.PConstants;
+import processing.core.PImage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single image holding every game sprite, packed into shelves when the game starts. Each sprite
+ * occupies a region of the atlas identified by its index in {@link #SPRITE_NAMES}, so that a
+ * {@link SpriteBatch} can draw any number of sprites from the one texture instead of switching
+ * between separate images.
+ *
+ * <p>Sprites that fail to load are left out of the atlas; their regions are empty and anything
+ * drawn with them falls back to the sprite's own image.</p>
+ */
+public class SpriteAtlas {
+    /** Asset names of the sprites packed into the atlas, in region order */
+    static final String[] SPRITE_NAMES = spriteNames();
+    /** Width of the atlas, wide enough for the largest sprites to share a shelf */
+    static final int ATLAS_WIDTH = 256;
+    /** Empty pixels left around each sprite so that scaled sprites do not sample their neighbours */
+    static final int PADDING = 1;
+
+    /** Region index of each sprite by asset name */
+    private static final Map<String, Integer> REGIONS = new HashMap<>();
+
+    static {
+        for (int region = 0; region < SPRITE_NAMES.length; region++) {
+            REGIONS.put(SPRITE_NAMES[region], region);
+        }
+    }
+
+    private final PImage image;
+    /** Bounds of each region within the atlas, empty for sprites that could not be loaded */
+    private final int[] regionX = new int[SPRITE_NAMES.length];
+    private final int[] regionY = new int[SPRITE_NAMES.length];
+    private final int[] regionWidth = new int[SPRITE_NAMES.length];
+    private final int[] regionHeight = new int[SPRITE_NAMES.length];
+
+    /**
+     * Packs the sprites in the sprite cache into a new atlas image. Sprites are placed tallest
+     * first along shelves running across the atlas, starting a new shelf when one is full.
+     *
+     * @param p The App instance used to load the sprites and create the atlas image.
+     */
+    public SpriteAtlas(App p) {
+        PImage[] sprites = new PImage[SPRITE_NAMES.length];
+        Integer[] order = new Integer[SPRITE_NAMES.length];
+        for (int region = 0; region < SPRITE_NAMES.length; region++) {
+            sprites[region] = SpriteCache.get(p, SPRITE_NAMES[region]);
+            order[region] = region;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(heightOf(sprites[b]), heightOf(sprites[a])));
+
+        // Lay out the shelves first, so the atlas is created at its final height
+        int shelfX = 0;
+        int shelfY = 0;
+        int shelfHeight = 0;
+        for (int region : order) {
+            PImage sprite = sprites[region];
+            if (sprite == null || sprite.width <= 0 || sprite.height <= 0) {
+                continue;
+            }
+            int width = sprite.width + 2 * PADDING;
+            if (shelfX + width > ATLAS_WIDTH && shelfX > 0) {
+                shelfY += shelfHeight;
+                shelfX = 0;
+                shelfHeight = 0;
+            }
+            regionX[region] = shelfX + PADDING;
+            regionY[region] = shelfY + PADDING;
+            regionWidth[region] = sprite.width;
+            regionHeight[region] = sprite.height;
+            shelfX += width;
+            shelfHeight = Math.max(shelfHeight, sprite.height + 2 * PADDING);
+        }
+
+        int atlasWidth = ATLAS_WIDTH;
+        for (int region = 0; region < SPRITE_NAMES.length; region++) {
+            atlasWidth = Math.max(atlasWidth, regionX[region] + regionWidth[region] + PADDING);
+        }
+        image = p.createImage(atlasWidth, Math.max(shelfY + shelfHeight, 1), PConstants.ARGB);
+        for (int region = 0; region < SPRITE_NAMES.length; region++) {
+            if (regionWidth[region] > 0 && image != null) {
+                image.copy(sprites[region], 0, 0, regionWidth[region], regionHeight[region],
+                        regionX[region], regionY[region], regionWidth[region], regionHeight[region]);
+            }
+        }
+    }
+
+    public PImage getImage() { return image; }
+    public int getRegionX(int region) { return regionX[region]; }
+    public int getRegionY(int region) { return regionY[region]; }
+    public int getRegionWidth(int region) { return regionWidth[region]; }
+    public int getRegionHeight(int region) { return regionHeight[region]; }
+
+    /**
+     * Checks whether a region holds a sprite that can be drawn from the atlas.
+     *
+     * @param region The region index.
+     * @return True if the region is in range and its sprite was packed, otherwise false.
+     */
+    public boolean hasRegion(int region) {
+        return image != null && region >= 0 && region < SPRITE_NAMES.length && regionWidth[region] > 0;
+    }
+
+    /**
+     * Returns the region of the sprite with the given asset name.
+     *
+     * @param name The asset name of the sprite.
+     * @return The region index, or -1 if the sprite is not part of the atlas.
+     */
+    public static int regionOf(String name) {
+        Integer region = REGIONS.get(name);
+        return region != null ? region : -1;
+    }
+
+    private static int heightOf(PImage sprite) {
+        return sprite != null ? sprite.height : 0;
+    }
+
+    private static String[] spriteNames() {
+        String[] names = new String[3 * BallColor.COUNT + 6];
+        int i = 0;
+        names[i++] = "inkball/tile.png";
+        names[i++] = "inkball/entrypoint.png";
+        for (int color = 0; color < BallColor.COUNT; color++) {
+            names[i++] = SpriteCache.wallName(color);
+            names[i++] = SpriteCache.holeName(color);
+            names[i++] = SpriteCache.ballName(color);
+        }
+        for (String direction : new String[]{"up", "down", "left", "right"}) {
+            names[i++] = "inkball/acceleration_" + direction + ".png";
+        }
+        return names;
+    }
+}
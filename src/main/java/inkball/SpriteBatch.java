@@ -0,0 +1,232 @@
+package inkball;
+
+import processing.core.PImage;
+
+import java.util.Arrays;
+
+/**
+ * Collects sprite draws during a frame and submits them together, grouped by their region of the
+ * {@link SpriteAtlas}. Every sprite in the atlas is drawn from the same image, and sprites of the
+ * same region are drawn one after another, so the renderer does not switch textures between
+ * draws. Sprites of the same region keep the order they were added in.
+ *
+ * <p>A clipping rectangle can be set for the sprites added after it. Clipped sprites are cut to
+ * the rectangle when they are added, along with the part of the atlas they are drawn from, so
+ * the batch never needs to change the renderer's clip. Sprites without a region in the atlas are
+ * drawn from their own image after the others.</p>
+ */
+public class SpriteBatch {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private SpriteAtlas atlas;
+    private boolean drawing;
+
+    /** Region of each queued sprite, or -1 if it is drawn from its own image */
+    private int[] regions = new int[INITIAL_CAPACITY];
+    /** Image of each queued sprite that is not drawn from the atlas */
+    private PImage[] images = new PImage[INITIAL_CAPACITY];
+    /** Screen rectangle of each queued sprite */
+    private float[] x = new float[INITIAL_CAPACITY];
+    private float[] y = new float[INITIAL_CAPACITY];
+    private float[] width = new float[INITIAL_CAPACITY];
+    private float[] height = new float[INITIAL_CAPACITY];
+    /** Source rectangle of each queued sprite, in the pixels of the image it is drawn from */
+    private int[] u1 = new int[INITIAL_CAPACITY];
+    private int[] v1 = new int[INITIAL_CAPACITY];
+    private int[] u2 = new int[INITIAL_CAPACITY];
+    private int[] v2 = new int[INITIAL_CAPACITY];
+    private int count;
+    /** Queued sprites in the order they are drawn, and the number in each region while sorting */
+    private int[] order = new int[INITIAL_CAPACITY];
+    private int[] regionCounts = new int[SpriteAtlas.SPRITE_NAMES.length + 2];
+
+    /** Clipping rectangle applied to added sprites, if enabled */
+    private boolean clipping;
+    private float clipLeft;
+    private float clipTop;
+    private float clipRight;
+    private float clipBottom;
+
+    public SpriteAtlas getAtlas() { return atlas; }
+    public int getCount() { return count; }
+    public boolean isDrawing() { return drawing; }
+
+    /** Screen rectangle of a queued sprite, in the order the sprites were added */
+    float getSpriteX(int sprite) { return x[sprite]; }
+    float getSpriteY(int sprite) { return y[sprite]; }
+    float getSpriteWidth(int sprite) { return width[sprite]; }
+    float getSpriteHeight(int sprite) { return height[sprite]; }
+
+    /**
+     * Sets the atlas the sprites are drawn from.
+     *
+     * @param atlas The atlas, or null to draw every sprite from its own image.
+     */
+    public void setAtlas(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Starts collecting the sprites of a frame, discarding any that were not submitted.
+     */
+    public void begin() {
+        Arrays.fill(images, 0, count, null);
+        count = 0;
+        clipping = false;
+        drawing = true;
+    }
+
+    /**
+     * Cuts the sprites added from now on to a rectangle.
+     *
+     * @param left   The x-coordinate of the rectangle.
+     * @param top    The y-coordinate of the rectangle.
+     * @param width  The width of the rectangle.
+     * @param height The height of the rectangle.
+     */
+    public void clip(float left, float top, float width, float height) {
+        clipping = true;
+        clipLeft = left;
+        clipTop = top;
+        clipRight = left + width;
+        clipBottom = top + height;
+    }
+
+    /**
+     * Stops cutting the sprites added from now on.
+     */
+    public void noClip() {
+        clipping = false;
+    }
+
+    /**
+     * Queues a sprite to be drawn into a screen rectangle.
+     *
+     * @param region The sprite's region of the atlas, or -1 if it has none.
+     * @param image  The sprite's own image, drawn if the atlas does not hold the region.
+     * @param left   The x-coordinate of the rectangle.
+     * @param top    The y-coordinate of the rectangle.
+     * @param w      The width of the rectangle.
+     * @param h      The height of the rectangle.
+     */
+    public void add(int region, PImage image, float left, float top, float w, float h) {
+        int srcX;
+        int srcY;
+        int srcWidth;
+        int srcHeight;
+        if (atlas != null && atlas.hasRegion(region)) {
+            image = null;
+            srcX = atlas.getRegionX(region);
+            srcY = atlas.getRegionY(region);
+            srcWidth = atlas.getRegionWidth(region);
+            srcHeight = atlas.getRegionHeight(region);
+        } else if (image != null) {
+            region = -1;
+            srcX = 0;
+            srcY = 0;
+            srcWidth = image.width;
+            srcHeight = image.height;
+        } else {
+            return;
+        }
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+
+        // Cut the sprite and its source rectangle to the clipping rectangle
+        float cutLeft = 0;
+        float cutTop = 0;
+        float cutRight = 0;
+        float cutBottom = 0;
+        if (clipping) {
+            cutLeft = Math.max(0, clipLeft - left);
+            cutTop = Math.max(0, clipTop - top);
+            cutRight = Math.max(0, left + w - clipRight);
+            cutBottom = Math.max(0, top + h - clipBottom);
+            if (cutLeft + cutRight >= w || cutTop + cutBottom >= h) {
+                return;
+            }
+        }
+
+        if (count == regions.length) {
+            grow();
+        }
+        regions[count] = region;
+        images[count] = image;
+        x[count] = left + cutLeft;
+        y[count] = top + cutTop;
+        width[count] = w - cutLeft - cutRight;
+        height[count] = h - cutTop - cutBottom;
+        u1[count] = srcX + Math.round(cutLeft * srcWidth / w);
+        v1[count] = srcY + Math.round(cutTop * srcHeight / h);
+        u2[count] = srcX + srcWidth - Math.round(cutRight * srcWidth / w);
+        v2[count] = srcY + srcHeight - Math.round(cutBottom * srcHeight / h);
+        count++;
+    }
+
+    /**
+     * Draws every queued sprite, grouped by region, and ends the batch.
+     *
+     * @param p The App instance used for drawing.
+     */
+    public void flush(App p) {
+        sort();
+        PImage atlasImage = atlas != null ? atlas.getImage() : null;
+        for (int i = 0; i < count; i++) {
+            int sprite = order[i];
+            PImage image = regions[sprite] >= 0 ? atlasImage : images[sprite];
+            p.image(image, x[sprite], y[sprite], width[sprite], height[sprite], u1[sprite], v1[sprite], u2[sprite], v2[sprite]);
+        }
+        Arrays.fill(images, 0, count, null);
+        count = 0;
+        clipping = false;
+        drawing = false;
+    }
+
+    /**
+     * Returns the region of a queued sprite in the order the batch draws them.
+     *
+     * @param index The position of the sprite in the drawing order.
+     * @return The sprite's region, or -1 if it is drawn from its own image.
+     */
+    int getSortedRegion(int index) {
+        sort();
+        return regions[order[index]];
+    }
+
+    /**
+     * Orders the queued sprites by region with a counting sort, which keeps sprites of the same
+     * region in the order they were added. Sprites without a region go last.
+     */
+    private void sort() {
+        Arrays.fill(regionCounts, 0);
+        for (int i = 0; i < count; i++) {
+            regionCounts[bucketOf(i) + 1]++;
+        }
+        for (int bucket = 1; bucket < regionCounts.length; bucket++) {
+            regionCounts[bucket] += regionCounts[bucket - 1];
+        }
+        for (int i = 0; i < count; i++) {
+            order[regionCounts[bucketOf(i)]++] = i;
+        }
+    }
+
+    private int bucketOf(int sprite) {
+        return regions[sprite] >= 0 ? regions[sprite] : SpriteAtlas.SPRITE_NAMES.length;
+    }
+
+    private void grow() {
+        int capacity = regions.length * 2;
+        regions = Arrays.copyOf(regions, capacity);
+        images = Arrays.copyOf(images, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        u1 = Arrays.copyOf(u1, capacity);
+        v1 = Arrays.copyOf(v1, capacity);
+        u2 = Arrays.copyOf(u2, capacity);
+        v2 = Arrays.copyOf(v2, capacity);
+        order = Arrays.copyOf(order, capacity);
+    }
+}
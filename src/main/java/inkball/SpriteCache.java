@@ -0,0 +1,108 @@
+package inkball;
+
+import processing.core.PImage;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of decoded sprites shared by the whole process, keyed by asset name. Each image is
+ * loaded from disk the first time it is asked for, and every later request returns the same
+ * {@link PImage}, so entities of the same kind share one copy and changing a ball's color only
+ * swaps the image it points to. Balls may change color while being stepped on several threads,
+ * so the cache is safe to use concurrently.
+ */
+public final class SpriteCache {
+    /** Decoded sprites by asset name */
+    private static final Map<String, PImage> sprites = new ConcurrentHashMap<>();
+
+    /** Asset names of the sprites of each color, built once so that a lookup does not build a string */
+    private static final String[] BALL_NAMES = colorNames("inkball/ball");
+    private static final String[] WALL_NAMES = colorNames("inkball/wall");
+    private static final String[] HOLE_NAMES = colorNames("inkball/hole");
+
+    private SpriteCache() {
+    }
+
+    /**
+     * Returns the sprite with the given asset name, loading it on first use.
+     *
+     * @param p    The App instance used to load the image if it is not cached yet.
+     * @param name The asset name of the image.
+     * @return The shared image, or null if it could not be loaded.
+     */
+    public static PImage get(App p, String name) {
+        Objects.requireNonNull(p, "An App is needed to load sprites");
+        PImage sprite = sprites.get(name);
+        if (sprite == null) {
+            sprite = p.loadImage(name);
+            // Images that fail to load are not cached, so they are tried again next time
+            if (sprite != null) {
+                PImage existing = sprites.putIfAbsent(name, sprite);
+                if (existing != null) {
+                    sprite = existing;
+                }
+            }
+        }
+        return sprite;
+    }
+
+    /**
+     * Returns the asset name of the sprite of a ball of the given color.
+     *
+     * @param color The color of the ball.
+     * @return The asset name.
+     */
+    public static String ballName(int color) {
+        return colorName(BALL_NAMES, "inkball/ball", color);
+    }
+
+    /**
+     * Returns the asset name of the sprite of a wall of the given color.
+     *
+     * @param color The color of the wall.
+     * @return The asset name.
+     */
+    public static String wallName(int color) {
+        return colorName(WALL_NAMES, "inkball/wall", color);
+    }
+
+    /**
+     * Returns the asset name of the sprite of a hole of the given color.
+     *
+     * @param color The color of the hole.
+     * @return The asset name.
+     */
+    public static String holeName(int color) {
+        return colorName(HOLE_NAMES, "inkball/hole", color);
+    }
+
+    /**
+     * Returns the number of sprites in the cache.
+     *
+     * @return The number of decoded images held.
+     */
+    static int size() {
+        return sprites.size();
+    }
+
+    /**
+     * Drops every cached sprite, so that they are loaded again on next use.
+     */
+    static void clear() {
+        sprites.clear();
+    }
+
+    private static String colorName(String[] names, String prefix, int color) {
+        return color >= 0 && color < names.length ? names[color] : prefix + color + ".png";
+    }
+
+    private static String[] colorNames(String prefix) {
+        String[] names = new String[BallColor.COUNT];
+        for (int color = 0; color < names.length; color++) {
+            names[color] = prefix + color + ".png";
+        }
+        return names;
+    }
+}
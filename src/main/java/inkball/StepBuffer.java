@@ -0,0 +1,160 @@
+package inkball;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scratch space and deferred events for stepping one range of a level's balls. While balls are
+ * stepped, each one only changes its own state; everything that is shared between balls, such as
+ * the contact cache, the player-drawn lines, the holes' attracted balls and the score, is recorded
+ * here instead and applied afterwards by {@link #apply}.
+ *
+ * <p>Events are recorded in the order of the balls, so applying the buffers of consecutive
+ * ranges in order gives the same result however the balls were split between workers. The
+ * arrays only grow, so a buffer does not allocate in steady state.</p>
+ */
+class StepBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Reused buffer for the walls near the ball being stepped */
+    final List<Wall> nearbyWalls = new ArrayList<>();
+    /** Reused record of the first obstacle hit while moving a ball */
+    final SweepHit sweepHit = new SweepHit();
+
+    private Ball[] contactBalls = new Ball[INITIAL_CAPACITY];
+    private Object[] contactObstacles = new Object[INITIAL_CAPACITY];
+    private int[] contactExpiries = new int[INITIAL_CAPACITY];
+    private int contactCount;
+
+    /** Lines that balls bounced off, which disappear once the step is applied */
+    private final List<PlayerDrawnLine> bouncedLines = new ArrayList<>();
+    /** The ball that bounced off each of the lines */
+    private final List<Ball> bouncingBalls = new ArrayList<>();
+
+    private Ball[] holeBalls = new Ball[INITIAL_CAPACITY];
+    private Hole[] holes = new Hole[INITIAL_CAPACITY];
+    private float[] holeDistances = new float[INITIAL_CAPACITY];
+    private int holeCount;
+    /** Balls that left the level while the step was applied */
+    private final List<Ball> removedBalls = new ArrayList<>();
+
+    /**
+     * Records a contact to add to the level's contact cache.
+     *
+     * @param ball     The ball.
+     * @param obstacle The obstacle it collided with.
+     * @param expiry   The first tick at which the pair is tested again.
+     */
+    void addContact(Ball ball, Object obstacle, int expiry) {
+        if (contactCount == contactBalls.length) {
+            int capacity = contactCount * 2;
+            contactBalls = Arrays.copyOf(contactBalls, capacity);
+            contactObstacles = Arrays.copyOf(contactObstacles, capacity);
+            contactExpiries = Arrays.copyOf(contactExpiries, capacity);
+        }
+        contactBalls[contactCount] = ball;
+        contactObstacles[contactCount] = obstacle;
+        contactExpiries[contactCount] = expiry;
+        contactCount++;
+    }
+
+    /**
+     * Records that a ball bounced off a line.
+     *
+     * @param ball The ball.
+     * @param line The line.
+     */
+    void addBouncedLine(Ball ball, PlayerDrawnLine line) {
+        bouncingBalls.add(ball);
+        bouncedLines.add(line);
+    }
+
+    /**
+     * Returns the number of lines recorded so far, used to find the lines bounced off by the
+     * ball currently being moved.
+     *
+     * @return The number of recorded lines.
+     */
+    int bouncedLineCount() {
+        return bouncedLines.size();
+    }
+
+    /**
+     * Checks whether a line was recorded at or after a position.
+     *
+     * @param line The line.
+     * @param from The first position to check.
+     * @return True if the line was recorded from that position on, otherwise false.
+     */
+    boolean hasBouncedLine(PlayerDrawnLine line, int from) {
+        for (int i = from; i < bouncedLines.size(); i++) {
+            if (bouncedLines.get(i) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records that a ball was pulled by a hole, to be settled by {@link Hole#settleBall}.
+     *
+     * @param ball           The ball.
+     * @param hole           The hole.
+     * @param distanceToHole The distance returned by {@link Hole#applyPull}.
+     */
+    void addHoleEvent(Ball ball, Hole hole, float distanceToHole) {
+        if (holeCount == holeBalls.length) {
+            int capacity = holeCount * 2;
+            holeBalls = Arrays.copyOf(holeBalls, capacity);
+            holes = Arrays.copyOf(holes, capacity);
+            holeDistances = Arrays.copyOf(holeDistances, capacity);
+        }
+        holeBalls[holeCount] = ball;
+        holes[holeCount] = hole;
+        holeDistances[holeCount] = distanceToHole;
+        holeCount++;
+    }
+
+    /**
+     * Applies the recorded changes to the level in the order they were recorded and empties
+     * the buffer. Bounces and captures are raised as {@link GameEvents} for the level to apply.
+     *
+     * @param level The level the balls were stepped in.
+     * @param p     The App object holding the score and the unspawned balls.
+     */
+    void apply(Level level, App p) {
+        for (int i = 0; i < contactCount; i++) {
+            level.contacts.add(contactBalls[i], contactObstacles[i], contactExpiries[i]);
+        }
+        for (int i = 0; i < bouncedLines.size(); i++) {
+            level.events.add(GameEvents.Type.BOUNCE, bouncingBalls.get(i), bouncedLines.get(i));
+        }
+        for (int i = 0; i < holeCount; i++) {
+            Ball ball = holeBalls[i];
+            holes[i].settleBall(ball, holeDistances[i], level, p);
+
+            // Balls that are no longer active leave the level, all together once settled
+            if (!ball.getIsActive()) {
+                removedBalls.add(ball);
+            }
+        }
+        level.removeBalls(removedBalls);
+        clear();
+    }
+
+    /**
+     * Forgets every recorded event.
+     */
+    void clear() {
+        Arrays.fill(contactBalls, 0, contactCount, null);
+        Arrays.fill(contactObstacles, 0, contactCount, null);
+        contactCount = 0;
+        bouncedLines.clear();
+        bouncingBalls.clear();
+        Arrays.fill(holeBalls, 0, holeCount, null);
+        Arrays.fill(holes, 0, holeCount, null);
+        holeCount = 0;
+        removedBalls.clear();
+    }
+}
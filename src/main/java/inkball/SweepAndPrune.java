@@ -0,0 +1,168 @@
+package inkball;
+
+import java.util.Arrays;
+
+/**
+ * Finds and resolves collisions between the balls of a level using sweep and prune. The balls
+ * are kept ordered by the left edge of their bounding boxes, so sweeping along that order only
+ * pairs up balls whose horizontal extents overlap, instead of testing every pair.
+ *
+ * <p>Balls move only a few pixels per tick, so the order from the previous tick is almost
+ * sorted and an insertion sort restores it in close to linear time. The order is only rebuilt
+ * from scratch when balls have been added to or removed from the store.</p>
+ */
+public class SweepAndPrune {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Ball slots ordered by the left edge of their bounding boxes */
+    private int[] order = new int[INITIAL_CAPACITY];
+    /** Left and right edges of each slot's bounding box, indexed by slot */
+    private float[] minX = new float[INITIAL_CAPACITY];
+    private float[] maxX = new float[INITIAL_CAPACITY];
+    /** Packed edge and slot pairs used when the order is rebuilt */
+    private long[] sortKeys = new long[INITIAL_CAPACITY];
+    private int count;
+
+    /** Number of pairs whose horizontal extents overlapped in the last sweep */
+    int candidatePairs;
+
+    /**
+     * Bounces every pair of overlapping active balls in a store off each other.
+     *
+     * @param store The store holding the balls.
+     * @return The number of collisions resolved.
+     */
+    public int collide(BallStore store) {
+        update(store);
+        int collisions = 0;
+        candidatePairs = 0;
+        for (int i = 0; i < count; i++) {
+            int a = order[i];
+            if (!store.active.get(a)) {
+                continue;
+            }
+            float right = maxX[a];
+            // Later balls start further right, so the sweep stops at the first one past this ball
+            for (int j = i + 1; j < count && minX[order[j]] <= right; j++) {
+                int b = order[j];
+                candidatePairs++;
+                if (store.active.get(b) && resolve(store, a, b)) {
+                    collisions++;
+                }
+            }
+        }
+        return collisions;
+    }
+
+    /**
+     * Refreshes the bounding boxes and restores the sweep order.
+     *
+     * @param store The store holding the balls.
+     */
+    void update(BallStore store) {
+        int size = store.size();
+        ensureCapacity(size);
+        for (int slot = 0; slot < size; slot++) {
+            float x = store.getX(slot);
+            float radius = store.getRadius(slot);
+            minX[slot] = x - radius;
+            maxX[slot] = x + radius;
+        }
+
+        if (size != count) {
+            rebuild(size);
+            return;
+        }
+
+        // Insertion sort, which only moves the few balls that overtook a neighbour
+        for (int i = 1; i < count; i++) {
+            int slot = order[i];
+            float key = minX[slot];
+            int j = i - 1;
+            while (j >= 0 && minX[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = slot;
+        }
+    }
+
+    /**
+     * Returns the slot at a position of the sweep order.
+     *
+     * @param index The position in the order.
+     * @return The slot of the ball at that position.
+     */
+    int slotAt(int index) {
+        return order[index];
+    }
+
+    /**
+     * Sorts all slots from scratch after the number of balls has changed.
+     */
+    private void rebuild(int size) {
+        for (int slot = 0; slot < size; slot++) {
+            sortKeys[slot] = ((long) sortableBits(minX[slot]) << 32) | slot;
+        }
+        Arrays.sort(sortKeys, 0, size);
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) sortKeys[i];
+        }
+        count = size;
+    }
+
+    /**
+     * Maps a float to an int with the same ordering, so edges can be sorted as longs.
+     */
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * Bounces two balls off each other if they overlap and are moving towards each other. The
+     * balls have equal mass, so they exchange the components of their velocities along the line
+     * between their centers.
+     *
+     * @return True if the balls collided, otherwise false.
+     */
+    private static boolean resolve(BallStore store, int a, int b) {
+        float dx = store.getX(b) - store.getX(a);
+        float dy = store.getY(b) - store.getY(a);
+        float reach = store.getRadius(a) + store.getRadius(b);
+        float distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared > reach * reach || distanceSquared == 0) {
+            return false;
+        }
+
+        float distance = (float) Math.sqrt(distanceSquared);
+        float normalX = dx / distance;
+        float normalY = dy / distance;
+        float vxA = store.getXVelocity(a);
+        float vyA = store.getYVelocity(a);
+        float vxB = store.getXVelocity(b);
+        float vyB = store.getYVelocity(b);
+
+        // Balls that are already separating are left alone, so overlapping balls cannot stick
+        float approach = (vxA - vxB) * normalX + (vyA - vyB) * normalY;
+        if (approach <= 0) {
+            return false;
+        }
+        store.setXVelocity(a, vxA - approach * normalX);
+        store.setYVelocity(a, vyA - approach * normalY);
+        store.setXVelocity(b, vxB + approach * normalX);
+        store.setYVelocity(b, vyB + approach * normalY);
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= order.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, order.length * 2);
+        order = Arrays.copyOf(order, newCapacity);
+        minX = Arrays.copyOf(minX, newCapacity);
+        maxX = Arrays.copyOf(maxX, newCapacity);
+        sortKeys = Arrays.copyOf(sortKeys, newCapacity);
+    }
+}
@@ -0,0 +1,73 @@
+package inkball;
+
+/**
+ * Records the earliest obstacle hit by a ball during a swept collision query.
+ * Candidate obstacles write their contact normal into {@link #candidateNormal} and
+ * then {@link #offer(float)} their time of impact; only the earliest one is kept.
+ */
+public class SweepHit {
+    /** Time of impact of the earliest hit, or {@link SweptCollision#NO_HIT} */
+    float time;
+    float normalX;
+    float normalY;
+    /** Color of the wall that was hit, or -1 if the hit was not a wall */
+    int color;
+    /** The player-drawn line that was hit, or null if the hit was not a line */
+    PlayerDrawnLine line;
+    /** Scratch buffer receiving the normal of the obstacle currently being tested */
+    final float[] candidateNormal = new float[2];
+    /** Scratch buffer receiving the line segments near the ball, so lines need no lock */
+    final SegmentIndex.QueryBuffer segmentQuery = new SegmentIndex.QueryBuffer();
+
+    /**
+     * Constructs an empty hit record.
+     */
+    public SweepHit() {
+        reset();
+    }
+
+    /**
+     * Clears the record before a new query.
+     */
+    public void reset() {
+        time = SweptCollision.NO_HIT;
+        normalX = 0;
+        normalY = 0;
+        color = -1;
+        line = null;
+    }
+
+    /**
+     * Checks whether any obstacle has been hit.
+     *
+     * @return True if a hit has been recorded, otherwise false.
+     */
+    public boolean isHit() {
+        return time != SweptCollision.NO_HIT;
+    }
+
+    /**
+     * Records a candidate hit if it happens before the current earliest hit.
+     * The candidate's normal is read from {@link #candidateNormal}.
+     *
+     * @param candidateTime The candidate's time of impact, or {@link SweptCollision#NO_HIT}.
+     * @return True if the candidate became the earliest hit, otherwise false.
+     */
+    public boolean offer(float candidateTime) {
+        if (candidateTime == SweptCollision.NO_HIT || (isHit() && candidateTime >= time)) {
+            return false;
+        }
+        time = candidateTime;
+        normalX = candidateNormal[0];
+        normalY = candidateNormal[1];
+        color = -1;
+        line = null;
+        return true;
+    }
+
+    public float getTime() { return time; }
+    public float getNormalX() { return normalX; }
+    public float getNormalY() { return normalY; }
+    public int getColor() { return color; }
+    public PlayerDrawnLine getLine() { return line; }
+}
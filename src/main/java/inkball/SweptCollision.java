@@ -0,0 +1,194 @@
+package inkball;
+
+/**
+ * Utility class for continuous (swept) collision detection. Instead of testing whether a ball
+ * overlaps an obstacle after it has moved, these methods find the first time during the move at
+ * which the ball touches the obstacle, so fast balls cannot pass through thin obstacles.
+ *
+ * <p>All methods take the ball's center, its displacement for the step and its radius, and return
+ * the time of impact as a fraction of the displacement in [0, 1], or {@link #NO_HIT}. On a hit,
+ * the unit normal of the contact surface (pointing towards the ball) is written to
+ * {@code normal[0]} and {@code normal[1]}. Balls that already overlap the obstacle at the start,
+ * or that are moving away from it, are not reported; overlaps are resolved by the regular
+ * collision checks.</p>
+ */
+public class SweptCollision {
+    /** Returned when the ball does not hit the obstacle during the step */
+    public static final float NO_HIT = -1;
+
+    /**
+     * Finds the first time at which a moving circle touches an axis-aligned rectangle.
+     *
+     * @param x      The x-coordinate of the circle's center at the start of the step.
+     * @param y      The y-coordinate of the circle's center at the start of the step.
+     * @param dx     The x displacement of the circle during the step.
+     * @param dy     The y displacement of the circle during the step.
+     * @param radius The radius of the circle.
+     * @param minX   The left edge of the rectangle.
+     * @param minY   The top edge of the rectangle.
+     * @param maxX   The right edge of the rectangle.
+     * @param maxY   The bottom edge of the rectangle.
+     * @param normal Receives the contact normal on a hit.
+     * @return The time of impact in [0, 1], or {@link #NO_HIT}.
+     */
+    public static float sweepCircleAabb(float x, float y, float dx, float dy, float radius,
+                                        float minX, float minY, float maxX, float maxY, float[] normal) {
+        // Ignore circles that already overlap the rectangle
+        float nearestX = Math.max(minX, Math.min(x, maxX));
+        float nearestY = Math.max(minY, Math.min(y, maxY));
+        float offsetX = x - nearestX;
+        float offsetY = y - nearestY;
+        if (offsetX * offsetX + offsetY * offsetY < radius * radius) {
+            return NO_HIT;
+        }
+
+        float best = NO_HIT;
+        float bestNx = 0;
+        float bestNy = 0;
+
+        // The four faces, pushed out by the radius
+        if (dx > 0) {
+            float t = (minX - radius - x) / dx;
+            float hitY = y + dy * t;
+            if (t >= 0 && t <= 1 && hitY >= minY && hitY <= maxY && (best == NO_HIT || t < best)) {
+                best = t; bestNx = -1; bestNy = 0;
+            }
+        } else if (dx < 0) {
+            float t = (maxX + radius - x) / dx;
+            float hitY = y + dy * t;
+            if (t >= 0 && t <= 1 && hitY >= minY && hitY <= maxY && (best == NO_HIT || t < best)) {
+                best = t; bestNx = 1; bestNy = 0;
+            }
+        }
+        if (dy > 0) {
+            float t = (minY - radius - y) / dy;
+            float hitX = x + dx * t;
+            if (t >= 0 && t <= 1 && hitX >= minX && hitX <= maxX && (best == NO_HIT || t < best)) {
+                best = t; bestNx = 0; bestNy = -1;
+            }
+        } else if (dy < 0) {
+            float t = (maxY + radius - y) / dy;
+            float hitX = x + dx * t;
+            if (t >= 0 && t <= 1 && hitX >= minX && hitX <= maxX && (best == NO_HIT || t < best)) {
+                best = t; bestNx = 0; bestNy = 1;
+            }
+        }
+
+        // The four rounded corners
+        for (int corner = 0; corner < 4; corner++) {
+            float cornerX = (corner & 1) == 0 ? minX : maxX;
+            float cornerY = (corner & 2) == 0 ? minY : maxY;
+            float t = sweepCirclePoint(x, y, dx, dy, radius, cornerX, cornerY);
+            if (t != NO_HIT && (best == NO_HIT || t < best)) {
+                best = t;
+                bestNx = (x + dx * t - cornerX) / radius;
+                bestNy = (y + dy * t - cornerY) / radius;
+            }
+        }
+
+        if (best != NO_HIT) {
+            normal[0] = bestNx;
+            normal[1] = bestNy;
+        }
+        return best;
+    }
+
+    /**
+     * Finds the first time at which a moving circle touches a capsule, i.e. a line segment
+     * drawn with a given thickness.
+     *
+     * @param x             The x-coordinate of the circle's center at the start of the step.
+     * @param y             The y-coordinate of the circle's center at the start of the step.
+     * @param dx            The x displacement of the circle during the step.
+     * @param dy            The y displacement of the circle during the step.
+     * @param radius        The radius of the circle.
+     * @param x1            The x-coordinate of the first endpoint of the segment.
+     * @param y1            The y-coordinate of the first endpoint of the segment.
+     * @param x2            The x-coordinate of the second endpoint of the segment.
+     * @param y2            The y-coordinate of the second endpoint of the segment.
+     * @param capsuleRadius Half the thickness of the segment.
+     * @param normal        Receives the contact normal on a hit.
+     * @return The time of impact in [0, 1], or {@link #NO_HIT}.
+     */
+    public static float sweepCircleCapsule(float x, float y, float dx, float dy, float radius,
+                                           float x1, float y1, float x2, float y2,
+                                           float capsuleRadius, float[] normal) {
+        float reach = radius + capsuleRadius;
+        float segX = x2 - x1;
+        float segY = y2 - y1;
+        float length = (float) Math.sqrt(segX * segX + segY * segY);
+
+        // Ignore circles that already overlap the capsule
+        float u = length > 0 ? ((x - x1) * segX + (y - y1) * segY) / (length * length) : 0;
+        u = Math.max(0, Math.min(1, u));
+        float offsetX = x - (x1 + segX * u);
+        float offsetY = y - (y1 + segY * u);
+        if (offsetX * offsetX + offsetY * offsetY < reach * reach) {
+            return NO_HIT;
+        }
+
+        float best = NO_HIT;
+        float bestNx = 0;
+        float bestNy = 0;
+
+        // The two long sides of the capsule
+        if (length > 0) {
+            float nx = -segY / length;
+            float ny = segX / length;
+            float distance = (x - x1) * nx + (y - y1) * ny;
+            float side = distance >= 0 ? 1 : -1;
+            float approach = (dx * nx + dy * ny) * side;
+            if (approach < 0) {
+                float t = (Math.abs(distance) - reach) / -approach;
+                float along = ((x + dx * t - x1) * segX + (y + dy * t - y1) * segY) / length;
+                if (t >= 0 && t <= 1 && along >= 0 && along <= length) {
+                    best = t;
+                    bestNx = nx * side;
+                    bestNy = ny * side;
+                }
+            }
+        }
+
+        // The two rounded ends
+        for (int end = 0; end < 2; end++) {
+            float endX = end == 0 ? x1 : x2;
+            float endY = end == 0 ? y1 : y2;
+            float t = sweepCirclePoint(x, y, dx, dy, reach, endX, endY);
+            if (t != NO_HIT && (best == NO_HIT || t < best)) {
+                best = t;
+                bestNx = (x + dx * t - endX) / reach;
+                bestNy = (y + dy * t - endY) / reach;
+            }
+        }
+
+        if (best != NO_HIT) {
+            normal[0] = bestNx;
+            normal[1] = bestNy;
+        }
+        return best;
+    }
+
+    /**
+     * Finds the first time at which a moving circle touches a fixed point.
+     *
+     * @return The time of impact in [0, 1], or {@link #NO_HIT}.
+     */
+    private static float sweepCirclePoint(float x, float y, float dx, float dy, float radius,
+                                          float pointX, float pointY) {
+        float mx = x - pointX;
+        float my = y - pointY;
+        float b = mx * dx + my * dy;
+        float c = mx * mx + my * my - radius * radius;
+        // Starting inside the circle, or moving away from the point
+        if (c < 0 || b >= 0) {
+            return NO_HIT;
+        }
+        float a = dx * dx + dy * dy;
+        float discriminant = b * b - a * c;
+        if (a == 0 || discriminant < 0) {
+            return NO_HIT;
+        }
+        float t = (-b - (float) Math.sqrt(discriminant)) / a;
+        return t >= 0 && t <= 1 ? t : NO_HIT;
+    }
+}
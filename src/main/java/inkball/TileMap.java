@@ -0,0 +1,440 @@
+package inkball;
+
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+import java.util.Arrays;
+
+/**
+ * The TileMap class stores the static wall tiles of a level layout compactly, using a single
+ * byte per cell holding the wall's color (or {@link #EMPTY} if the cell has no wall).
+ * Collisions, ball color changes and drawing are all read directly from this array, so a
+ * layout does not need a separate Wall object per tile. The wall images are shared by all
+ * tiles of the same color.
+ *
+ * <p>For collisions and drawing, runs of same-colored tiles are merged greedily into as few
+ * rectangles as possible. A ball sliding along a row of tiles then meets one flat surface instead
+ * of the seams between tiles, and fewer rectangles need to be tested per ball. The rectangles are
+ * rebuilt lazily after the layout changes.</p>
+ */
+public class TileMap {
+    /** Value stored in cells without a wall */
+    public static final byte EMPTY = -1;
+    /** Number of wall colors */
+    public static final int NUM_COLORS = BallColor.COUNT;
+
+    private final int originX;
+    private final int originY;
+    private final int cols;
+    private final int rows;
+    private final int cellSize;
+    /** Wall color per cell, stored row by row */
+    private final byte[] tiles;
+    private int wallCount;
+    /** Number of changes made to the layout, so baked data such as a {@link DistanceField} can tell it is stale */
+    private int version;
+
+    /** Shared wall images, one per color */
+    private PImage[] wallImages = new PImage[NUM_COLORS];
+    /** Cell indices of the walls in row order, built only when walls are accessed by index */
+    private int[] wallCells;
+
+    /** Whether the merged rectangles need rebuilding after the layout changed */
+    private boolean mergeDirty = true;
+    /** Index of the merged rectangle covering each cell, or -1 if the cell has no wall */
+    private final int[] cellRects;
+    private int rectCount;
+    /** Top-left cell, size in cells and color of each merged rectangle */
+    private int[] rectCol = new int[0];
+    private int[] rectRow = new int[0];
+    private int[] rectCols = new int[0];
+    private int[] rectRows = new int[0];
+    private int[] rectColor = new int[0];
+    /** {@code Wall.SIDE_} flags of the sides of each rectangle that are covered by other walls */
+    private int[] rectBlocked = new int[0];
+    /** Images of the merged rectangles, built on first draw */
+    private PImage[] rectImages;
+
+    /**
+     * Constructs an empty tile map covering the given area.
+     *
+     * @param originX  The x-coordinate of the top-left corner of the map.
+     * @param originY  The y-coordinate of the top-left corner of the map.
+     * @param cols     The number of columns in the map.
+     * @param rows     The number of rows in the map.
+     * @param cellSize The width and height of a single tile in pixels.
+     */
+    public TileMap(int originX, int originY, int cols, int rows, int cellSize) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cols = Math.max(cols, 0);
+        this.rows = Math.max(rows, 0);
+        this.cellSize = cellSize;
+        this.tiles = new byte[this.cols * this.rows];
+        Arrays.fill(tiles, EMPTY);
+        this.cellRects = new int[tiles.length];
+    }
+
+    /**
+     * Loads the shared wall images for every color.
+     *
+     * @param p The App instance used to load the images.
+     */
+    public void loadImages(App p) {
+        for (int color = 0; color < NUM_COLORS; color++) {
+            wallImages[color] = SpriteCache.get(p, SpriteCache.wallName(color));
+        }
+        rectImages = null;
+    }
+
+    public int getOriginX() { return originX; }
+    public int getOriginY() { return originY; }
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
+    public int getCellSize() { return cellSize; }
+    public int getWallCount() { return wallCount; }
+    public int getVersion() { return version; }
+
+    /**
+     * Returns the color of the wall in a cell.
+     *
+     * @param col The column of the cell.
+     * @param row The row of the cell.
+     * @return The wall color, or {@link #EMPTY} if there is no wall or the cell is outside the map.
+     */
+    public int getColor(int col, int row) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            return EMPTY;
+        }
+        return tiles[row * cols + col];
+    }
+
+    /**
+     * Checks whether a cell contains a wall.
+     *
+     * @param col The column of the cell.
+     * @param row The row of the cell.
+     * @return True if the cell contains a wall, otherwise false.
+     */
+    public boolean isWall(int col, int row) {
+        return getColor(col, row) != EMPTY;
+    }
+
+    /**
+     * Sets the wall color of a cell. Passing {@link #EMPTY} removes the wall.
+     *
+     * @param col   The column of the cell.
+     * @param row   The row of the cell.
+     * @param color The wall color (0-4), or {@link #EMPTY}.
+     */
+    public void setColor(int col, int row, int color) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Cell (" + col + ", " + row + ") is outside the tile map");
+        }
+        if (color != EMPTY && (color < 0 || color >= NUM_COLORS)) {
+            throw new IllegalArgumentException("Invalid wall color: " + color);
+        }
+        int index = row * cols + col;
+        if (tiles[index] == EMPTY && color != EMPTY) {
+            wallCount++;
+        } else if (tiles[index] != EMPTY && color == EMPTY) {
+            wallCount--;
+        }
+        tiles[index] = (byte) color;
+        wallCells = null;
+        mergeDirty = true;
+        version++;
+    }
+
+    /**
+     * Returns the number of rectangles the walls are merged into.
+     *
+     * @return The number of merged rectangles.
+     */
+    public int getRectCount() {
+        ensureMerged();
+        return rectCount;
+    }
+
+    /**
+     * Rebuilds the merged rectangles if the layout changed since they were last built. This is
+     * called before balls are stepped, so the rectangles are never built by several threads.
+     */
+    public void ensureMerged() {
+        if (!mergeDirty) {
+            return;
+        }
+        Arrays.fill(cellRects, -1);
+        rectCount = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int color = tiles[row * cols + col];
+                if (color == EMPTY || cellRects[row * cols + col] != -1) {
+                    continue;
+                }
+
+                // Extend right while the color matches, then down while whole rows match
+                int width = 1;
+                while (col + width < cols && isMergeable(col + width, row, color)) {
+                    width++;
+                }
+                int height = 1;
+                while (row + height < rows && isMergeableRow(col, row + height, width, color)) {
+                    height++;
+                }
+                addRect(col, row, width, height, color);
+            }
+        }
+        for (int rect = 0; rect < rectCount; rect++) {
+            rectBlocked[rect] = findBlockedSides(rect);
+        }
+        rectImages = null;
+        mergeDirty = false;
+    }
+
+    private boolean isMergeable(int col, int row, int color) {
+        int index = row * cols + col;
+        return tiles[index] == color && cellRects[index] == -1;
+    }
+
+    private boolean isMergeableRow(int col, int row, int width, int color) {
+        for (int i = 0; i < width; i++) {
+            if (!isMergeable(col + i, row, color)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addRect(int col, int row, int width, int height, int color) {
+        if (rectCount == rectCol.length) {
+            int capacity = Math.max(16, rectCount * 2);
+            rectCol = Arrays.copyOf(rectCol, capacity);
+            rectRow = Arrays.copyOf(rectRow, capacity);
+            rectCols = Arrays.copyOf(rectCols, capacity);
+            rectRows = Arrays.copyOf(rectRows, capacity);
+            rectColor = Arrays.copyOf(rectColor, capacity);
+            rectBlocked = Arrays.copyOf(rectBlocked, capacity);
+        }
+        rectCol[rectCount] = col;
+        rectRow[rectCount] = row;
+        rectCols[rectCount] = width;
+        rectRows[rectCount] = height;
+        rectColor[rectCount] = color;
+        for (int r = row; r < row + height; r++) {
+            Arrays.fill(cellRects, r * cols + col, r * cols + col + width, rectCount);
+        }
+        rectCount++;
+    }
+
+    /**
+     * Finds the sides of a rectangle along which every neighbouring cell is a wall. A ball can
+     * never be pushed out through such a side.
+     */
+    private int findBlockedSides(int rect) {
+        int col = rectCol[rect];
+        int row = rectRow[rect];
+        int width = rectCols[rect];
+        int height = rectRows[rect];
+        boolean left = col > 0;
+        boolean right = col + width < cols;
+        for (int r = row; r < row + height; r++) {
+            left &= isWall(col - 1, r);
+            right &= isWall(col + width, r);
+        }
+        boolean top = row > 0;
+        boolean bottom = row + height < rows;
+        for (int c = col; c < col + width; c++) {
+            top &= isWall(c, row - 1);
+            bottom &= isWall(c, row + height);
+        }
+        return (left ? Wall.SIDE_LEFT : 0) | (right ? Wall.SIDE_RIGHT : 0)
+                | (top ? Wall.SIDE_TOP : 0) | (bottom ? Wall.SIDE_BOTTOM : 0);
+    }
+
+    /**
+     * Returns a read-only Wall view of the tile in a cell. Each call creates a new view, and
+     * the tile is changed through {@link #setColor} rather than through the view.
+     *
+     * @param col The column of the cell.
+     * @param row The row of the cell.
+     * @return A Wall describing the tile, or null if the cell has no wall.
+     */
+    public Wall getWallAt(int col, int row) {
+        int color = getColor(col, row);
+        if (color == EMPTY) {
+            return null;
+        }
+        return new Wall(wallImages[color], originX + col * cellSize, originY + row * cellSize, color);
+    }
+
+    /**
+     * Returns a read-only Wall view of the wall with the given index, counting walls row by row.
+     *
+     * @param index The index of the wall, between 0 and {@link #getWallCount()} - 1.
+     * @return A Wall describing the tile.
+     */
+    public Wall getWall(int index) {
+        if (index < 0 || index >= wallCount) {
+            throw new IndexOutOfBoundsException("Wall index " + index + " out of range");
+        }
+        if (wallCells == null) {
+            wallCells = new int[wallCount];
+            int next = 0;
+            for (int i = 0; i < tiles.length; i++) {
+                if (tiles[i] != EMPTY) {
+                    wallCells[next++] = i;
+                }
+            }
+        }
+        int cell = wallCells[index];
+        return getWallAt(cell % cols, cell / cols);
+    }
+
+    /**
+     * Checks for collisions between the ball and the merged wall rectangles it overlaps.
+     * Only the cells under the ball's bounding box are examined, and each rectangle is resolved
+     * once, at the first of its cells inside the box.
+     *
+     * @param ball The Ball object to check for collision.
+     * @param p    The App instance, used for updating the ball's color if necessary.
+     * @return True if the ball collided with any tile, otherwise false.
+     */
+    public boolean checkCollision(Ball ball, App p) {
+        ensureMerged();
+        boolean collided = false;
+        float radius = ball.getRadius();
+        int minCol = Math.max(0, Math.floorDiv((int) Math.floor(ball.getX() - radius) - originX, cellSize));
+        int maxCol = Math.min(cols - 1, Math.floorDiv((int) Math.ceil(ball.getX() + radius) - originX, cellSize));
+        int minRow = Math.max(0, Math.floorDiv((int) Math.floor(ball.getY() - radius) - originY, cellSize));
+        int maxRow = Math.min(rows - 1, Math.floorDiv((int) Math.ceil(ball.getY() + radius) - originY, cellSize));
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int rect = cellRects[row * cols + col];
+                if (rect == -1 || !isFirstCellInBox(rect, col, row, minCol, minRow)) {
+                    continue;
+                }
+                if (Wall.resolveCollision(ball, originX + rectCol[rect] * cellSize, originY + rectRow[rect] * cellSize,
+                        rectCols[rect] * cellSize, rectRows[rect] * cellSize, rectColor[rect], rectBlocked[rect], p)) {
+                    collided = true;
+                }
+            }
+        }
+        return collided;
+    }
+
+    /**
+     * Finds the first wall rectangle a moving ball would touch during a step, and records it in
+     * the hit if it is earlier than the hit found so far. Only the cells covered by the
+     * ball's path are examined.
+     *
+     * @param x      The x-coordinate of the ball at the start of the step.
+     * @param y      The y-coordinate of the ball at the start of the step.
+     * @param dx     The x displacement of the ball during the step.
+     * @param dy     The y displacement of the ball during the step.
+     * @param radius The radius of the ball.
+     * @param hit    The hit record to update.
+     */
+    public void sweep(float x, float y, float dx, float dy, float radius, SweepHit hit) {
+        ensureMerged();
+        int minCol = Math.max(0, Math.floorDiv((int) Math.floor(Math.min(x, x + dx) - radius) - originX, cellSize));
+        int maxCol = Math.min(cols - 1, Math.floorDiv((int) Math.ceil(Math.max(x, x + dx) + radius) - originX, cellSize));
+        int minRow = Math.max(0, Math.floorDiv((int) Math.floor(Math.min(y, y + dy) - radius) - originY, cellSize));
+        int maxRow = Math.min(rows - 1, Math.floorDiv((int) Math.ceil(Math.max(y, y + dy) + radius) - originY, cellSize));
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int rect = cellRects[row * cols + col];
+                if (rect == -1 || !isFirstCellInBox(rect, col, row, minCol, minRow)) {
+                    continue;
+                }
+                float rectX = originX + rectCol[rect] * cellSize;
+                float rectY = originY + rectRow[rect] * cellSize;
+                float time = SweptCollision.sweepCircleAabb(x, y, dx, dy, radius, rectX, rectY,
+                        rectX + rectCols[rect] * cellSize, rectY + rectRows[rect] * cellSize, hit.candidateNormal);
+                if (time != SweptCollision.NO_HIT && clipNormal(hit.candidateNormal, rectBlocked[rect]) && hit.offer(time)) {
+                    hit.color = rectColor[rect];
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a cell is the first cell of a rectangle inside a query box, so that a
+     * rectangle spanning several cells of the box is only tested once.
+     */
+    private boolean isFirstCellInBox(int rect, int col, int row, int minCol, int minRow) {
+        return col == Math.max(minCol, rectCol[rect]) && row == Math.max(minRow, rectRow[rect]);
+    }
+
+    /**
+     * Removes the parts of a contact normal that point out of blocked sides, since a ball can
+     * only reach a rectangle's corner through its open sides.
+     *
+     * @return False if nothing of the normal is left, otherwise true.
+     */
+    private static boolean clipNormal(float[] normal, int blockedSides) {
+        if (blockedSides == 0 || blockedSides == Wall.ALL_SIDES) {
+            return true;
+        }
+        if ((normal[0] < 0 && (blockedSides & Wall.SIDE_LEFT) != 0) || (normal[0] > 0 && (blockedSides & Wall.SIDE_RIGHT) != 0)) {
+            normal[0] = 0;
+        }
+        if ((normal[1] < 0 && (blockedSides & Wall.SIDE_TOP) != 0) || (normal[1] > 0 && (blockedSides & Wall.SIDE_BOTTOM) != 0)) {
+            normal[1] = 0;
+        }
+        float length = (float) Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1]);
+        if (length == 0) {
+            return false;
+        }
+        normal[0] /= length;
+        normal[1] /= length;
+        return true;
+    }
+
+    /**
+     * Draws every merged wall rectangle. Each rectangle's image is tiled from the shared images
+     * for its color once, so drawing costs one image per rectangle instead of one per tile.
+     *
+     * @param p The App instance used for drawing.
+     */
+    public void draw(App p) {
+        drawTo(p, p.g);
+    }
+
+    /**
+     * Draws every merged wall rectangle onto a graphics buffer, such as a level's static layer.
+     *
+     * @param p The App instance used to create the rectangle images.
+     * @param g The graphics buffer to draw on.
+     */
+    public void drawTo(App p, PGraphics g) {
+        ensureMerged();
+        if (rectImages == null) {
+            rectImages = new PImage[rectCount];
+        }
+        for (int rect = 0; rect < rectCount; rect++) {
+            PImage tile = wallImages[rectColor[rect]];
+            if (tile == null) {
+                continue;
+            }
+            if (rectImages[rect] == null) {
+                rectImages[rect] = buildRectImage(rect, tile, p);
+            }
+            g.image(rectImages[rect], originX + rectCol[rect] * cellSize, originY + rectRow[rect] * cellSize,
+                    rectCols[rect] * cellSize, rectRows[rect] * cellSize);
+        }
+    }
+
+    private PImage buildRectImage(int rect, PImage tile, App p) {
+        PImage image = p.createImage(rectCols[rect] * cellSize, rectRows[rect] * cellSize, PConstants.ARGB);
+        for (int r = 0; r < rectRows[rect]; r++) {
+            for (int c = 0; c < rectCols[rect]; c++) {
+                image.copy(tile, 0, 0, tile.width, tile.height, c * cellSize, r * cellSize, cellSize, cellSize);
+            }
+        }
+        return image;
+    }
+}
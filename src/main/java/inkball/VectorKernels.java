@@ -0,0 +1,47 @@
+package inkball;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The float loops of {@link BallKernels} written with the incubating Java Vector API, which
+ * handles as many balls per instruction as the widest vector register of the CPU holds. Lanes
+ * are worked out with the same operations in the same order as the scalar loops, so the results
+ * are identical.
+ *
+ * <p>This class is only loaded when the jdk.incubator.vector module is present at run time,
+ * which {@link BallKernels#VECTOR_API} checks before calling it.</p>
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Clamps the first values of an array to a range.
+     */
+    static void clamp(float[] values, int count, float min, float max) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, values, i).min(max).max(min).intoArray(values, i);
+        }
+        for (; i < count; i++) {
+            values[i] = Math.max(min, Math.min(max, values[i]));
+        }
+    }
+
+    /**
+     * Adds scaled velocities to positions, keeping their sub-pixel part.
+     */
+    static void addScaled(float[] positions, float[] velocities, float scale, int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            FloatVector velocity = FloatVector.fromArray(SPECIES, velocities, i).mul(scale);
+            FloatVector.fromArray(SPECIES, positions, i).add(velocity).intoArray(positions, i);
+        }
+        for (; i < count; i++) {
+            positions[i] += velocities[i] * scale;
+        }
+    }
+}
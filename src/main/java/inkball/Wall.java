@@ -1,22 +1,29 @@
 package inkball;
 
+import processing.core.PGraphics;
 import processing.core.PImage;
-import processing.core.PVector;
 
 /**
  * The Wall class represents a wall in the Inkball game. Walls are stationary objects
- * that interact with balls when they collide. Each wall has a position, a color, and
- * a collision buffer to control collision detection frequency.
+ * that interact with balls when they collide. Each wall has a position and a color. Walls loaded from a level
+ * layout are stored compactly in a {@link TileMap}, which hands out Wall objects as read-only views.
  */
 public class Wall extends Entity implements Drawable {
     PImage wallImage;
     int width;
     int height;
-    /** Buffer to reduce frequent collision detection */
-    int collisionBuffer;
-    /** Minimum frames between collision checks */
+    /** Whether the wall is a view of a tile in a {@link TileMap}, which cannot be moved through it */
+    private final boolean view;
+    /** Frames at {@link App#FPS} during which a ball that hit the wall is not tested against it again */
     public static final int BUFFER_THRESHOLD = 5;
 
+    /** Side flags for {@link #resolveCollision(Ball, int, int, int, int, int, int, App)} */
+    static final int SIDE_LEFT = 1;
+    static final int SIDE_RIGHT = 2;
+    static final int SIDE_TOP = 4;
+    static final int SIDE_BOTTOM = 8;
+    static final int ALL_SIDES = SIDE_LEFT | SIDE_RIGHT | SIDE_TOP | SIDE_BOTTOM;
+
     /**
      * Constructs a Wall object.
      *
@@ -29,19 +36,59 @@ public class Wall extends Entity implements Drawable {
         super(x, y, color);
         this.width = 32;
         this.height = 32;
-        this.collisionBuffer = 0;
+        this.view = false;
         loadImage(p);
     }
 
+    /**
+     * Constructs a lightweight Wall view of a tile stored in a {@link TileMap}.
+     * The image is shared with the tile map instead of being loaded again. The view is a copy
+     * of the tile, so it cannot be moved; the tile is changed through the tile map instead.
+     *
+     * @param wallImage The shared image for the wall's color.
+     * @param x         The x-coordinate of the wall.
+     * @param y         The y-coordinate of the wall.
+     * @param color     The color of the wall.
+     */
+    Wall(PImage wallImage, int x, int y, int color) {
+        super(x, y, color);
+        this.width = App.CELLSIZE;
+        this.height = App.CELLSIZE;
+        this.wallImage = wallImage;
+        this.view = true;
+    }
+
     public int getX() { return this.x; }
     public int getY() { return this.y; }
+
+    /**
+     * Moves the wall horizontally.
+     *
+     * @param x The new x-coordinate of the wall.
+     * @throws UnsupportedOperationException If the wall is a view of a tile map tile.
+     */
     public void setX(int x) {
+        checkNotView();
         this.x = x;
     }
+
+    /**
+     * Moves the wall vertically.
+     *
+     * @param y The new y-coordinate of the wall.
+     * @throws UnsupportedOperationException If the wall is a view of a tile map tile.
+     */
     public void setY(int y) {
+        checkNotView();
         this.y = y;
     }
 
+    private void checkNotView() {
+        if (view) {
+            throw new UnsupportedOperationException("Walls loaded from the layout cannot be modified");
+        }
+    }
+
     /**
      * Loads the image for the wall based on its color.
      *
@@ -49,7 +96,7 @@ public class Wall extends Entity implements Drawable {
      */
     @Override
     public void loadImage(App p) {
-        wallImage = p.loadImage("inkball/wall" + color + ".png");  // Load the image based on the wall's color
+        wallImage = SpriteCache.get(p, SpriteCache.wallName(color));  // Share the image of the wall's color
     }
 
     /**
@@ -58,70 +105,173 @@ public class Wall extends Entity implements Drawable {
      *
      * @param ball The Ball object to check for collision.
      * @param p    The App instance, used for updating the ball's color if necessary.
+     * @return True if a collision was detected, otherwise false.
+     */
+    public boolean checkCollision(Ball ball, App p) {
+        return resolveCollision(ball, x, y, width, height, color, p);
+    }
+
+    /**
+     * Resolves a collision between a ball and an axis-aligned wall rectangle. If the ball overlaps
+     * the rectangle, it is pushed out along the side of least overlap, its velocity is reflected,
+     * and its color may be updated to match the wall's color. This is shared by individual walls
+     * and the tiles of a {@link TileMap}.
+     *
+     * @param ball   The Ball object to check for collision.
+     * @param x      The x-coordinate of the wall rectangle.
+     * @param y      The y-coordinate of the wall rectangle.
+     * @param width  The width of the wall rectangle.
+     * @param height The height of the wall rectangle.
+     * @param color  The color of the wall.
+     * @param p      The App instance, used for updating the ball's color if necessary.
+     * @return True if a collision was detected and resolved, otherwise false.
      */
-    public void checkCollision(Ball ball, App p) {
-        collisionBuffer++;  // Increment the collision buffer to prevent continuous detection
-
-        // Check for collision only if the buffer threshold is reached
-        if (collisionBuffer >= BUFFER_THRESHOLD) {
-
-            // Check if the ball's bounding box intersects with the wall
-            if (ball.getX() + ball.getRadius() > x && ball.getX() - ball.getRadius() < x + width &&
-                    ball.getY() + ball.getRadius() > y && ball.getY() - ball.getRadius() < y + height) {
-
-                // Calculate overlap distances between the ball and the wall on each side
-                float overlapLeft = (ball.getX() + ball.getRadius()) - x;
-                float overlapRight = (x + width) - (ball.getX() - ball.getRadius());
-                float overlapTop = (ball.getY() + ball.getRadius()) - y;
-                float overlapBottom = (y + height) - (ball.getY() - ball.getRadius());
-
-                // Find the minimum overlap distance on both x and y axes
-                float minOverlapX = Math.min(overlapLeft, overlapRight);
-                float minOverlapY = Math.min(overlapTop, overlapBottom);
-
-                PVector normal;
-
-                // Determine the side of the wall the ball collided with (horizontal or vertical)
-                if (minOverlapX < minOverlapY) {
-
-                    // Horizontal collision
-                    if (overlapLeft < overlapRight) {
-                        normal = new PVector(-1, 0);  // Left side
-                        ball.setX((int) (ball.getX() - overlapLeft));  // Adjust the ball's position
-                    } else {
-                        normal = new PVector(1, 0);  // Right side
-                        ball.setX((int) (ball.getX() + overlapRight));  // Adjust the ball's position
-                    }
-
-                } else {
-
-                    // Vertical collision
-                    if (overlapTop < overlapBottom) {
-                        normal = new PVector(0, -1);  // Top side
-                        ball.setY((int) (ball.getY() - overlapTop));  // Adjust the ball's position
-                    } else {
-                        normal = new PVector(0, 1);  // Bottom side
-                        ball.setY((int) (ball.getY() + overlapBottom));  // Adjust the ball's position
-                    }
-                }
-
-                // Reflect the ball's velocity based on the collision normal
-                PVector velocity = new PVector(ball.getXVelocity(), ball.getYVelocity());
-                PVector reflectedVelocity = PVector.sub(velocity, PVector.mult(normal, 2 * velocity.dot(normal)));
-
-                // Update the ball's velocity after the collision
-                ball.setXVelocity(reflectedVelocity.x);
-                ball.setYVelocity(reflectedVelocity.y);
-
-                // Update the ball's color to match the wall's color (except for color 0)
-                if (color != 0) {
-                    ball.setColor(this.color, p);  // Change the ball's color to match the wall's
-                }
-
-                // Reset the collision buffer after detecting a collision
-                collisionBuffer = 0;
+    static boolean resolveCollision(Ball ball, int x, int y, int width, int height, int color, App p) {
+        return resolveCollision(ball, x, y, width, height, color, 0, p);
+    }
+
+    /**
+     * Resolves a collision between a ball and a wall rectangle whose blocked sides are flush
+     * against other walls. The ball is never pushed out through a blocked side, so it does not
+     * snag on the seams between neighbouring walls.
+     *
+     * @param ball         The Ball object to check for collision.
+     * @param x            The x-coordinate of the wall rectangle.
+     * @param y            The y-coordinate of the wall rectangle.
+     * @param width        The width of the wall rectangle.
+     * @param height       The height of the wall rectangle.
+     * @param color        The color of the wall.
+     * @param blockedSides The {@code SIDE_} flags of the sides covered by other walls.
+     * @param p            The App instance, used for updating the ball's color if necessary.
+     * @return True if a collision was detected and resolved, otherwise false.
+     */
+    static boolean resolveCollision(Ball ball, int x, int y, int width, int height, int color, int blockedSides, App p) {
+        // A ball inside a wall with no open side is pushed out the shortest way
+        if (blockedSides == ALL_SIDES) {
+            blockedSides = 0;
+        }
+        if (ball.isFixedPoint()) {
+            return resolveCollisionFixed(ball, x, y, width, height, color, blockedSides, p);
+        }
+
+        // Check if the ball's bounding box intersects with the wall
+        if (!(ball.getX() + ball.getRadius() > x && ball.getX() - ball.getRadius() < x + width &&
+                ball.getY() + ball.getRadius() > y && ball.getY() - ball.getRadius() < y + height)) {
+            return false;
+        }
+
+        // Calculate overlap distances between the ball and the wall on each side
+        float overlapLeft = (ball.getX() + ball.getRadius()) - x;
+        float overlapRight = (x + width) - (ball.getX() - ball.getRadius());
+        float overlapTop = (ball.getY() + ball.getRadius()) - y;
+        float overlapBottom = (y + height) - (ball.getY() - ball.getRadius());
+        if ((blockedSides & SIDE_LEFT) != 0) overlapLeft = Float.MAX_VALUE;
+        if ((blockedSides & SIDE_RIGHT) != 0) overlapRight = Float.MAX_VALUE;
+        if ((blockedSides & SIDE_TOP) != 0) overlapTop = Float.MAX_VALUE;
+        if ((blockedSides & SIDE_BOTTOM) != 0) overlapBottom = Float.MAX_VALUE;
+
+        // Find the minimum overlap distance on both x and y axes
+        float minOverlapX = Math.min(overlapLeft, overlapRight);
+        float minOverlapY = Math.min(overlapTop, overlapBottom);
+
+        float normalX;
+        float normalY;
+
+        // Determine the side of the wall the ball collided with (horizontal or vertical)
+        // Positions are rounded away from the wall so that no fractional overlap remains
+        if (minOverlapX < minOverlapY) {
+
+            // Horizontal collision
+            normalY = 0;
+            if (overlapLeft < overlapRight) {
+                normalX = -1;  // Left side
+                ball.setX((int) Math.floor(ball.getX() - overlapLeft));  // Adjust the ball's position
+            } else {
+                normalX = 1;  // Right side
+                ball.setX((int) Math.ceil(ball.getX() + overlapRight));  // Adjust the ball's position
             }
+
+        } else {
+
+            // Vertical collision
+            normalX = 0;
+            if (overlapTop < overlapBottom) {
+                normalY = -1;  // Top side
+                ball.setY((int) Math.floor(ball.getY() - overlapTop));  // Adjust the ball's position
+            } else {
+                normalY = 1;  // Bottom side
+                ball.setY((int) Math.ceil(ball.getY() + overlapBottom));  // Adjust the ball's position
+            }
+        }
+
+        // Reflect the ball's velocity based on the collision normal
+        float vx = ball.getXVelocity();
+        float vy = ball.getYVelocity();
+        float dot = vx * normalX + vy * normalY;
+        ball.setXVelocity(vx - 2 * dot * normalX);
+        ball.setYVelocity(vy - 2 * dot * normalY);
+
+        // Update the ball's color to match the wall's color (except for color 0)
+        if (color != 0) {
+            ball.setColor(color, p);  // Change the ball's color to match the wall's
+        }
+        return true;
+    }
+
+    /**
+     * Resolves a collision between a ball held in 16.16 fixed point and a wall rectangle, in the
+     * same way as {@link #resolveCollision}. The ball is moved exactly onto the wall's surface.
+     *
+     * @param ball   The Ball object to check for collision, bound to a fixed-point store.
+     * @param x      The x-coordinate of the wall rectangle.
+     * @param y      The y-coordinate of the wall rectangle.
+     * @param width  The width of the wall rectangle.
+     * @param height The height of the wall rectangle.
+     * @param color  The color of the wall.
+     * @param blockedSides The {@code SIDE_} flags of the sides covered by other walls.
+     * @param p      The App instance, used for updating the ball's color if necessary.
+     * @return True if a collision was detected and resolved, otherwise false.
+     */
+    static boolean resolveCollisionFixed(Ball ball, int x, int y, int width, int height, int color, int blockedSides, App p) {
+        BallStore store = ball.store;
+        int slot = ball.slot;
+        int ballX = store.fx[slot];
+        int ballY = store.fy[slot];
+        int radius = store.fradius[slot];
+        int left = FixedPoint.fromInt(x);
+        int top = FixedPoint.fromInt(y);
+        int right = FixedPoint.fromInt(x + width);
+        int bottom = FixedPoint.fromInt(y + height);
+
+        // Check if the ball's bounding box intersects with the wall
+        if (!(ballX + radius > left && ballX - radius < right && ballY + radius > top && ballY - radius < bottom)) {
+            return false;
+        }
+
+        // Calculate overlap distances between the ball and the wall on each side
+        int overlapLeft = ballX + radius - left;
+        int overlapRight = right - (ballX - radius);
+        int overlapTop = ballY + radius - top;
+        int overlapBottom = bottom - (ballY - radius);
+        if ((blockedSides & SIDE_LEFT) != 0) overlapLeft = Integer.MAX_VALUE;
+        if ((blockedSides & SIDE_RIGHT) != 0) overlapRight = Integer.MAX_VALUE;
+        if ((blockedSides & SIDE_TOP) != 0) overlapTop = Integer.MAX_VALUE;
+        if ((blockedSides & SIDE_BOTTOM) != 0) overlapBottom = Integer.MAX_VALUE;
+
+        // Push the ball out along the side of least overlap and reflect its velocity
+        if (Math.min(overlapLeft, overlapRight) < Math.min(overlapTop, overlapBottom)) {
+            store.fx[slot] = overlapLeft < overlapRight ? ballX - overlapLeft : ballX + overlapRight;
+            store.fvx[slot] = -store.fvx[slot];
+        } else {
+            store.fy[slot] = overlapTop < overlapBottom ? ballY - overlapTop : ballY + overlapBottom;
+            store.fvy[slot] = -store.fvy[slot];
         }
+
+        // Update the ball's color to match the wall's color (except for color 0)
+        if (color != 0) {
+            ball.setColor(color, p);
+        }
+        return true;
     }
 
     /**
@@ -134,6 +284,15 @@ public class Wall extends Entity implements Drawable {
         p.image(wallImage, x, y, width, height);
     }
 
+    /**
+     * Draws the wall onto an offscreen graphics buffer, such as a level's static layer.
+     *
+     * @param g The graphics buffer to draw on.
+     */
+    public void drawTo(PGraphics g) {
+        g.image(wallImage, x, y, width, height);
+    }
+
     public int getColor() {
         return color;
     }
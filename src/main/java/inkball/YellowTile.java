@@ -9,6 +9,8 @@ import processing.core.PImage;
  */
 public class YellowTile extends Entity implements Drawable {
     private PImage yellowTileImage;
+    /** Region of the yellow tile's image in the {@link SpriteAtlas} */
+    private static final int SPRITE_REGION = SpriteAtlas.regionOf(SpriteCache.wallName(4));
     /** The direction of movement: 0=right, 1=down, 2=left, 3=up */
     private int direction;
 
@@ -34,7 +36,7 @@ public class YellowTile extends Entity implements Drawable {
      * @param p The App instance used to load the image.
      */
     public void loadImage(App p) {
-        yellowTileImage = p.loadImage("inkball/wall4.png");
+        yellowTileImage = SpriteCache.get(p, SpriteCache.wallName(4));
     }
 
     /**
@@ -47,6 +49,15 @@ public class YellowTile extends Entity implements Drawable {
         p.image(yellowTileImage, x, y, App.CELLSIZE, App.CELLSIZE);
     }
 
+    /**
+     * Adds the yellow tile to a sprite batch, to be drawn with the other sprites of the frame.
+     *
+     * @param batch The sprite batch to add the yellow tile to.
+     */
+    public void drawTo(SpriteBatch batch) {
+        batch.add(SPRITE_REGION, yellowTileImage, x, y, App.CELLSIZE, App.CELLSIZE);
+    }
+
     /**
      * Updates the position of the yellow tile, moving it clockwise around the perimeter.
      *
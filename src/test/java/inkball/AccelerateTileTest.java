@@ -25,7 +25,6 @@ public class AccelerateTileTest {
         assertEquals("up", tile.getDirection());
         assertEquals(32, tile.width);
         assertEquals(32, tile.height);
-        assertEquals(0, tile.collisionBuffer);
         assertNotNull(tile.tileImage);
     }
 
@@ -36,42 +35,26 @@ public class AccelerateTileTest {
         assertNotNull(tile.tileImage);
     }
 
-    @Test
-    public void testCheckCollision_NoCollisionBufferThreshold() {
-        // Test that checkCollision does not check collision when collisionBuffer < BUFFER_THRESHOLD
-        AccelerateTile tile = new AccelerateTile(0, 0, "up", app);
-        Ball ball = new Ball(0, 0, 0, 12, app);
-        tile.collisionBuffer = 0;
-        tile.checkCollision(ball);
-        assertEquals(1, tile.collisionBuffer);
-    }
-
     @Test
     public void testCheckCollision_NoCollisionDetected() {
-        // Test that when collisionBuffer >= BUFFER_THRESHOLD and no collision is detected, applyAcceleration is not called
+        // Test that when no collision is detected, applyAcceleration is not called
         AccelerateTile tile = new AccelerateTile(0, 0, "up", app);
         Ball ball = new Ball(1000, 1000, 0, 12, app); // Place ball far away
-        tile.collisionBuffer = AccelerateTile.BUFFER_THRESHOLD;
-        tile.checkCollision(ball);
+        assertFalse(tile.checkCollision(ball));
         // Ball's velocity should remain unchanged
         assertEquals(ball.getInitialXVelocity(), ball.getXVelocity());
         assertEquals(ball.getInitialYVelocity(), ball.getYVelocity());
-        // collisionBuffer should be incremented
-        assertEquals(AccelerateTile.BUFFER_THRESHOLD + 1, tile.collisionBuffer);
     }
 
     @Test
     public void testCheckCollision_CollisionDetected() {
-        // Test that when collisionBuffer >= BUFFER_THRESHOLD and collision is detected, applyAcceleration is called
+        // Test that when a collision is detected, applyAcceleration is called
         AccelerateTile tile = new AccelerateTile(0, 0, "up", app);
         Ball ball = new Ball(10, 10, 0, 12, app); // Place ball within tile
-        tile.collisionBuffer = AccelerateTile.BUFFER_THRESHOLD;
         float initialYVelocity = ball.getYVelocity();
-        tile.checkCollision(ball);
+        assertTrue(tile.checkCollision(ball));
         // Ball's Y velocity should be decreased by ACCELERATION_AMOUNT
         assertEquals(initialYVelocity - AccelerateTile.ACCELERATION_AMOUNT, ball.getYVelocity());
-        // collisionBuffer should be reset to 0
-        assertEquals(0, tile.collisionBuffer);
     }
 
     @Test
@@ -167,24 +150,4 @@ public class AccelerateTileTest {
         });
         assertEquals("Invalid acceleration direction: invalid", exception.getMessage());
     }
-
-    @Test
-    public void testCollisionBufferResetAfterCollision() {
-        // Test that collisionBuffer resets to 0 after a collision is detected
-        AccelerateTile tile = new AccelerateTile(0, 0, "up", app);
-        Ball ball = new Ball(10, 10, 0xFF0000, 12, app);
-        tile.collisionBuffer = AccelerateTile.BUFFER_THRESHOLD;
-        tile.checkCollision(ball);
-        assertEquals(0, tile.collisionBuffer);
-    }
-
-    @Test
-    public void testCollisionBufferIncrementsWhenNoCollision() {
-        // Test that collisionBuffer increments when no collision is detected
-        AccelerateTile tile = new AccelerateTile(0, 0, "up", app);
-        Ball ball = new Ball(1000, 1000, 0xFF0000, 12, app); // Ball far away
-        tile.collisionBuffer = AccelerateTile.BUFFER_THRESHOLD;
-        tile.checkCollision(ball);
-        assertEquals(AccelerateTile.BUFFER_THRESHOLD + 1, tile.collisionBuffer);
-    }
 }
@@ -6,6 +6,7 @@ import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.event.KeyEvent;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -687,6 +688,132 @@ public class AppTest {
         assertTrue(app.timerFinished);
     }
 
+    @Test
+    public void testStepPhysics_RunsFixedSteps() {
+        // Physics should run one step per elapsed step length, independently of the frame rate
+        app.physicsRate = 120;
+        app.isPaused = true;
+        app.tickCount = 0;
+        app.stepAccumulator = 0;
+        app.lastStepTime = System.nanoTime() - 100_000_000L; // A slow 100 ms frame
+
+        app.stepPhysics();
+
+        assertTrue(app.tickCount >= 12);
+        assertTrue(app.stepAccumulator < 1_000_000_000L / 120);
+        app.physicsRate = App.FPS;
+        app.isPaused = false;
+    }
+
+    @Test
+    public void testStepPhysics_LimitsCatchUp() {
+        // Very long frames should only be caught up to the maximum frame time
+        app.physicsRate = App.FPS;
+        app.isPaused = true;
+        app.tickCount = 0;
+        app.stepAccumulator = 0;
+        app.lastStepTime = System.nanoTime() - 5_000_000_000L;
+
+        app.stepPhysics();
+
+        assertEquals(App.MAX_FRAME_NANOS / (1_000_000_000L / App.FPS), app.tickCount);
+        app.isPaused = false;
+    }
+
+    @Test
+    public void testTimeScale() {
+        // Balls should cover the same distance per second at any physics rate
+        app.physicsRate = 120;
+        assertEquals(0.25f, app.getTimeScale(), 0.0001);
+        assertEquals(120, app.secondsToTicks(1));
+        assertEquals(8, app.secondsToTicks(2f / App.FPS));
+        app.physicsRate = App.FPS;
+        assertEquals(1f, app.getTimeScale(), 0.0001);
+        assertEquals(2, app.secondsToTicks(2f / App.FPS));
+    }
+
+    @Test
+    public void testUpdateGame_SteadyStateDoesNotAllocate() {
+        // Balls bouncing in a walled area near a hole and a line should not allocate once warmed up
+        Level level = new Level(0, app.configReader, app);
+        for (int col = 0; col < App.BOARD_WIDTH; col++) {
+            level.tileMap.setColor(col, 0, 0);
+            level.tileMap.setColor(col, 9, 0);
+        }
+        for (int row = 0; row < 10; row++) {
+            level.tileMap.setColor(0, row, 0);
+            level.tileMap.setColor(App.BOARD_WIDTH - 1, row, 0);
+        }
+        level.getWalls().add(new Wall(9 * App.CELLSIZE, App.TOPBAR + 5 * App.CELLSIZE, 0, app));
+        level.getHoles().add(new Hole(2 * App.CELLSIZE, App.TOPBAR + 11 * App.CELLSIZE, 0, app));
+        for (int i = 0; i < 20; i++) {
+            Ball ball = new Ball(60 + i * 23, App.TOPBAR + 60 + (i % 5) * 40, 0, 12, app);
+            ball.setIsActive(true);
+            level.addBall(ball);
+        }
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(100, 560);
+        line.addPoint(400, 560);
+        app.playerLines.add(line);
+
+        app.currentLevel = level;
+        app.spawnCounter = Integer.MAX_VALUE;
+        app.totalTime = 1000;
+        app.startTime = System.currentTimeMillis();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 5000; i++) {
+            app.tick();
+        }
+
+        // Subtract whatever reading the counter allocates itself
+        long start = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - start;
+
+        // The JIT can allocate once when it swaps in newly compiled code, so measure several
+        // windows: an allocation on the tick path itself shows up in every one of them
+        long leastAllocated = Long.MAX_VALUE;
+        for (int window = 0; window < 5; window++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 500; i++) {
+                app.tick();
+            }
+            leastAllocated = Math.min(leastAllocated, threads.getThreadAllocatedBytes(threadId) - before - overhead);
+        }
+
+        assertEquals(20, level.getBalls().size());
+        assertEquals(0, leastAllocated, "Bytes allocated by 500 steady-state ticks");
+    }
+
+    @Test
+    public void testUpdateGame_LineNotHitBeforeBallReachesIt() {
+        // At 120 steps per second the ball only covers a quarter of its velocity per step, so
+        // it should not bounce off a line it has not reached yet
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(100, 200);
+        line.addPoint(200, 200);
+        app.playerLines.add(line);
+        Ball ball = new Ball(150, 180, 0, 12, app);
+        ball.setXVelocity(0);
+        ball.setYVelocity(AccelerateTile.MAX_SPEED);
+        ball.setIsActive(true);
+        app.currentLevel.addBall(ball);
+        app.spawnCounter = Integer.MAX_VALUE;
+        app.totalTime = 1000;
+        app.startTime = System.currentTimeMillis();
+
+        app.physicsRate = 4 * App.FPS;
+        try {
+            app.updateGame();
+        } finally {
+            app.physicsRate = App.FPS;
+        }
+
+        assertEquals(AccelerateTile.MAX_SPEED, ball.getYVelocity(), 0.01);
+        assertEquals(2, line.getPointCount());
+    }
+
     @Test
     public void testSetRemainingTime() {
         // Test setting remaining time
@@ -0,0 +1,172 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import processing.core.PApplet;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class BallKernelsTest {
+
+    static App app;
+    static final int MIN_X = 0;
+    static final int MIN_Y = App.TOPBAR;
+    static final int MAX_X = App.WIDTH;
+    static final int MAX_Y = App.HEIGHT;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+    }
+
+    /**
+     * Creates a store of balls with random positions and velocities, some of them faster than
+     * the maximum speed. The same seed always gives the same balls.
+     */
+    private BallStore randomStore(int count, boolean fixedPoint, long seed) {
+        Random random = new Random(seed);
+        BallStore store = new BallStore(count, fixedPoint);
+        for (int i = 0; i < count; i++) {
+            Ball ball = new Ball(random.nextInt(App.WIDTH), App.TOPBAR + random.nextInt(App.HEIGHT - App.TOPBAR), 0, 12, app);
+            ball.setXVelocity(random.nextFloat() * 16 - 8);
+            ball.setYVelocity(random.nextFloat() * 16 - 8);
+            store.add(ball);
+        }
+        return store;
+    }
+
+    @Test
+    public void testIntegrate_MatchesScalar() {
+        // The batch kernel should give exactly the same state as updating each ball on its own
+        BallStore batch = randomStore(257, false, 7);
+        BallStore scalar = randomStore(257, false, 7);
+        for (int tick = 0; tick < 100; tick++) {
+            BallKernels.integrate(batch, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+            BallKernels.integrateScalar(scalar, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(scalar.x[i], batch.x[i]);
+            assertEquals(scalar.y[i], batch.y[i]);
+            assertEquals(scalar.vx[i], batch.vx[i]);
+            assertEquals(scalar.vy[i], batch.vy[i]);
+        }
+    }
+
+    @Test
+    public void testIntegrate_FixedPointMatchesScalar() {
+        // The fixed-point kernel should also match the ball-by-ball update bit for bit
+        BallStore batch = randomStore(257, true, 11);
+        BallStore scalar = randomStore(257, true, 11);
+        for (int tick = 0; tick < 100; tick++) {
+            BallKernels.integrate(batch, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+            BallKernels.integrateScalar(scalar, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(scalar.fx[i], batch.fx[i]);
+            assertEquals(scalar.fy[i], batch.fy[i]);
+            assertEquals(scalar.fvx[i], batch.fvx[i]);
+            assertEquals(scalar.fvy[i], batch.fvy[i]);
+        }
+    }
+
+    @Test
+    public void testIntegrate_ClampsSpeedAndPosition() {
+        // Fast balls should be slowed to the maximum speed and kept within the bounds
+        BallStore store = new BallStore();
+        Ball ball = new Ball(2, App.TOPBAR + 100, 0, 12, app);
+        ball.setXVelocity(-9);
+        ball.setYVelocity(1.5f);
+        store.add(ball);
+
+        BallKernels.integrate(store, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+
+        assertEquals(-AccelerateTile.MAX_SPEED, ball.getXVelocity());
+        assertEquals(1.5f, ball.getYVelocity());
+        assertEquals(MIN_X, ball.getX());
+        assertEquals(App.TOPBAR + 101, ball.getY());
+    }
+
+    @Test
+    public void testIntegrate_TimeScaleMatchesScalar() {
+        // A physics rate above the frame rate moves the balls by part of their velocity each step
+        app.physicsRate = 2 * App.FPS;
+        try {
+            for (boolean fixedPoint : new boolean[]{false, true}) {
+                BallStore batch = randomStore(1000, fixedPoint, 3);
+                BallStore scalar = randomStore(1000, fixedPoint, 3);
+                for (int tick = 0; tick < 50; tick++) {
+                    BallKernels.integrate(batch, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+                    BallKernels.integrateScalar(scalar, app, MIN_X, MIN_Y, MAX_X, MAX_Y);
+                }
+                assertArrayEquals(scalar.x, batch.x);
+                assertArrayEquals(scalar.y, batch.y);
+                assertArrayEquals(scalar.fx, batch.fx);
+                assertArrayEquals(scalar.fy, batch.fy);
+            }
+        } finally {
+            app.physicsRate = App.FPS;
+        }
+    }
+
+    @Test
+    public void testIntegrate_VectorsMatchLoops() {
+        // The Vector API path is only there when the incubator module is added at run time
+        if (!BallKernels.VECTOR_API) {
+            return;
+        }
+        // 257 balls leave a tail that the vector loop hands back to scalar code
+        BallStore vectors = randomStore(257, false, 5);
+        BallStore loops = randomStore(257, false, 5);
+        for (int tick = 0; tick < 100; tick++) {
+            BallKernels.integrate(vectors, app, MIN_X, MIN_Y, MAX_X, MAX_Y, true);
+            BallKernels.integrate(loops, app, MIN_X, MIN_Y, MAX_X, MAX_Y, false);
+        }
+        assertArrayEquals(loops.x, vectors.x);
+        assertArrayEquals(loops.y, vectors.y);
+        assertArrayEquals(loops.vx, vectors.vx);
+        assertArrayEquals(loops.vy, vectors.vy);
+    }
+
+    /**
+     * Times one way of moving the balls over a number of ticks, after a number of ticks to warm
+     * up, and returns the nanoseconds taken per ball per tick.
+     */
+    private float timeIntegrate(BallStore store, int warmUp, int ticks, Runnable step) {
+        for (int tick = 0; tick < warmUp; tick++) {
+            step.run();
+        }
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            step.run();
+        }
+        return (System.nanoTime() - start) / ((float) ticks * store.size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkIntegrate_BatchFasterThanPerBall() {
+        // Moving 10000 balls through the store's arrays should beat going through each Ball
+        int count = 10000;
+        // The Vector API path takes longer than the plain loops to be fully compiled
+        int warmUp = 10000;
+        int ticks = 2000;
+        BallStore perBall = randomStore(count, false, 13);
+        BallStore loops = randomStore(count, false, 13);
+        float perBallNanos = timeIntegrate(perBall, warmUp, ticks,
+                () -> BallKernels.integrateScalar(perBall, app, MIN_X, MIN_Y, MAX_X, MAX_Y));
+        float loopNanos = timeIntegrate(loops, warmUp, ticks,
+                () -> BallKernels.integrate(loops, app, MIN_X, MIN_Y, MAX_X, MAX_Y, false));
+        System.out.printf("BallKernels %d balls: %.2f ns per ball, %.2f ns with array loops%n",
+                count, perBallNanos, loopNanos);
+        assertTrue(loopNanos < perBallNanos);
+
+        if (BallKernels.VECTOR_API) {
+            BallStore vectors = randomStore(count, false, 13);
+            float vectorNanos = timeIntegrate(vectors, warmUp, ticks,
+                    () -> BallKernels.integrate(vectors, app, MIN_X, MIN_Y, MAX_X, MAX_Y, true));
+            System.out.printf("BallKernels %d balls: %.2f ns per ball with the Vector API%n", count, vectorNanos);
+            assertTrue(vectorNanos < perBallNanos);
+        }
+    }
+}
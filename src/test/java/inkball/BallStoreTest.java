@@ -0,0 +1,177 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import processing.core.PApplet;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+public class BallStoreTest {
+
+    static App app;
+    BallStore store;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        store = new BallStore(2);
+    }
+
+    @Test
+    public void testAdd_CopiesStateIntoArrays() {
+        // Adding a ball should copy its state into the store's arrays
+        Ball ball = new Ball(100, 150, 2, 12, app);
+        ball.setXVelocity(3);
+        ball.setYVelocity(-2);
+        ball.setIsActive(true);
+
+        store.add(ball);
+
+        assertEquals(1, store.size());
+        assertSame(ball, store.get(0));
+        assertEquals(100, store.x[0], 0.001);
+        assertEquals(150, store.y[0], 0.001);
+        assertEquals(3, store.vx[0], 0.001);
+        assertEquals(-2, store.vy[0], 0.001);
+        assertEquals(12, store.radius[0], 0.001);
+        assertEquals(2, store.color[0]);
+        assertTrue(store.active.get(0));
+    }
+
+    @Test
+    public void testHandle_ReadsAndWritesArrays() {
+        // A ball in the store should act as a handle to its slot
+        Ball ball = new Ball(100, 150, 2, 12, app);
+        store.add(ball);
+
+        store.x[0] = 120;
+        store.vy[0] = 4;
+        assertEquals(120, ball.getX());
+        assertEquals(4, ball.getYVelocity(), 0.001);
+
+        ball.setY(80);
+        ball.setRadius(6);
+        ball.setIsActive(true);
+        assertEquals(80, store.y[0], 0.001);
+        assertEquals(6, store.radius[0], 0.001);
+        assertTrue(store.active.get(0));
+    }
+
+    @Test
+    public void testRemove_KeepsStateAndShiftsSlots() {
+        // Removing a ball should detach it with its latest state and keep the order of the others
+        Ball first = new Ball(10, 10, 0, 12, app);
+        Ball second = new Ball(20, 20, 1, 12, app);
+        Ball third = new Ball(30, 30, 2, 12, app);
+        store.add(first);
+        store.add(second);
+        store.add(third);
+        third.setIsActive(true);
+        second.setX(25);
+
+        assertSame(second, store.remove(1));
+
+        assertEquals(25, second.getX());
+        assertNull(second.store);
+        assertEquals(2, store.size());
+        assertSame(third, store.get(1));
+        assertEquals(1, third.slot);
+        assertEquals(30, store.x[1], 0.001);
+        assertTrue(third.getIsActive());
+        assertFalse(store.active.get(2));
+    }
+
+    @Test
+    public void testRemoveAll_CompactsInOnePass() {
+        // Removing several balls at once should detach them and keep the others in order
+        Ball[] balls = new Ball[6];
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] = new Ball(10 * i, 10 * i, i % 5, 12, app);
+            store.add(balls[i]);
+        }
+        balls[4].setIsActive(true);
+        balls[5].setIsActive(true);
+
+        assertTrue(store.removeAll(Arrays.asList(balls[0], balls[3], balls[5])));
+
+        assertEquals(3, store.size());
+        assertSame(balls[1], store.get(0));
+        assertSame(balls[2], store.get(1));
+        assertSame(balls[4], store.get(2));
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(i, store.get(i).slot);
+        }
+        assertEquals(40, store.x[2], 0.001);
+        assertTrue(store.active.get(2));
+        assertFalse(store.active.get(3));
+        assertFalse(store.active.get(5));
+        assertNull(balls[3].store);
+        assertEquals(30, balls[3].getX());
+        assertTrue(balls[5].getIsActive());
+
+        // Balls not in the store are ignored
+        assertFalse(store.removeAll(Arrays.asList(balls[0])));
+    }
+
+    @Test
+    public void testFixedPoint_HandleConvertsState() {
+        // A fixed-point store should hold the state as 16.16 values behind the same handle
+        BallStore fixedStore = new BallStore(2, true);
+        Ball ball = new Ball(100, 150, 2, 12, app);
+        ball.setXVelocity(0.25f);
+        fixedStore.add(ball);
+
+        assertTrue(ball.isFixedPoint());
+        assertNull(fixedStore.x);
+        assertEquals(FixedPoint.fromInt(100), fixedStore.fx[0]);
+        assertEquals(FixedPoint.ONE / 4, fixedStore.fvx[0]);
+        assertEquals(FixedPoint.fromInt(12), fixedStore.fradius[0]);
+
+        fixedStore.fy[0] = FixedPoint.fromFloat(80.75f);
+        assertEquals(80, ball.getY());
+        fixedStore.clear();
+        assertEquals(0.25f, ball.getXVelocity());
+        assertFalse(ball.isFixedPoint());
+    }
+
+    @Test
+    public void testAdd_GrowsCapacity() {
+        // The store should grow past its initial capacity
+        for (int i = 0; i < 10; i++) {
+            store.add(new Ball(i, i, 0, 12, app));
+        }
+        assertEquals(10, store.size());
+        assertEquals(9, store.get(9).getX());
+    }
+
+    @Test
+    public void testAdd_MovesBallBetweenStores() {
+        // A ball can only live in one store at a time
+        BallStore other = new BallStore();
+        Ball ball = new Ball(10, 10, 0, 12, app);
+        store.add(ball);
+        other.add(ball);
+
+        assertTrue(store.isEmpty());
+        assertSame(other, ball.store);
+        assertEquals(10, ball.getX());
+    }
+
+    @Test
+    public void testClear_DetachesBalls() {
+        // Clearing the store should leave every ball with its own copy of the state
+        Ball ball = new Ball(10, 10, 0, 12, app);
+        store.add(ball);
+        ball.setX(40);
+        store.clear();
+
+        assertTrue(store.isEmpty());
+        assertNull(ball.store);
+        assertEquals(40, ball.getX());
+    }
+}
@@ -0,0 +1,42 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CaptureMatrixTest {
+
+    static final int[] INCREASES = {70, 50, 50, 50, 100};
+    static final int[] DECREASES = {0, 25, 25, 25, 100};
+    CaptureMatrix matrix = new CaptureMatrix(INCREASES, DECREASES);
+
+    @Test
+    public void testIsAccepted() {
+        // Holes accept their own color, and grey balls and holes accept any color
+        int grey = BallColor.GREY.ordinal();
+        for (int ball = 0; ball < BallColor.COUNT; ball++) {
+            for (int hole = 0; hole < BallColor.COUNT; hole++) {
+                boolean expected = ball == hole || ball == grey || hole == grey;
+                assertEquals(expected, matrix.isAccepted(ball, hole), "ball " + ball + " hole " + hole);
+            }
+        }
+    }
+
+    @Test
+    public void testGetScoreDelta() {
+        // Captures add the ball's score and misses take off its penalty
+        assertEquals(50, matrix.getScoreDelta(BallColor.BLUE.ordinal(), BallColor.BLUE.ordinal()));
+        assertEquals(100, matrix.getScoreDelta(BallColor.YELLOW.ordinal(), BallColor.GREY.ordinal()));
+        assertEquals(70, matrix.getScoreDelta(BallColor.GREY.ordinal(), BallColor.ORANGE.ordinal()));
+        assertEquals(-25, matrix.getScoreDelta(BallColor.GREEN.ordinal(), BallColor.ORANGE.ordinal()));
+        assertEquals(-100, matrix.getScoreDelta(BallColor.YELLOW.ordinal(), BallColor.BLUE.ordinal()));
+    }
+
+    @Test
+    public void testColorsOutsidePalette() {
+        // Unknown colors follow the same rule and do not change the score
+        assertTrue(matrix.isAccepted(7, 7));
+        assertTrue(matrix.isAccepted(7, BallColor.GREY.ordinal()));
+        assertFalse(matrix.isAccepted(7, BallColor.BLUE.ordinal()));
+        assertEquals(0, matrix.getScoreDelta(-1, 1));
+    }
+}
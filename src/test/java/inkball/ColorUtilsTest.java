@@ -23,4 +23,20 @@ public class ColorUtilsTest {
         assertEquals("unknown", ColorUtils.numberToColor(5));
         assertEquals("unknown", ColorUtils.numberToColor(100));
     }
+
+    @Test
+    public void testColorToNumber_IgnoresCase() {
+        // Color names from the config should match whatever their case
+        assertEquals(BallColor.ORANGE.ordinal(), ColorUtils.colorToNumber("Orange"));
+        assertEquals(BallColor.GREY.ordinal(), ColorUtils.colorToNumber("GREY"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        // Every color should convert to its name and back
+        for (BallColor color : BallColor.values()) {
+            assertEquals(color.getConfigName(), ColorUtils.numberToColor(color.ordinal()));
+            assertEquals(color.ordinal(), ColorUtils.colorToNumber(color.getConfigName()));
+        }
+    }
 }
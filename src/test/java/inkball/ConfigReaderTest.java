@@ -114,6 +114,86 @@ public class ConfigReaderTest {
         assertEquals(2, configReader.getNumLevels());
     }
 
+    @Test
+    public void testGetPhysicsRate() {
+        // The physics rate should be read from the config
+        JSONObject config = JSONObject.parse("{ \"physics_rate\": 120, \"levels\": [] }");
+        assertEquals(120, new ConfigReader(config, new App()).getPhysicsRate());
+    }
+
+    @Test
+    public void testGetPhysicsRate_Default() {
+        // Missing or invalid physics rates should fall back to the frame rate
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertEquals(App.FPS, new ConfigReader(config, new App()).getPhysicsRate());
+
+        config = JSONObject.parse("{ \"physics_rate\": 0, \"levels\": [] }");
+        assertEquals(App.FPS, new ConfigReader(config, new App()).getPhysicsRate());
+    }
+
+    @Test
+    public void testIsFixedPointPhysics() {
+        // Fixed-point physics should be off unless enabled in the config
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertFalse(new ConfigReader(config, new App()).isFixedPointPhysics());
+
+        config = JSONObject.parse("{ \"fixed_point_physics\": true, \"levels\": [] }");
+        assertTrue(new ConfigReader(config, new App()).isFixedPointPhysics());
+    }
+
+    @Test
+    public void testIsParallelPhysics() {
+        // Parallel physics should be off unless enabled in the config
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertFalse(new ConfigReader(config, new App()).isParallelPhysics());
+
+        config = JSONObject.parse("{ \"parallel_physics\": true, \"levels\": [] }");
+        assertTrue(new ConfigReader(config, new App()).isParallelPhysics());
+    }
+
+    @Test
+    public void testIsBatchIntegration() {
+        // Batch integration should be off unless enabled in the config
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertFalse(new ConfigReader(config, new App()).isBatchIntegration());
+
+        config = JSONObject.parse("{ \"batch_integration\": true, \"levels\": [] }");
+        assertTrue(new ConfigReader(config, new App()).isBatchIntegration());
+    }
+
+    @Test
+    public void testIsDistanceFieldCollisions() {
+        // Distance field collisions should be off unless enabled in the config
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertFalse(new ConfigReader(config, new App()).isDistanceFieldCollisions());
+
+        config = JSONObject.parse("{ \"distance_field_collisions\": true, \"levels\": [] }");
+        assertTrue(new ConfigReader(config, new App()).isDistanceFieldCollisions());
+    }
+
+    @Test
+    public void testIsDirtyRectangles() {
+        // Dirty rectangle rendering should be off unless enabled in the config
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertFalse(new ConfigReader(config, new App()).isDirtyRectangles());
+
+        config = JSONObject.parse("{ \"dirty_rectangles\": true, \"levels\": [] }");
+        assertTrue(new ConfigReader(config, new App()).isDirtyRectangles());
+    }
+
+    @Test
+    public void testGetLineTolerance() {
+        // The line tolerance should default when missing or negative
+        JSONObject config = JSONObject.parse("{ \"levels\": [] }");
+        assertEquals(PlayerDrawnLine.DEFAULT_TOLERANCE, new ConfigReader(config, new App()).getLineTolerance());
+
+        config = JSONObject.parse("{ \"line_tolerance\": 0, \"levels\": [] }");
+        assertEquals(0, new ConfigReader(config, new App()).getLineTolerance());
+
+        config = JSONObject.parse("{ \"line_tolerance\": -2, \"levels\": [] }");
+        assertEquals(PlayerDrawnLine.DEFAULT_TOLERANCE, new ConfigReader(config, new App()).getLineTolerance());
+    }
+
     @Test
     public void testGetBallColors_ValidIndex() {
         // Create a config with one level and a list of ball colors
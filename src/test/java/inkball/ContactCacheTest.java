@@ -0,0 +1,111 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import processing.core.PApplet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContactCacheTest {
+
+    static App app;
+    ContactCache cache;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        cache = new ContactCache();
+    }
+
+    @Test
+    public void testCooldown_SuppressesUntilExpiry() {
+        // A recorded contact should suppress the pair until its expiry tick
+        Ball ball = new Ball(0, 0, 0, 12, app);
+        Object wall = new Object();
+        cache.add(ball, wall, 15);
+
+        assertTrue(cache.isCoolingDown(ball, wall, 10));
+        assertTrue(cache.isCoolingDown(ball, wall, 14));
+        assertFalse(cache.isCoolingDown(ball, wall, 15));
+    }
+
+    @Test
+    public void testCooldown_IsPerPair() {
+        // Other balls and other obstacles should not be affected by a contact
+        Ball ball = new Ball(0, 0, 0, 12, app);
+        Ball otherBall = new Ball(0, 0, 0, 12, app);
+        Object wall = new Object();
+        Object otherWall = new Object();
+        cache.add(ball, wall, 15);
+
+        assertFalse(cache.isCoolingDown(otherBall, wall, 10));
+        assertFalse(cache.isCoolingDown(ball, otherWall, 10));
+    }
+
+    @Test
+    public void testAdd_RefreshesExistingContact() {
+        // Recording the same pair again should replace its expiry
+        Ball ball = new Ball(0, 0, 0, 12, app);
+        Object wall = new Object();
+        cache.add(ball, wall, 15);
+        cache.add(ball, wall, 20);
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.isCoolingDown(ball, wall, 18));
+    }
+
+    @Test
+    public void testExpire_RemovesOnlyExpiredContacts() {
+        // Expiring should forget finished contacts and keep the others findable
+        Ball[] balls = new Ball[200];
+        Object wall = new Object();
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] = new Ball(0, 0, 0, 12, app);
+            cache.add(balls[i], wall, i % 2 == 0 ? 5 : 50);
+        }
+
+        cache.expire(10);
+
+        assertEquals(100, cache.size());
+        for (int i = 0; i < balls.length; i++) {
+            assertEquals(i % 2 != 0, cache.isCoolingDown(balls[i], wall, 10));
+        }
+    }
+
+    @Test
+    public void testAdd_DropsExpiredContactsBeforeGrowing() {
+        // Contacts that ran out should make room for new ones instead of being kept around
+        Object wall = new Object();
+        for (int i = 0; i < 32; i++) {
+            cache.add(new Ball(0, 0, 0, 12, app), wall, 5);
+        }
+        cache.advance(10);
+        assertEquals(32, cache.size());
+
+        Ball[] balls = new Ball[32];
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] = new Ball(0, 0, 0, 12, app);
+            cache.add(balls[i], wall, 50);
+        }
+
+        assertEquals(32, cache.size());
+        for (Ball ball : balls) {
+            assertTrue(cache.isCoolingDown(ball, wall, 10));
+        }
+    }
+
+    @Test
+    public void testClear() {
+        // Clearing should forget every contact
+        Ball ball = new Ball(0, 0, 0, 12, app);
+        Object wall = new Object();
+        cache.add(ball, wall, 15);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.isCoolingDown(ball, wall, 10));
+    }
+}
@@ -0,0 +1,131 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DirtyRegionsTest {
+
+    static App app;
+    static ConfigReader configReader;
+    Level level;
+    DirtyRegions dirtyRegions;
+    SpriteBatch batch;
+    List<PlayerDrawnLine> lines;
+
+    /** Fraction of the canvas taken by the top bar, which is repainted every frame */
+    static final float TOP_BAR_FRACTION = App.TOPBAR / (float) App.HEIGHT;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+        configReader = new ConfigReader("config.json", app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        level = new Level(0, configReader, app);
+        dirtyRegions = new DirtyRegions();
+        batch = new SpriteBatch();
+        lines = new ArrayList<>();
+    }
+
+    private void paintFrame() {
+        batch.begin();
+        level.queueSprites(app, batch);
+        dirtyRegions.repaint(app, level, batch, lines);
+        batch.flush(app);
+    }
+
+    @Test
+    public void testFirstFrameRepaintsEverything() {
+        paintFrame();
+        assertTrue(dirtyRegions.isFullRepaint());
+        assertEquals(1, dirtyRegions.getTouchedFraction(), 1e-6);
+    }
+
+    @Test
+    public void testMovingBallRepaintsAroundIt() {
+        Ball ball = new Ball(200, 300, 1, 12, app);
+        level.addBall(ball);
+        paintFrame();
+
+        ball.setX(204);
+        paintFrame();
+        assertFalse(dirtyRegions.isFullRepaint());
+        // The old and new rectangles of the ball overlap, so they are merged into one
+        assertEquals(1, dirtyRegions.getRectCount());
+        assertTrue(dirtyRegions.getTouchedFraction() > TOP_BAR_FRACTION);
+        assertTrue(dirtyRegions.getTouchedFraction() < TOP_BAR_FRACTION + 0.01f);
+    }
+
+    @Test
+    public void testIdleFrameOnlyRepaintsTopBar() {
+        paintFrame();
+        paintFrame();
+        assertFalse(dirtyRegions.isFullRepaint());
+        assertEquals(0, dirtyRegions.getRectCount());
+        assertEquals(TOP_BAR_FRACTION, dirtyRegions.getTouchedFraction(), 1e-6);
+        assertTrue(dirtyRegions.getAverageTouchedFraction() < 1);
+    }
+
+    @Test
+    public void testTouchedSummaryShowsLastFrameAndAverage() {
+        paintFrame();
+        assertEquals("Repainted 100% (avg 100%)", dirtyRegions.getTouchedSummary());
+
+        // Only the top bar, a tenth of the canvas, is repainted on an idle frame
+        paintFrame();
+        assertEquals("Repainted 10% (avg 55%)", dirtyRegions.getTouchedSummary());
+    }
+
+    @Test
+    public void testLinesAreDrawnWhereTheyChange() {
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(100, 200);
+        line.addPoint(150, 200);
+        lines.add(line);
+        paintFrame();
+        paintFrame();
+        // An unchanged line away from any sprite is left as it is
+        assertEquals(0, dirtyRegions.getRectCount());
+
+        // The new segment is repainted, along with the last one whose end may have moved
+        line.addPoint(200, 200);
+        paintFrame();
+        assertEquals(1, dirtyRegions.getRectCount());
+        assertTrue(dirtyRegions.getTouchedFraction() > TOP_BAR_FRACTION);
+
+        // A cleared line is erased even if points were added to it again since
+        line.clear();
+        line.addPoint(120, 400);
+        line.addPoint(160, 400);
+        paintFrame();
+        assertEquals(2, dirtyRegions.getRectCount());
+
+        // Removing the line repaints the board under it
+        lines.remove(line);
+        paintFrame();
+        assertEquals(1, dirtyRegions.getRectCount());
+        assertTrue(dirtyRegions.getTouchedFraction() > TOP_BAR_FRACTION);
+    }
+
+    @Test
+    public void testLayoutChangeRepaintsEverything() {
+        paintFrame();
+        level.getWalls().add(new Wall(100, 100, 3, app));
+        paintFrame();
+        assertTrue(dirtyRegions.isFullRepaint());
+
+        paintFrame();
+        assertFalse(dirtyRegions.isFullRepaint());
+        dirtyRegions.invalidate();
+        paintFrame();
+        assertTrue(dirtyRegions.isFullRepaint());
+    }
+}
@@ -0,0 +1,120 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+
+public class DistanceFieldTest {
+
+    static App app;
+    TileMap tileMap;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // 4x4 map of 32px tiles starting below the top bar
+        tileMap = new TileMap(0, App.TOPBAR, 4, 4, App.CELLSIZE);
+        tileMap.loadImages(app);
+    }
+
+    @Test
+    public void testSample() {
+        // Distances should be positive outside a wall, negative inside and clamped far away
+        tileMap.setColor(1, 1, 3);
+        DistanceField field = new DistanceField(tileMap, 4);
+        float top = App.TOPBAR + App.CELLSIZE;
+
+        assertEquals(16, field.sample(48, top - 16), 0.01);
+        assertEquals(12, field.sample(20, top + 16), 0.01);
+        assertEquals(-16, field.sample(48, top + 16), 0.01);
+        assertEquals(App.CELLSIZE, field.sample(120, top + 80), 0.01);
+    }
+
+    @Test
+    public void testCheckCollision_FromLeft() {
+        // A ball moving into a colored tile should bounce and take the tile's color
+        tileMap.setColor(1, 0, 2);
+        DistanceField field = new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL);
+        Ball ball = new Ball(App.CELLSIZE - 10, App.TOPBAR + 16, 1, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(0);
+
+        assertTrue(field.checkCollision(ball, app));
+
+        assertEquals(-2, ball.getXVelocity(), 0.01);
+        assertEquals(2, ball.getColor());
+        assertTrue(ball.getX() + ball.getRadius() <= App.CELLSIZE);
+    }
+
+    @Test
+    public void testCheckCollision_NoWall() {
+        // A ball away from any tile should not be affected
+        tileMap.setColor(3, 3, 1);
+        DistanceField field = new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL);
+        Ball ball = new Ball(20, App.TOPBAR + 20, 0, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(2);
+
+        assertFalse(field.checkCollision(ball, app));
+
+        assertEquals(2, ball.getXVelocity(), 0.01);
+        assertEquals(2, ball.getYVelocity(), 0.01);
+        assertEquals(0, ball.getColor());
+    }
+
+    @Test
+    public void testCheckCollision_NoSnagOnSeam() {
+        // A ball rolling along a row of tiles across the seam between two of them should only
+        // bounce off the top surface
+        tileMap.setColor(0, 2, 1);
+        tileMap.setColor(1, 2, 1);
+        tileMap.setColor(2, 2, 1);
+        DistanceField field = new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL);
+        Ball ball = new Ball(2 * App.CELLSIZE - 4, App.TOPBAR + 2 * App.CELLSIZE - 10, 1, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(2);
+
+        assertTrue(field.checkCollision(ball, app));
+
+        assertEquals(2, ball.getXVelocity(), 0.01);
+        assertEquals(-2, ball.getYVelocity(), 0.01);
+        assertTrue(ball.getY() + ball.getRadius() <= App.TOPBAR + 2 * App.CELLSIZE);
+    }
+
+    @Test
+    public void testCheckCollision_MovingAway() {
+        // A ball overlapping a wall but already moving away is pushed out without bouncing back
+        tileMap.setColor(1, 1, 0);
+        DistanceField field = new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL);
+        Ball ball = new Ball(2 * App.CELLSIZE + 8, App.TOPBAR + 48, 0, 12, app);
+        ball.setXVelocity(3);
+        ball.setYVelocity(0);
+
+        assertTrue(field.checkCollision(ball, app));
+
+        assertEquals(3, ball.getXVelocity(), 0.01);
+        assertTrue(ball.getX() - ball.getRadius() >= 2 * App.CELLSIZE);
+    }
+
+    @Test
+    public void testIsBakedFrom() {
+        // Changing the tile map should make the field stale
+        DistanceField field = new DistanceField(tileMap, DistanceField.DEFAULT_SAMPLES_PER_CELL);
+        assertTrue(field.isBakedFrom(tileMap));
+        assertFalse(field.isBakedFrom(new TileMap(0, App.TOPBAR, 4, 4, App.CELLSIZE)));
+
+        tileMap.setColor(0, 0, 1);
+        assertFalse(field.isBakedFrom(tileMap));
+    }
+
+    @Test
+    public void testInvalidSamplesPerCell() {
+        assertThrows(IllegalArgumentException.class, () -> new DistanceField(tileMap, 0));
+    }
+}
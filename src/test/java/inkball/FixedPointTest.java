@@ -0,0 +1,44 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointTest {
+
+    @Test
+    public void testConversions() {
+        // Integers and exactly representable floats should round-trip unchanged
+        assertEquals(65536, FixedPoint.fromInt(1));
+        assertEquals(-3, FixedPoint.toInt(FixedPoint.fromInt(-3)));
+        assertEquals(0.25f, FixedPoint.toFloat(FixedPoint.fromFloat(0.25f)));
+        assertEquals(-1.5f, FixedPoint.toFloat(FixedPoint.fromFloat(-1.5f)));
+        // toInt rounds down, also for negative values
+        assertEquals(2, FixedPoint.toInt(FixedPoint.fromFloat(2.75f)));
+        assertEquals(-3, FixedPoint.toInt(FixedPoint.fromFloat(-2.25f)));
+    }
+
+    @Test
+    public void testMulAndDiv() {
+        // Products and quotients should match the real values
+        int a = FixedPoint.fromFloat(2.5f);
+        int b = FixedPoint.fromFloat(-4f);
+        assertEquals(FixedPoint.fromFloat(-10f), FixedPoint.mul(a, b));
+        assertEquals(FixedPoint.fromFloat(-0.625f), FixedPoint.div(a, b));
+    }
+
+    @Test
+    public void testSqrt() {
+        // The integer square root should round down
+        assertEquals(0, FixedPoint.sqrt(0));
+        assertEquals(1, FixedPoint.sqrt(3));
+        assertEquals(12, FixedPoint.sqrt(144));
+        assertEquals(3037000499L, FixedPoint.sqrt(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLength() {
+        // A 3-4-5 triangle should have an exact hypotenuse
+        assertEquals(FixedPoint.fromInt(5), FixedPoint.length(FixedPoint.fromInt(3), FixedPoint.fromInt(-4)));
+        assertEquals(FixedPoint.fromInt(32), FixedPoint.length(0, FixedPoint.fromInt(32)));
+    }
+}
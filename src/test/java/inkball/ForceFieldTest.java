@@ -0,0 +1,158 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ForceFieldTest {
+
+    static App app;
+    ForceField field;
+    ContactCache contacts;
+    StepBuffer buffer;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        field = new ForceField(0, App.TOPBAR, App.BOARD_WIDTH, (App.HEIGHT - App.TOPBAR) / App.CELLSIZE, App.CELLSIZE);
+        contacts = new ContactCache();
+        buffer = new StepBuffer();
+    }
+
+    private Ball stillBall(int x, int y) {
+        Ball ball = new Ball(x, y, 0, 12, app);
+        ball.setXVelocity(0);
+        ball.setYVelocity(0);
+        return ball;
+    }
+
+    @Test
+    public void testAccelerate_TileInCell() {
+        // A ball on a layout tile should be accelerated along the tile's axis only
+        field.add(new AccelerateTile(3 * App.CELLSIZE, App.TOPBAR + 2 * App.CELLSIZE, "left", app));
+        Ball ball = stillBall(3 * App.CELLSIZE + 16, App.TOPBAR + 2 * App.CELLSIZE + 16);
+
+        field.accelerate(ball, contacts, 0, 10, buffer);
+
+        assertEquals(-AccelerateTile.ACCELERATION_AMOUNT, ball.getXVelocity(), 0.001);
+        assertEquals(0, ball.getYVelocity(), 0.001);
+    }
+
+    @Test
+    public void testAccelerate_TileBetweenCells() {
+        // Tiles that are not aligned to the cells should still be found from every side
+        field.add(new AccelerateTile(200, 200, "down", app));
+        Ball above = stillBall(215, 190);
+        Ball right = stillBall(240, 215);
+        Ball away = stillBall(260, 215);
+
+        field.accelerate(above, contacts, 0, 10, buffer);
+        field.accelerate(right, contacts, 0, 10, buffer);
+        field.accelerate(away, contacts, 0, 10, buffer);
+
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, above.getYVelocity(), 0.001);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, right.getYVelocity(), 0.001);
+        assertEquals(0, away.getYVelocity(), 0.001);
+    }
+
+    @Test
+    public void testAccelerate_OverlappingTiles() {
+        // A ball on two tiles stacked in the same cell should be accelerated by both
+        field.add(new AccelerateTile(100, 200, "right", app));
+        field.add(new AccelerateTile(100, 200, "up", app));
+        Ball ball = stillBall(116, 216);
+
+        field.accelerate(ball, contacts, 0, 10, buffer);
+
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball.getXVelocity(), 0.001);
+        assertEquals(-AccelerateTile.ACCELERATION_AMOUNT, ball.getYVelocity(), 0.001);
+        assertEquals(2, field.getTileCount());
+    }
+
+    @Test
+    public void testAccelerate_ClampsToMaxSpeed() {
+        // Acceleration should never push a ball past the maximum speed
+        field.add(new AccelerateTile(100, 200, "right", app));
+        Ball ball = stillBall(116, 216);
+        ball.setXVelocity(AccelerateTile.MAX_SPEED - 0.1f);
+
+        field.accelerate(ball, contacts, 0, 10, buffer);
+
+        assertEquals(AccelerateTile.MAX_SPEED, ball.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testAccelerate_CoolingDown() {
+        // A ball that was accelerated by a tile recently should be left alone
+        AccelerateTile tile = new AccelerateTile(100, 200, "right", app);
+        field.add(tile);
+        Ball ball = stillBall(116, 216);
+        contacts.add(ball, tile, 5);
+
+        field.accelerate(ball, contacts, 0, 10, buffer);
+        assertEquals(0, ball.getXVelocity(), 0.001);
+
+        field.accelerate(ball, contacts, 5, 10, buffer);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testBuild_ReplacesTiles() {
+        // Building from a list should drop the tiles added before
+        field.add(new AccelerateTile(100, 200, "right", app));
+        List<AccelerateTile> tiles = new ArrayList<>();
+        tiles.add(new AccelerateTile(300, 300, "up", app));
+        field.build(tiles);
+        Ball ball = stillBall(116, 216);
+
+        field.accelerate(ball, contacts, 0, 10, buffer);
+
+        assertEquals(1, field.getTileCount());
+        assertEquals(0, ball.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testAccelerate_InvalidDirection() {
+        // Tiles with an invalid direction can be compiled, but leave the balls that touch them alone
+        List<AccelerateTile> tiles = new ArrayList<>();
+        tiles.add(new AccelerateTile(100, 200, "invalid", app));
+        tiles.add(new AccelerateTile(100, 200, "right", app));
+        field.build(tiles);
+        assertEquals(2, field.getTileCount());
+        assertTrue(field.isBuiltFrom(tiles));
+
+        Ball ball = stillBall(116, 216);
+        assertDoesNotThrow(() -> field.accelerate(ball, contacts, 0, 10, buffer));
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball.getXVelocity(), 0.001);
+        assertEquals(0, ball.getYVelocity(), 0.001);
+    }
+
+    @Test
+    public void testIsBuiltFrom_DetectsChangedTiles() {
+        // Moving or turning a tile after the field is built should make the field stale
+        AccelerateTile tile = new AccelerateTile(100, 200, "left", app);
+        List<AccelerateTile> tiles = new ArrayList<>();
+        tiles.add(tile);
+        field.build(tiles);
+        assertTrue(field.isBuiltFrom(tiles));
+
+        tile.setDirection("right");
+        assertFalse(field.isBuiltFrom(tiles));
+        field.build(tiles);
+        tile.setX(132);
+        assertFalse(field.isBuiltFrom(tiles));
+        field.build(tiles);
+
+        tiles.set(0, new AccelerateTile(100, 200, "left", app));
+        assertFalse(field.isBuiltFrom(tiles));
+    }
+}
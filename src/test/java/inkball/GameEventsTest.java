@@ -0,0 +1,121 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import processing.core.PApplet;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+public class GameEventsTest {
+
+    static App app;
+    static ConfigReader configReader;
+    Level level;
+    GameEvents events;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+        configReader = new ConfigReader("config.json", app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        app.unspawnedBalls = new ArrayList<>();
+        level = new Level(0, configReader, app);
+        app.currentLevel = level;
+        events = level.events;
+    }
+
+    private Ball addActiveBall(int color) {
+        Ball ball = new Ball(200, 200, color, 12, app);
+        ball.setIsActive(true);
+        level.addBall(ball);
+        return ball;
+    }
+
+    @Test
+    public void testDrain_CaptureScoresAndRemovesBall() {
+        // A capture should increase the score and take the ball out of the level
+        Ball ball = addActiveBall(1);
+        Hole hole = new Hole(100, 100, 1, app);
+        app.score = 0;
+
+        events.add(GameEvents.Type.CAPTURE, ball, hole);
+        assertEquals(0, app.score);
+        events.drain(level, app);
+
+        assertEquals(level.scoreIncreaseArray[1], app.score);
+        assertFalse(level.getBalls().contains(ball));
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void testDrain_MissQueuesBall() {
+        // A miss should decrease the score and move the ball to the unspawned queue
+        Ball ball = addActiveBall(1);
+        Hole hole = new Hole(100, 100, 2, app);
+        app.unspawnedBalls.add(new Ball(0, 0, 0, 12, app));
+        app.score = 100;
+
+        events.add(GameEvents.Type.MISS, ball, hole);
+        events.drain(level, app);
+
+        assertEquals(100 - level.scoreDecreaseArray[1], app.score);
+        assertFalse(level.getBalls().contains(ball));
+        assertTrue(app.unspawnedBalls.contains(ball));
+    }
+
+    @Test
+    public void testDrain_MissWithEmptyQueueRespawnsBall() {
+        // A miss with nothing queued should respawn the ball in the same drain
+        Ball ball = addActiveBall(1);
+        ball.setIsActive(false);
+        Hole hole = new Hole(100, 100, 2, app);
+
+        events.add(GameEvents.Type.MISS, ball, hole);
+        events.drain(level, app);
+
+        assertTrue(level.getBalls().contains(ball));
+        assertTrue(ball.getIsActive());
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void testDrain_BounceClearsLine() {
+        // Bouncing off a line should remove the line's points
+        Ball ball = addActiveBall(0);
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(10, 10);
+        line.addPoint(50, 50);
+
+        events.add(GameEvents.Type.BOUNCE, ball, line);
+        events.drain(level, app);
+
+        assertTrue(line.getPoints().isEmpty());
+    }
+
+    @Test
+    public void testAdd_GrowsAcrossWrapAround() {
+        // Events should keep their order when the buffer grows after wrapping around
+        PlayerDrawnLine[] lines = new PlayerDrawnLine[200];
+        Ball ball = addActiveBall(0);
+        for (int i = 0; i < 40; i++) {
+            events.add(GameEvents.Type.BOUNCE, ball, new PlayerDrawnLine());
+        }
+        events.drain(level, app);
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = new PlayerDrawnLine();
+            lines[i].addPoint(i, i);
+            events.add(GameEvents.Type.BOUNCE, ball, lines[i]);
+        }
+
+        assertEquals(200, events.size());
+        events.drain(level, app);
+        for (PlayerDrawnLine line : lines) {
+            assertTrue(line.getPoints().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InkLayerTest {
+
+    static App app;
+    InkLayer inkLayer;
+    List<PlayerDrawnLine> lines;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        inkLayer = new InkLayer();
+        lines = new ArrayList<>();
+    }
+
+    private PlayerDrawnLine addLine(float x, float y) {
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(x, y);
+        line.addPoint(x + 50, y);
+        lines.add(line);
+        return line;
+    }
+
+    @Test
+    public void testFirstUpdateCreatesLayer() {
+        addLine(100, 200);
+        inkLayer.update(app, lines);
+        assertNotNull(inkLayer.getGraphics());
+        assertEquals(1, inkLayer.getRegenerations());
+        assertDoesNotThrow(() -> inkLayer.draw(app));
+    }
+
+    @Test
+    public void testGrowingLinesDoNotRegenerate() {
+        PlayerDrawnLine line = addLine(100, 200);
+        inkLayer.update(app, lines);
+
+        // New segments and new lines are stroked onto the existing ink
+        line.addPoint(200, 250);
+        addLine(300, 400);
+        inkLayer.update(app, lines);
+        inkLayer.update(app, lines);
+        assertEquals(1, inkLayer.getRegenerations());
+    }
+
+    @Test
+    public void testRemovedLineRegenerates() {
+        addLine(100, 200);
+        PlayerDrawnLine erased = addLine(100, 300);
+        inkLayer.update(app, lines);
+
+        lines.remove(erased);
+        inkLayer.update(app, lines);
+        assertEquals(2, inkLayer.getRegenerations());
+    }
+
+    @Test
+    public void testClearedLineRegenerates() {
+        PlayerDrawnLine line = addLine(100, 200);
+        inkLayer.update(app, lines);
+
+        // A line cleared on collision is erased even if it is drawn on again before the update
+        line.clear();
+        line.addPoint(10, 100);
+        line.addPoint(20, 100);
+        line.addPoint(30, 100);
+        inkLayer.update(app, lines);
+        assertEquals(2, inkLayer.getRegenerations());
+
+        inkLayer.update(app, lines);
+        assertEquals(2, inkLayer.getRegenerations());
+    }
+
+    @Test
+    public void testRemoveLineAt_RegeneratesAppInk() {
+        app.playerLines.clear();
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(100, 200);
+        line.addPoint(200, 200);
+        app.playerLines.add(line);
+        app.inkLayer.update(app, app.playerLines);
+        int regenerations = app.inkLayer.getRegenerations();
+
+        app.removeLineAt(150, 200);
+        app.inkLayer.update(app, app.playerLines);
+        assertEquals(regenerations + 1, app.inkLayer.getRegenerations());
+    }
+
+    /**
+     * Graphics that remember the lines stroked onto them.
+     */
+    static class RecordingGraphics extends PGraphics {
+        final List<float[]> lines = new ArrayList<>();
+
+        @Override
+        public void line(float x1, float y1, float x2, float y2) {
+            lines.add(new float[]{x1, y1, x2, y2});
+        }
+    }
+
+    @Test
+    public void testMovingTailIsNotStrokedOntoLayer() {
+        RecordingGraphics layer = new RecordingGraphics();
+        RecordingGraphics screen = new RecordingGraphics();
+        App recordingApp = new App() {
+            @Override
+            public PGraphics createGraphics(int w, int h) {
+                return layer;
+            }
+        };
+        recordingApp.g = screen;
+
+        // A simplified line stretches its last segment while the pointer keeps going straight
+        PlayerDrawnLine line = new PlayerDrawnLine(PlayerDrawnLine.DEFAULT_TOLERANCE);
+        line.addPoint(100, 200);
+        line.addPoint(150, 200);
+        lines.add(line);
+        inkLayer.update(recordingApp, lines);
+        line.addPoint(200, 200);
+        assertEquals(2, line.getPointCount());
+        inkLayer.update(recordingApp, lines);
+        assertTrue(layer.lines.isEmpty());
+
+        // The tail is drawn to the screen where it is now
+        inkLayer.drawTails(recordingApp, lines);
+        assertEquals(1, screen.lines.size());
+        assertArrayEquals(new float[]{100, 200, 200, 200}, screen.lines.get(0));
+
+        // Turning a corner finishes the segment, which is then stroked onto the layer once
+        line.addPoint(200, 300);
+        assertEquals(3, line.getPointCount());
+        inkLayer.update(recordingApp, lines);
+        inkLayer.update(recordingApp, lines);
+        assertEquals(1, layer.lines.size());
+        assertArrayEquals(new float[]{100, 200, 200, 200}, layer.lines.get(0));
+        assertEquals(1, inkLayer.getRegenerations());
+    }
+}
@@ -7,6 +7,7 @@ import processing.core.PImage;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class LevelTest {
 
@@ -235,6 +236,290 @@ public class LevelTest {
         assertEquals(5, ball.getXVelocity());
     }
 
+    @Test
+    public void testUpdate_FastBallDoesNotTunnelThroughLine() {
+        // A ball at maximum speed should bounce off a thin line instead of passing through it
+        app.playerLines.clear();
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(100, 200);
+        line.addPoint(200, 200);
+        app.playerLines.add(line);
+
+        Ball ball = new Ball(150, 182, 0, 12, app);
+        ball.setXVelocity(0);
+        ball.setYVelocity(AccelerateTile.MAX_SPEED);
+        level.addBall(ball);
+
+        level.update(app);
+
+        assertEquals(-AccelerateTile.MAX_SPEED, ball.getYVelocity(), 0.01);
+        assertTrue(ball.getY() < 200);
+        assertTrue(line.getPoints().isEmpty());
+        app.playerLines.clear();
+    }
+
+    @Test
+    public void testUpdate_ContactCooldownIsPerBall() {
+        // Every ball on a tile should be accelerated, then left alone until its own cooldown ends
+        AccelerateTile tile = new AccelerateTile(200, 200, "down", app);
+        level.accelerationTiles.add(tile);
+        Ball ball1 = new Ball(210, 210, 0, 12, app);
+        Ball ball2 = new Ball(215, 215, 0, 12, app);
+        for (Ball ball : new Ball[]{ball1, ball2}) {
+            ball.setXVelocity(0);
+            ball.setYVelocity(0);
+            ball.setIsActive(true);
+            level.addBall(ball);
+        }
+
+        app.tickCount = 100;
+        level.update(app);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball1.getYVelocity(), 0.001);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball2.getYVelocity(), 0.001);
+
+        app.tickCount++;
+        level.update(app);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball1.getYVelocity(), 0.001);
+
+        app.tickCount = 100 + app.secondsToTicks(AccelerateTile.BUFFER_THRESHOLD / (float) App.FPS);
+        level.update(app);
+        assertEquals(2 * AccelerateTile.ACCELERATION_AMOUNT, ball1.getYVelocity(), 0.001);
+        assertEquals(2 * AccelerateTile.ACCELERATION_AMOUNT, ball2.getYVelocity(), 0.001);
+        level.accelerationTiles.remove(tile);
+    }
+
+    @Test
+    public void testUpdate_FollowsTileDirectionChanges() {
+        // Turning a tile after it has been used should change the acceleration it applies
+        AccelerateTile tile = new AccelerateTile(200, 200, "down", app);
+        level.accelerationTiles.add(tile);
+        Ball ball = new Ball(210, 210, 0, 12, app);
+        ball.setXVelocity(0);
+        ball.setYVelocity(0);
+        level.addBall(ball);
+
+        app.tickCount = 100;
+        level.update(app);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball.getYVelocity(), 0.001);
+
+        tile.setDirection("right");
+        app.tickCount = 100 + app.secondsToTicks(AccelerateTile.BUFFER_THRESHOLD / (float) App.FPS);
+        level.update(app);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball.getXVelocity(), 0.001);
+        assertEquals(AccelerateTile.ACCELERATION_AMOUNT, ball.getYVelocity(), 0.001);
+    }
+
+    @Test
+    public void testMoveBall_StopsAtWallTile() {
+        // A ball moving towards a wall tile should stop at its surface and bounce
+        level.tileMap.setColor(5, 2, 2);
+        Ball ball = new Ball(5 * App.CELLSIZE - 14, App.TOPBAR + 2 * App.CELLSIZE + 16, 0, 12, app);
+        ball.setXVelocity(5);
+        ball.setYVelocity(0);
+
+        level.moveBall(ball, app);
+
+        assertEquals(-5, ball.getXVelocity(), 0.01);
+        assertTrue(ball.getX() + ball.getRadius() <= 5 * App.CELLSIZE);
+        assertEquals(2, ball.getColor());
+    }
+
+    @Test
+    public void testMoveBallFixed_KeepsSubPixelMotion() {
+        // In fixed-point mode a slow ball should accumulate its sub-pixel motion
+        app.fixedPointPhysics = true;
+        try {
+            Level fixedLevel = new Level(0, configReader, app);
+            Ball ball = new Ball(100, App.TOPBAR + 2 * App.CELLSIZE + 16, 0, 12, app);
+            ball.setXVelocity(0.25f);
+            ball.setYVelocity(0);
+            fixedLevel.addBall(ball);
+            assertTrue(ball.isFixedPoint());
+
+            for (int i = 0; i < 3; i++) {
+                fixedLevel.moveBall(ball, app);
+                assertEquals(100, ball.getX());
+            }
+            fixedLevel.moveBall(ball, app);
+            assertEquals(101, ball.getX());
+        } finally {
+            app.fixedPointPhysics = false;
+        }
+    }
+
+    @Test
+    public void testUpdate_PhysicsRateDoesNotChangeSpeed() {
+        // One second of play should leave the balls in the same place at 30 and 120 steps per second
+        int[] rates = {30, 120};
+        int[][] positions = new int[rates.length][];
+        try {
+            for (int r = 0; r < rates.length; r++) {
+                app.physicsRate = rates[r];
+                Level rateLevel = new Level(0, configReader, app);
+                Ball right = new Ball(100, App.TOPBAR + 100, 0, 12, app);
+                right.setXVelocity(2);
+                right.setYVelocity(0.5f);
+                Ball left = new Ball(400, App.TOPBAR + 300, 0, 12, app);
+                left.setXVelocity(-1.5f);
+                left.setYVelocity(-2);
+                rateLevel.addBall(right);
+                rateLevel.addBall(left);
+
+                for (int step = 0; step < rates[r]; step++) {
+                    rateLevel.update(app);
+                }
+                positions[r] = new int[]{right.getX(), right.getY(), left.getX(), left.getY()};
+            }
+        } finally {
+            app.physicsRate = App.FPS;
+        }
+
+        assertArrayEquals(positions[0], positions[1]);
+        assertEquals(100 + 2 * App.FPS, positions[1][0]);
+        assertEquals(400 - 45, positions[1][2]);
+    }
+
+    @Test
+    public void testUpdate_BatchIntegrationMovesBalls() {
+        // With batch integration the balls are moved by the kernels rather than swept
+        app.batchIntegration = true;
+        try {
+            Ball ball = new Ball(100, App.TOPBAR + 100, 0, 12, app);
+            ball.setXVelocity(2);
+            ball.setYVelocity(-1);
+            level.addBall(ball);
+            level.update(app);
+
+            assertEquals(102, ball.getX());
+            assertEquals(App.TOPBAR + 99, ball.getY());
+        } finally {
+            app.batchIntegration = false;
+        }
+    }
+
+    @Test
+    public void testUpdate_BatchIntegrationResolvesOverlaps() {
+        // Batch mode is not swept: the ball moves its whole step into the wall and is then pushed out
+        app.batchIntegration = true;
+        try {
+            Wall wall = new Wall(200, App.TOPBAR + 100, 0, app);
+            level.getWalls().add(wall);
+            Ball ball = new Ball(185, App.TOPBAR + 116, 0, 12, app);
+            ball.setXVelocity(AccelerateTile.MAX_SPEED);
+            ball.setYVelocity(0);
+            level.addBall(ball);
+            level.update(app);
+
+            assertEquals(-AccelerateTile.MAX_SPEED, ball.getXVelocity());
+            assertTrue(ball.getX() + ball.getRadius() <= 200);
+        } finally {
+            app.batchIntegration = false;
+        }
+    }
+
+    @Test
+    public void testUpdate_WallTileContactCoolsDown() {
+        // After bouncing off a wall tile, a ball is not tested against the tiles until its cooldown ends
+        app.batchIntegration = true;
+        try {
+            level.tileMap.setColor(6, 3, 0);
+            int tileLeft = level.tileMap.getOriginX() + 6 * App.CELLSIZE;
+            int tileMiddle = level.tileMap.getOriginY() + 3 * App.CELLSIZE + App.CELLSIZE / 2;
+            Ball ball = new Ball(tileLeft - 15, tileMiddle, 0, 12, app);
+            ball.setXVelocity(AccelerateTile.MAX_SPEED);
+            ball.setYVelocity(0);
+            level.addBall(ball);
+
+            level.update(app);
+            assertEquals(-AccelerateTile.MAX_SPEED, ball.getXVelocity());
+            assertTrue(level.contacts.isCoolingDown(ball, level.tileMap, app.tickCount));
+
+            // Moving into the tile again within the cooldown does not bounce the ball a second time
+            ball.setXVelocity(AccelerateTile.MAX_SPEED);
+            level.update(app);
+            assertEquals(AccelerateTile.MAX_SPEED, ball.getXVelocity());
+        } finally {
+            app.batchIntegration = false;
+        }
+    }
+
+    @Test
+    public void testUpdate_FixedPointBallDoesNotTunnelThroughLine() {
+        // Fixed-point balls should also be swept against the lines
+        app.fixedPointPhysics = true;
+        app.playerLines.clear();
+        try {
+            Level fixedLevel = new Level(0, configReader, app);
+            PlayerDrawnLine line = new PlayerDrawnLine();
+            line.addPoint(100, 200);
+            line.addPoint(200, 200);
+            app.playerLines.add(line);
+
+            Ball ball = new Ball(150, 182, 0, 12, app);
+            ball.setXVelocity(0);
+            ball.setYVelocity(AccelerateTile.MAX_SPEED);
+            fixedLevel.addBall(ball);
+            assertTrue(ball.isFixedPoint());
+
+            fixedLevel.update(app);
+
+            assertEquals(-AccelerateTile.MAX_SPEED, ball.getYVelocity(), 0.01);
+            assertTrue(ball.getY() < 200);
+            assertTrue(line.getPoints().isEmpty());
+        } finally {
+            app.fixedPointPhysics = false;
+            app.playerLines.clear();
+        }
+    }
+
+    @Test
+    public void testUpdate_FixedPointIsDeterministic() {
+        // Two fixed-point runs of the same scenario should end in bit-identical states
+        app.fixedPointPhysics = true;
+        try {
+            assertArrayEquals(runFixedPointScenario(), runFixedPointScenario());
+        } finally {
+            app.fixedPointPhysics = false;
+        }
+    }
+
+    /**
+     * Runs a fixed-point level with walls, a hole and an acceleration tile for a few hundred
+     * ticks and returns the raw state of its balls.
+     */
+    private int[] runFixedPointScenario() {
+        app.unspawnedBalls = new ArrayList<>();
+        app.tickCount = 0;
+        Level fixedLevel = new Level(0, configReader, app);
+        fixedLevel.tileMap.setColor(9, 5, 0);
+        fixedLevel.accelerationTiles.add(new AccelerateTile(6 * App.CELLSIZE, App.TOPBAR + 8 * App.CELLSIZE, "right", app));
+        fixedLevel.getHoles().add(new Hole(11 * App.CELLSIZE, App.TOPBAR + 11 * App.CELLSIZE, 0, app));
+        for (int i = 0; i < 8; i++) {
+            Ball ball = new Ball(100 + 40 * i, App.TOPBAR + 150 + 20 * i, i % 5, 12, app);
+            ball.setXVelocity(1.37f - 0.41f * i);
+            ball.setYVelocity(-1.9f + 0.53f * i);
+            ball.setIsActive(true);
+            fixedLevel.addBall(ball);
+        }
+
+        for (int tick = 0; tick < 300; tick++) {
+            app.tickCount = tick;
+            fixedLevel.update(app);
+        }
+
+        BallStore store = (BallStore) fixedLevel.getBalls();
+        int[] state = new int[store.size() * 6];
+        for (int i = 0; i < store.size(); i++) {
+            state[i * 6] = store.fx[i];
+            state[i * 6 + 1] = store.fy[i];
+            state[i * 6 + 2] = store.fvx[i];
+            state[i * 6 + 3] = store.fvy[i];
+            state[i * 6 + 4] = store.fradius[i];
+            state[i * 6 + 5] = store.active.get(i) ? 1 : 0;
+        }
+        return state;
+    }
+
     @Test
     public void testUpdate_BallHoleAttraction() {
         // Test attraction between a ball and a hole during update
@@ -251,6 +536,106 @@ public class LevelTest {
         }
     }
 
+    @Test
+    public void testUpdate_HoleGridListsOnlyReachableHoles() {
+        // Only cells within a hole's attraction radius should list it
+        Hole hole = new Hole(4 * App.CELLSIZE, App.TOPBAR + 4 * App.CELLSIZE, 0, app);
+        level.getHoles().add(hole);
+        level.update(app);
+
+        assertTrue(level.holeGrid.getCellAt(hole.getCenterX(), hole.getCenterY()).contains(hole));
+        assertTrue(level.holeGrid.getCellAt(hole.getCenterX() + 31, hole.getCenterY()).contains(hole));
+        assertFalse(level.holeGrid.getCellAt(hole.getCenterX() + 40, hole.getCenterY() + 40).contains(hole));
+        assertTrue(level.holeGrid.getCellAt(10 * App.CELLSIZE, App.TOPBAR + 10 * App.CELLSIZE).isEmpty());
+    }
+
+    @Test
+    public void testUpdate_BallsBounceOffEachOther() {
+        // Two balls meeting head on should bounce apart instead of passing through each other
+        Ball left = new Ball(200, App.TOPBAR + 300, 0, 12, app);
+        Ball right = new Ball(226, App.TOPBAR + 300, 0, 12, app);
+        left.setXVelocity(2);
+        left.setYVelocity(0);
+        right.setXVelocity(-2);
+        right.setYVelocity(0);
+        left.setIsActive(true);
+        right.setIsActive(true);
+        level.addBall(left);
+        level.addBall(right);
+
+        level.update(app);
+
+        assertEquals(-2, left.getXVelocity(), 0.001);
+        assertEquals(2, right.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testUpdate_ParallelMatchesSingleThreaded() {
+        // Stepping the balls on several cores should give exactly the same result as one core
+        List<Float> sequential = runCrowdedScenario(false);
+        List<Float> parallel = runCrowdedScenario(true);
+        assertEquals(sequential, parallel);
+    }
+
+    /**
+     * Runs a level with thousands of balls, walls, holes, an acceleration tile and a line,
+     * and returns the final state of the balls followed by the score and queue length.
+     */
+    private List<Float> runCrowdedScenario(boolean parallelPhysics) {
+        app.parallelPhysics = parallelPhysics;
+        app.tickCount = 0;
+        app.score = 0;
+        app.playerLines.clear();
+        // A queued ball keeps captured balls from being respawned with random velocities
+        app.unspawnedBalls = new ArrayList<>();
+        app.unspawnedBalls.add(new Ball(0, 0, 0, 12, app));
+        try {
+            Level crowdedLevel = new Level(0, configReader, app);
+            app.currentLevel = crowdedLevel;
+            crowdedLevel.tileMap.setColor(9, 5, 1);
+            crowdedLevel.accelerationTiles.add(new AccelerateTile(6 * App.CELLSIZE, App.TOPBAR + 8 * App.CELLSIZE, "right", app));
+            crowdedLevel.getHoles().add(new Hole(11 * App.CELLSIZE, App.TOPBAR + 11 * App.CELLSIZE, 0, app));
+            crowdedLevel.getHoles().add(new Hole(3 * App.CELLSIZE, App.TOPBAR + 12 * App.CELLSIZE, 2, app));
+            PlayerDrawnLine line = new PlayerDrawnLine();
+            line.addPoint(100, App.TOPBAR + 300);
+            line.addPoint(400, App.TOPBAR + 330);
+            app.playerLines.add(line);
+
+            Random random = new Random(5);
+            for (int i = 0; i < 3000; i++) {
+                Ball ball = new Ball(40 + random.nextInt(App.WIDTH - 80), App.TOPBAR + 40 + random.nextInt(App.HEIGHT - App.TOPBAR - 80),
+                        random.nextInt(5), 12, app);
+                ball.setXVelocity(random.nextFloat() * 4 - 2);
+                ball.setYVelocity(random.nextFloat() * 4 - 2);
+                ball.setIsActive(true);
+                crowdedLevel.addBall(ball);
+            }
+
+            for (int tick = 0; tick < 60; tick++) {
+                app.tickCount = tick;
+                crowdedLevel.update(app);
+            }
+
+            List<Float> state = new ArrayList<>();
+            for (Ball ball : crowdedLevel.getBalls()) {
+                state.add((float) ball.getX());
+                state.add((float) ball.getY());
+                state.add(ball.getXVelocity());
+                state.add(ball.getYVelocity());
+                state.add(ball.getRadius());
+                state.add((float) ball.getColor());
+            }
+            state.add((float) app.score);
+            state.add((float) app.unspawnedBalls.size());
+            state.add((float) line.getPoints().size());
+            return state;
+        } finally {
+            app.parallelPhysics = false;
+            app.playerLines.clear();
+            app.currentLevel = null;
+        }
+    }
+
     @Test
     public void testUpdate_BallListModification() {
         // Test that balls can be safely added or removed during update
@@ -295,6 +680,84 @@ public class LevelTest {
         assertDoesNotThrow(() -> level.draw(app));
     }
 
+    @Test
+    public void testDraw_ReusesStaticLayer() {
+        // The static layer is drawn on the first frame and kept while the layout is unchanged
+        assertTrue(level.isStaticLayerStale());
+        level.draw(app);
+        assertNotNull(level.staticLayer);
+        assertFalse(level.isStaticLayerStale());
+
+        Object layer = level.staticLayer;
+        level.draw(app);
+        assertSame(layer, level.staticLayer);
+        assertFalse(level.isStaticLayerStale());
+    }
+
+    @Test
+    public void testDraw_StaticLayerInvalidatedByLayoutChanges() {
+        level.draw(app);
+
+        // Adding a wall, hole or acceleration tile makes the layer stale until the next frame
+        level.getWalls().add(new Wall(100, 100, 3, app));
+        assertTrue(level.isStaticLayerStale());
+        level.draw(app);
+        assertFalse(level.isStaticLayerStale());
+
+        level.getHoles().add(new Hole(200, 200, 1, app));
+        assertTrue(level.isStaticLayerStale());
+        level.draw(app);
+
+        level.accelerationTiles.add(new AccelerateTile(300, 300, "up", app));
+        assertTrue(level.isStaticLayerStale());
+        level.draw(app);
+
+        // Changing a wall tile's color also redraws the layer
+        level.tileMap.setColor(1, 1, 2);
+        assertTrue(level.isStaticLayerStale());
+        level.draw(app);
+        assertFalse(level.isStaticLayerStale());
+    }
+
+    @Test
+    public void testLoadLevel_InvalidatesStaticLayer() {
+        level.draw(app);
+        String layoutFile = "test_static_layer.txt";
+        app.saveStrings(layoutFile, new String[]{"X X X", "X S X", "X X X"});
+
+        level.loadLevel(layoutFile, app);
+        assertTrue(level.isStaticLayerStale());
+        level.draw(app);
+        assertFalse(level.isStaticLayerStale());
+    }
+
+    @Test
+    public void testGetWalls_LayoutWallsAreReadOnly() {
+        // Layout walls can only be changed through the tile map, while added walls stay editable
+        level.tileMap.setColor(1, 1, 2);
+        Wall added = new Wall(100, 100, 0, app);
+        level.getWalls().add(added);
+
+        assertThrows(UnsupportedOperationException.class, () -> level.getWalls().get(0).setX(0));
+        assertThrows(UnsupportedOperationException.class, () -> level.getWalls().remove(0));
+        level.getWalls().get(1).setX(132);
+        assertEquals(132, added.getX());
+        assertEquals(added, level.getWalls().remove(1));
+    }
+
+    @Test
+    public void testLoadLevel_HoleGridCoversWideLayout() {
+        // A hole past the default board width should still be indexed by the hole grid
+        String layoutFile = "test_wide_layout.txt";
+        app.saveStrings(layoutFile, new String[]{"X                 H0", "X                   "});
+
+        level.loadLevel(layoutFile, app);
+        assertEquals(level.wallGrid.getCols(), level.holeGrid.getCols());
+        assertEquals(level.wallGrid.getRows(), level.holeGrid.getRows());
+        Hole hole = level.getHoles().get(0);
+        assertTrue(level.holeGrid.getCellAt(hole.getCenterX(), hole.getCenterY()).contains(hole));
+    }
+
     @Test
     public void testYellowTileAnimation_LevelEnded() {
         // Simulate level ended, game not paused, and timer not finished
@@ -309,7 +772,7 @@ public class LevelTest {
         level.isLevelEnded = true;
         app.isPaused = false;
         app.timerFinished = false;
-        app.frameCount = 2;
+        app.tickCount = 2;
         level.yellowTileTopLeft = null;
         level.yellowTileBottomRight = new YellowTile(100, 100, 0, app);
         int initialXBottomRight = level.yellowTileBottomRight.getX();
@@ -331,7 +794,7 @@ public class LevelTest {
         level.isLevelEnded = true;
         app.isPaused = false;
         app.timerFinished = false;
-        app.frameCount = 2;
+        app.tickCount = 2;
         level.yellowTileTopLeft = new YellowTile(0, 0, 0, app);
         level.yellowTileBottomRight = new YellowTile(100, 100, 0, app);
 
@@ -351,7 +814,7 @@ public class LevelTest {
         app.isPaused = false;
         app.timerFinished = false;
         level.timeBonusRemaining = 10;
-        app.frameCount = 2;
+        app.tickCount = 2;
 
         YellowTile topLeftTile = new YellowTile(0, 0, 0, app);
         YellowTile bottomRightTile = new YellowTile(100, 100, 0, app);
@@ -363,7 +826,7 @@ public class LevelTest {
         int initialXBottomRight = level.yellowTileBottomRight.getX();
         int initialYBottomRight = level.yellowTileBottomRight.getY();
 
-        level.draw(app);
+        level.updateEndOfLevel(app);
 
         // Assert that timeBonusRemaining has been updated
         assertTrue(level.timeBonusRemaining < 10);
@@ -379,14 +842,14 @@ public class LevelTest {
         app.isPaused = false;
         app.timerFinished = false;
         level.timeBonusRemaining = -10;
-        app.frameCount = 2;
+        app.tickCount = 2;
 
         YellowTile topLeftTile = new YellowTile(0, 0, 0, app);
         YellowTile bottomRightTile = new YellowTile(100, 100, 0, app);
         level.yellowTileTopLeft = topLeftTile;
         level.yellowTileBottomRight = bottomRightTile;
 
-        level.draw(app);
+        level.updateEndOfLevel(app);
 
         // Assert that timeBonusRemaining has been updated
         assertFalse(level.isLevelEnded);
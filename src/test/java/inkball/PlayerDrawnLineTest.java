@@ -42,9 +42,9 @@ public class PlayerDrawnLineTest {
         line.addPoint(100, 100);
         line.addPoint(200, 200);
 
-        assertEquals(2, line.points.size());
-        assertEquals(new PVector(100, 100), line.points.get(0));
-        assertEquals(new PVector(200, 200), line.points.get(1));
+        assertEquals(2, line.getPointCount());
+        assertEquals(new PVector(100, 100), line.getPoints().get(0));
+        assertEquals(new PVector(200, 200), line.getPoints().get(1));
     }
 
     @Test
@@ -53,7 +53,7 @@ public class PlayerDrawnLineTest {
         line.addPoint(100, 100);
         line.addPoint(200, 200);
         line.clear();
-        assertTrue(line.points.isEmpty());
+        assertTrue(line.getPoints().isEmpty());
     }
 
     @Test
@@ -94,14 +94,11 @@ public class PlayerDrawnLineTest {
         ball.setXVelocity(5);
         ball.setYVelocity(0);
 
-        // Perform collision check multiple times to surpass the buffer
-        for (int i = 0; i < PlayerDrawnLine.BUFFER_THRESHOLD; i++) {
-            line.checkCollision(ball);
-        }
+        assertFalse(line.checkCollision(ball));
 
         assertEquals(5, ball.getXVelocity());
         assertEquals(0, ball.getYVelocity());
-        assertFalse(line.points.isEmpty());
+        assertFalse(line.getPoints().isEmpty());
     }
 
     @Test
@@ -116,16 +113,163 @@ public class PlayerDrawnLineTest {
         ball.setXVelocity(0);
         ball.setYVelocity(-5); // Moving upwards towards the line
 
-        for (int i = 0; i < PlayerDrawnLine.BUFFER_THRESHOLD; i++) {
-            line.checkCollision(ball);
-        }
+        assertTrue(line.checkCollision(ball));
 
         // Verify that the ball's velocity has been reflected
         assertEquals(0, ball.getXVelocity());
         assertEquals(5, ball.getYVelocity());
 
         // Verify that the line has been cleared
-        assertTrue(line.points.isEmpty());
+        assertTrue(line.getPoints().isEmpty());
+    }
+
+    @Test
+    public void testAddPoint_SimplifiesStraightRun() {
+        // Nearly collinear points should be merged into a single segment
+        PlayerDrawnLine simplified = new PlayerDrawnLine(1.5f);
+        for (int i = 0; i <= 50; i++) {
+            simplified.addPoint(100 + i, 200 + (i % 2) * 0.5f);
+        }
+        assertEquals(2, simplified.getPoints().size());
+        assertEquals(150, simplified.getPoints().get(1).x, 0.01);
+    }
+
+    @Test
+    public void testAddPoint_KeepsCorners() {
+        // A sharp turn should be kept as a point of the line
+        PlayerDrawnLine simplified = new PlayerDrawnLine(1.5f);
+        for (int i = 0; i <= 40; i++) {
+            simplified.addPoint(100 + i, 200);
+        }
+        for (int i = 1; i <= 40; i++) {
+            simplified.addPoint(140, 200 + i);
+        }
+        assertEquals(3, simplified.getPoints().size());
+        assertEquals(140, simplified.getPoints().get(1).x, 0.01);
+        assertEquals(200, simplified.getPoints().get(1).y, 0.01);
+        assertTrue(simplified.isNear(140, 240));
+    }
+
+    @Test
+    public void testAddPoint_StaysWithinTolerance() {
+        // A hand-drawn arc should lose most of its points without moving away from any of them
+        PlayerDrawnLine simplified = new PlayerDrawnLine(1.5f);
+        java.util.Random random = new java.util.Random(5);
+        float[] xs = new float[600];
+        float[] ys = new float[600];
+        for (int i = 0; i < xs.length; i++) {
+            double angle = i / 200.0;
+            xs[i] = (float) (300 + 150 * Math.cos(angle) + random.nextFloat() * 0.6 - 0.3);
+            ys[i] = (float) (350 + 150 * Math.sin(angle) + random.nextFloat() * 0.6 - 0.3);
+            simplified.addPoint(xs[i], ys[i]);
+        }
+
+        java.util.List<PVector> points = simplified.getPoints();
+        assertTrue(points.size() * 10 <= xs.length, "kept " + points.size() + " points");
+        for (int i = 0; i < xs.length; i++) {
+            float nearest = Float.MAX_VALUE;
+            for (int s = 0; s < points.size() - 1; s++) {
+                PVector v = points.get(s);
+                PVector w = points.get(s + 1);
+                nearest = Math.min(nearest, PlayerDrawnLine.distToSegment(xs[i], ys[i], v.x, v.y, w.x, w.y));
+            }
+            assertTrue(nearest <= 1.5f + 0.001f, "point " + i + " is " + nearest + " away");
+        }
+    }
+
+    @Test
+    public void testCheckCollision_SimplifiedLineEnd() {
+        // The moving end of a simplified line should be found by collision checks
+        PlayerDrawnLine simplified = new PlayerDrawnLine(1.5f);
+        for (int i = 0; i <= 200; i += 2) {
+            simplified.addPoint(100 + i, 300);
+        }
+        Ball mover = new Ball(290, 305, 1, 12, app);
+        mover.setXVelocity(0);
+        mover.setYVelocity(-5);
+        assertTrue(simplified.checkCollision(mover));
+        assertEquals(5, mover.getYVelocity(), 0.01);
+    }
+
+    @Test
+    public void testCheckCollision_DiagonalSegment() {
+        // The cached normal of a diagonal segment should reflect the ball from either side
+        PlayerDrawnLine diagonal = new PlayerDrawnLine();
+        diagonal.addPoint(100, 100);
+        diagonal.addPoint(200, 200);
+        Ball mover = new Ball(160, 145, 1, 12, app);
+        mover.setXVelocity(-2);
+        mover.setYVelocity(2);
+        assertTrue(diagonal.checkCollision(mover));
+        assertEquals(2, mover.getXVelocity(), 0.01);
+        assertEquals(-2, mover.getYVelocity(), 0.01);
+
+        diagonal.addPoint(100, 100);
+        diagonal.addPoint(200, 200);
+        mover.setX(145);
+        mover.setY(160);
+        mover.setXVelocity(2);
+        mover.setYVelocity(0);
+        assertTrue(diagonal.checkCollision(mover));
+        assertEquals(0, mover.getXVelocity(), 0.01);
+        assertEquals(2, mover.getYVelocity(), 0.01);
+    }
+
+    @Test
+    public void testAddPoint_GrowsStorage() {
+        // Lines longer than the initial capacity should keep every point and stay queryable
+        PlayerDrawnLine longLine = new PlayerDrawnLine();
+        int count = PlayerDrawnLine.INITIAL_CAPACITY * 3 + 1;
+        for (int i = 0; i < count; i++) {
+            longLine.addPoint(50 + i * 4, 300 + (i % 2) * 20);
+        }
+        assertEquals(count, longLine.getPointCount());
+        assertEquals(50 + (count - 1) * 4, longLine.getX(count - 1), 0.01);
+        assertEquals(300, longLine.getY(count - 1), 0.01);
+        assertTrue(longLine.isNear(50 + (count - 1) * 4, 302));
+    }
+
+    @Test
+    public void testSweep_FromSeveralThreads() throws InterruptedException {
+        // Threads sweeping the same line at once should each get the hits of a sweep on its own
+        PlayerDrawnLine zigzag = new PlayerDrawnLine();
+        for (int i = 0; i < 100; i++) {
+            zigzag.addPoint(20 + i * 5, 300 + (i % 2) * 30);
+        }
+        int sweeps = 2000;
+        float[] expected = new float[sweeps];
+        int hits = 0;
+        SweepHit hit = new SweepHit();
+        for (int s = 0; s < sweeps; s++) {
+            hit.reset();
+            zigzag.sweep(20 + s % 500, 280, 0, 2 + s % 4, 12, hit);
+            expected[s] = hit.time;
+            hits += hit.isHit() ? 1 : 0;
+        }
+        assertTrue(hits > 0 && hits < sweeps);
+
+        int threadCount = 4;
+        float[][] times = new float[threadCount][sweeps];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            float[] threadTimes = times[t];
+            threads[t] = new Thread(() -> {
+                SweepHit threadHit = new SweepHit();
+                for (int s = 0; s < sweeps; s++) {
+                    threadHit.reset();
+                    zigzag.sweep(20 + s % 500, 280, 0, 2 + s % 4, 12, threadHit);
+                    threadTimes[s] = threadHit.time;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int t = 0; t < threadCount; t++) {
+            assertArrayEquals(expected, times[t]);
+        }
     }
 
     /**
@@ -133,19 +277,11 @@ public class PlayerDrawnLineTest {
      */
     @Test
     public void testDistToSegment() {
-        // Access the private method distToSegment via reflection
-        try {
-            java.lang.reflect.Method method = PlayerDrawnLine.class.getDeclaredMethod("distToSegment", PVector.class, PVector.class, PVector.class);
-            method.setAccessible(true);
+        PVector point = new PVector(150, 150);
+        PVector v = new PVector(100, 100);
+        PVector w = new PVector(200, 100);
 
-            PVector point = new PVector(150, 150);
-            PVector v = new PVector(100, 100);
-            PVector w = new PVector(200, 100);
-
-            float distance = (float) method.invoke(line, point, v, w);
-            assertEquals(50, distance, 0.00);
-        } catch (Exception e) {
-            fail(e.getMessage());
-        }
+        float distance = PlayerDrawnLine.distToSegment(point.x, point.y, v.x, v.y, w.x, w.y);
+        assertEquals(50, distance, 0.00);
     }
 }
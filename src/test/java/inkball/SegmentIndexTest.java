@@ -0,0 +1,89 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentIndexTest {
+
+    SegmentIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new SegmentIndex();
+    }
+
+    @Test
+    public void testNewIndexIsEmpty() {
+        // A new index should not return any segments
+        assertTrue(index.isEmpty());
+        assertEquals(0, index.query(0, 0, App.WIDTH, App.HEIGHT));
+    }
+
+    @Test
+    public void testAdd_UpdatesBoundingBoxAndLength() {
+        // Adding segments should grow the bounding box and track the longest segment
+        index.add(0, 100, 100, 130, 140);
+        index.add(1, 130, 140, 90, 150);
+
+        assertFalse(index.isEmpty());
+        assertEquals(90, index.getMinX(), 0.001);
+        assertEquals(100, index.getMinY(), 0.001);
+        assertEquals(130, index.getMaxX(), 0.001);
+        assertEquals(150, index.getMaxY(), 0.001);
+        assertEquals(50, index.getMaxSegmentLength(), 0.001);
+    }
+
+    @Test
+    public void testQuery_ReturnsOnlyNearbySegments() {
+        // Segments in distant cells should not be returned
+        index.add(0, 100, 100, 110, 100);
+        index.add(1, 110, 100, 400, 500);
+        index.add(2, 400, 500, 410, 500);
+
+        int count = index.query(95, 95, 105, 105);
+
+        assertEquals(2, count);
+        assertEquals(0, index.getResults()[0]);
+        assertEquals(1, index.getResults()[1]);
+    }
+
+    @Test
+    public void testQuery_ResultsSortedWithoutDuplicates() {
+        // A long segment spanning many cells should be reported once, in id order
+        index.add(0, 300, 300, 310, 300);
+        index.add(1, 50, 100, 500, 100);
+
+        int count = index.query(0, 0, App.WIDTH, App.HEIGHT);
+
+        assertEquals(2, count);
+        assertEquals(0, index.getResults()[0]);
+        assertEquals(1, index.getResults()[1]);
+    }
+
+    @Test
+    public void testQuery_OutsideBoundingBox() {
+        // Queries that miss the bounding box of the line return nothing
+        index.add(0, 100, 100, 200, 100);
+        assertEquals(0, index.query(300, 300, 320, 320));
+    }
+
+    @Test
+    public void testClear() {
+        // Clearing the index should remove every segment
+        index.add(0, 100, 100, 200, 100);
+        index.clear();
+
+        assertTrue(index.isEmpty());
+        assertEquals(0, index.getMaxSegmentLength(), 0.001);
+        assertEquals(0, index.query(0, 0, App.WIDTH, App.HEIGHT));
+    }
+
+    @Test
+    public void testAdd_ManySegmentsInOneCell() {
+        // Buckets should grow to hold many segments in the same cell
+        for (int i = 0; i < 50; i++) {
+            index.add(i, 100, 100, 101, 101);
+        }
+        assertEquals(50, index.query(100, 100, 101, 101));
+    }
+}
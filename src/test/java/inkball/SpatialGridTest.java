@@ -0,0 +1,107 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SpatialGridTest {
+
+    SpatialGrid<String> grid;
+
+    @BeforeEach
+    public void beforeEach() {
+        // 4x4 grid of 32px cells starting below a 64px top bar
+        grid = new SpatialGrid<>(0, 64, 4, 4, 32);
+    }
+
+    @Test
+    public void testInsert_AlignedTileOccupiesOneCell() {
+        // A 32x32 tile aligned to the grid should only be stored in its own cell
+        grid.insert("wall", 32, 96, 32, 32);
+        assertEquals(1, grid.getCell(1, 1).size());
+        assertTrue(grid.getCell(2, 1).isEmpty());
+        assertTrue(grid.getCell(1, 2).isEmpty());
+    }
+
+    @Test
+    public void testInsert_UnalignedObjectSpansCells() {
+        // An object straddling a cell boundary should be stored in every cell it touches
+        grid.insert("wall", 40, 100, 32, 32);
+        assertTrue(grid.getCell(1, 1).contains("wall"));
+        assertTrue(grid.getCell(2, 1).contains("wall"));
+        assertTrue(grid.getCell(1, 2).contains("wall"));
+        assertTrue(grid.getCell(2, 2).contains("wall"));
+    }
+
+    @Test
+    public void testInsertCircle_SkipsCornerCells() {
+        // A circle centered on a cell corner should touch the cells around it but not the
+        // diagonal cells beyond its bounding box's corners
+        grid.insertCircle("hole", 64, 128, 32);
+        assertTrue(grid.getCell(1, 1).contains("hole"));
+        assertTrue(grid.getCell(2, 2).contains("hole"));
+        // Cells touched exactly at the edge of the radius are included
+        assertTrue(grid.getCell(3, 1).contains("hole"));
+        assertTrue(grid.getCell(2, 3).contains("hole"));
+        assertTrue(grid.getCell(3, 3).isEmpty());
+        assertTrue(grid.getCell(0, 3).isEmpty());
+    }
+
+    @Test
+    public void testGetCellAt() {
+        // Points should map to their cell, and points outside the grid to the border cells
+        grid.insert("wall", 32, 96, 32, 32);
+        assertTrue(grid.getCellAt(40, 100).contains("wall"));
+        assertTrue(grid.getCellAt(70, 100).isEmpty());
+        grid.insert("edge", 0, 64, 32, 32);
+        assertTrue(grid.getCellAt(-50, 0).contains("edge"));
+    }
+
+    @Test
+    public void testQuery_OnlyNearbyObjectsReturned() {
+        // Objects far from the query circle should not be returned
+        grid.insert("near", 32, 64, 32, 32);
+        grid.insert("far", 96, 160, 32, 32);
+
+        List<String> result = new ArrayList<>();
+        grid.query(40, 80, 12, result);
+
+        assertTrue(result.contains("near"));
+        assertFalse(result.contains("far"));
+    }
+
+    @Test
+    public void testQuery_NoDuplicates() {
+        // An object spanning several queried cells should only be reported once
+        grid.insert("wall", 16, 80, 64, 64);
+
+        List<String> result = new ArrayList<>();
+        grid.query(48, 112, 40, result);
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testQuery_OutOfBoundsClampedToBorder() {
+        // Objects and queries outside the grid are clamped to the border cells
+        grid.insert("outside", -100, 64, 32, 32);
+
+        List<String> result = new ArrayList<>();
+        grid.query(-50, 70, 12, result);
+
+        assertTrue(result.contains("outside"));
+    }
+
+    @Test
+    public void testClear() {
+        // Clearing the grid should remove every object
+        grid.insert("wall", 0, 64, 32, 32);
+        grid.clear();
+
+        List<String> result = new ArrayList<>();
+        grid.query(16, 80, 12, result);
+        assertTrue(result.isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+import processing.core.PImage;
+
+public class SpriteAtlasTest {
+
+    static App app;
+    static SpriteAtlas atlas;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+        atlas = new SpriteAtlas(app);
+    }
+
+    @Test
+    public void testEverySpriteIsPacked() {
+        // Each sprite should have a region the size of its image
+        assertNotNull(atlas.getImage());
+        for (int region = 0; region < SpriteAtlas.SPRITE_NAMES.length; region++) {
+            PImage sprite = SpriteCache.get(app, SpriteAtlas.SPRITE_NAMES[region]);
+            assertTrue(atlas.hasRegion(region));
+            assertEquals(sprite.width, atlas.getRegionWidth(region));
+            assertEquals(sprite.height, atlas.getRegionHeight(region));
+        }
+    }
+
+    @Test
+    public void testRegionsDoNotOverlap() {
+        // Regions must fit inside the atlas and leave the padding between each other
+        int count = SpriteAtlas.SPRITE_NAMES.length;
+        for (int a = 0; a < count; a++) {
+            assertTrue(atlas.getRegionX(a) >= SpriteAtlas.PADDING);
+            assertTrue(atlas.getRegionY(a) >= SpriteAtlas.PADDING);
+            assertTrue(atlas.getRegionX(a) + atlas.getRegionWidth(a) <= atlas.getImage().width);
+            assertTrue(atlas.getRegionY(a) + atlas.getRegionHeight(a) <= atlas.getImage().height);
+            for (int b = a + 1; b < count; b++) {
+                boolean apart = atlas.getRegionX(a) + atlas.getRegionWidth(a) + SpriteAtlas.PADDING <= atlas.getRegionX(b)
+                        || atlas.getRegionX(b) + atlas.getRegionWidth(b) + SpriteAtlas.PADDING <= atlas.getRegionX(a)
+                        || atlas.getRegionY(a) + atlas.getRegionHeight(a) + SpriteAtlas.PADDING <= atlas.getRegionY(b)
+                        || atlas.getRegionY(b) + atlas.getRegionHeight(b) + SpriteAtlas.PADDING <= atlas.getRegionY(a);
+                assertTrue(apart, SpriteAtlas.SPRITE_NAMES[a] + " overlaps " + SpriteAtlas.SPRITE_NAMES[b]);
+            }
+        }
+    }
+
+    @Test
+    public void testRegionOf() {
+        assertEquals("inkball/ball3.png", SpriteAtlas.SPRITE_NAMES[SpriteAtlas.regionOf(SpriteCache.ballName(3))]);
+        assertEquals("inkball/tile.png", SpriteAtlas.SPRITE_NAMES[SpriteAtlas.regionOf("inkball/tile.png")]);
+        assertEquals(-1, SpriteAtlas.regionOf("inkball/missing.png"));
+        assertFalse(atlas.hasRegion(-1));
+        assertFalse(atlas.hasRegion(SpriteAtlas.SPRITE_NAMES.length));
+    }
+}
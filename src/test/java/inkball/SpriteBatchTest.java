@@ -0,0 +1,87 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+import processing.core.PImage;
+
+public class SpriteBatchTest {
+
+    static App app;
+    static SpriteAtlas atlas;
+    SpriteBatch batch;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+        atlas = new SpriteAtlas(app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        batch = new SpriteBatch();
+        batch.setAtlas(atlas);
+        batch.begin();
+    }
+
+    @Test
+    public void testSpritesAreGroupedByRegion() {
+        // Sprites added in any order are drawn grouped by region, keeping their order within a region
+        int blue = SpriteAtlas.regionOf(SpriteCache.ballName(2));
+        int grey = SpriteAtlas.regionOf(SpriteCache.ballName(0));
+        int yellow = SpriteAtlas.regionOf(SpriteCache.wallName(4));
+        batch.add(blue, null, 0, 100, 24, 24);
+        batch.add(yellow, null, 0, 200, 32, 32);
+        batch.add(grey, null, 30, 100, 24, 24);
+        batch.add(blue, null, 60, 100, 24, 24);
+        assertEquals(4, batch.getCount());
+
+        int previous = -1;
+        for (int i = 0; i < batch.getCount(); i++) {
+            assertTrue(batch.getSortedRegion(i) >= previous);
+            previous = batch.getSortedRegion(i);
+        }
+        assertDoesNotThrow(() -> batch.flush(app));
+        assertEquals(0, batch.getCount());
+        assertFalse(batch.isDrawing());
+    }
+
+    @Test
+    public void testSpritesWithoutRegionGoLast() {
+        PImage image = app.createImage(8, 8, PApplet.ARGB);
+        batch.add(-1, image, 0, 100, 8, 8);
+        batch.add(SpriteAtlas.regionOf("inkball/tile.png"), null, 0, 100, 32, 32);
+        assertEquals(SpriteAtlas.regionOf("inkball/tile.png"), batch.getSortedRegion(0));
+        assertEquals(-1, batch.getSortedRegion(1));
+    }
+
+    @Test
+    public void testClipping() {
+        // Sprites entirely outside the clipping rectangle are dropped
+        batch.clip(0, 12, 160, 36);
+        int region = SpriteAtlas.regionOf(SpriteCache.ballName(1));
+        batch.add(region, null, 200, 20, 24, 24);
+        assertEquals(0, batch.getCount());
+
+        // Sprites partly inside are kept, and sprites added after noClip are not cut
+        batch.add(region, null, 150, 20, 24, 24);
+        assertEquals(1, batch.getCount());
+        batch.noClip();
+        batch.add(region, null, 200, 20, 24, 24);
+        assertEquals(2, batch.getCount());
+    }
+
+    @Test
+    public void testNoAtlas_FallsBackToImages() {
+        // Without an atlas, sprites are drawn from their own images and those without one are skipped
+        batch.setAtlas(null);
+        Ball ball = new Ball(100, 100, 3, 12, app);
+        ball.drawTo(batch);
+        batch.add(0, null, 0, 0, 32, 32);
+        assertEquals(1, batch.getCount());
+        assertEquals(-1, batch.getSortedRegion(0));
+        assertDoesNotThrow(() -> batch.flush(app));
+    }
+}
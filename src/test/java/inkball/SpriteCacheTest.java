@@ -0,0 +1,67 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+import processing.core.PImage;
+
+public class SpriteCacheTest {
+
+    static App app;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+    }
+
+    @Test
+    public void testGet_ReturnsSharedImage() {
+        // Asking for the same asset twice should return the same decoded image
+        PImage first = SpriteCache.get(app, SpriteCache.ballName(2));
+        assertNotNull(first);
+        assertSame(first, SpriteCache.get(app, "inkball/ball2.png"));
+    }
+
+    @Test
+    public void testEntitiesShareImages() {
+        // Walls and holes of the same color should point at one image
+        Wall wall1 = new Wall(0, 0, 3, app);
+        Wall wall2 = new Wall(32, 0, 3, app);
+        assertSame(wall1.wallImage, wall2.wallImage);
+
+        Hole hole1 = new Hole(0, 0, 1, app);
+        Hole hole2 = new Hole(64, 0, 1, app);
+        assertSame(hole1.getHoleImage(), hole2.getHoleImage());
+    }
+
+    @Test
+    public void testSetColor_DoesNotLoadAgain() {
+        // Changing a ball's color back and forth should only use cached images
+        Ball ball = new Ball(50, 50, 1, 12, app);
+        ball.setColor(4, app);
+        int cached = SpriteCache.size();
+        for (int i = 0; i < 10; i++) {
+            ball.setColor(i % 2 == 0 ? 1 : 4, app);
+        }
+        assertEquals(cached, SpriteCache.size());
+        assertEquals(4, ball.getColor());
+    }
+
+    @Test
+    public void testColorNames() {
+        // Names are the asset paths of each color, including colors outside the palette
+        assertEquals("inkball/ball0.png", SpriteCache.ballName(0));
+        assertEquals("inkball/wall4.png", SpriteCache.wallName(4));
+        assertEquals("inkball/hole3.png", SpriteCache.holeName(3));
+        assertEquals("inkball/ball7.png", SpriteCache.ballName(7));
+    }
+
+    @Test
+    public void testGet_NullApp() {
+        // An App is always needed, even when the image is already cached
+        SpriteCache.get(app, SpriteCache.ballName(0));
+        assertThrows(NullPointerException.class, () -> SpriteCache.get(null, SpriteCache.ballName(0)));
+    }
+}
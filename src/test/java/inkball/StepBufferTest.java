@@ -0,0 +1,93 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import processing.core.PApplet;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+public class StepBufferTest {
+
+    static App app;
+    static ConfigReader configReader;
+    Level level;
+    StepBuffer buffer;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+        configReader = new ConfigReader("config.json", app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        app.unspawnedBalls = new ArrayList<>();
+        level = new Level(0, configReader, app);
+        buffer = new StepBuffer();
+    }
+
+    @Test
+    public void testApply_AddsContactsAndRaisesBounces() {
+        // Recorded contacts should only take effect when applied, and bounces become events
+        Ball ball = new Ball(100, 100, 0, 12, app);
+        Object wall = new Object();
+        PlayerDrawnLine line = new PlayerDrawnLine();
+        line.addPoint(10, 10);
+        line.addPoint(50, 50);
+        buffer.addContact(ball, wall, 20);
+        buffer.addBouncedLine(ball, line);
+
+        assertFalse(level.contacts.isCoolingDown(ball, wall, 10));
+        assertFalse(line.getPoints().isEmpty());
+
+        buffer.apply(level, app);
+
+        assertTrue(level.contacts.isCoolingDown(ball, wall, 10));
+        assertEquals(1, level.events.size());
+        level.events.drain(level, app);
+        assertTrue(line.getPoints().isEmpty());
+    }
+
+    @Test
+    public void testApply_RaisesCaptures() {
+        // A ball captured by a hole should be deactivated, and leave the level once the
+        // capture event is applied
+        Hole hole = new Hole(100, 100, 0, app);
+        Ball ball = new Ball(132, 132, 0, 12, app);
+        ball.setIsActive(true);
+        level.addBall(ball);
+        int score = app.score;
+
+        buffer.addHoleEvent(ball, hole, hole.applyPull(ball, app));
+        assertTrue(level.getBalls().contains(ball));
+
+        buffer.apply(level, app);
+        assertFalse(ball.getIsActive());
+        assertEquals(1, level.events.size());
+
+        level.events.drain(level, app);
+        assertFalse(level.getBalls().contains(ball));
+        assertTrue(app.score > score);
+    }
+
+    @Test
+    public void testApply_EmptiesBuffer() {
+        // Applying a buffer twice should not repeat its events
+        Hole hole = new Hole(100, 100, 0, app);
+        Ball ball = new Ball(132, 132, 0, 12, app);
+        ball.setIsActive(true);
+        level.addBall(ball);
+        buffer.addHoleEvent(ball, hole, hole.applyPull(ball, app));
+        buffer.apply(level, app);
+        level.events.drain(level, app);
+        int score = app.score;
+
+        buffer.apply(level, app);
+
+        assertEquals(0, level.events.size());
+        assertEquals(score, app.score);
+        assertEquals(0, buffer.bouncedLineCount());
+    }
+}
@@ -0,0 +1,182 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import processing.core.PApplet;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class SweepAndPruneTest {
+
+    static App app;
+    SweepAndPrune sweep;
+    BallStore store;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        sweep = new SweepAndPrune();
+        store = new BallStore();
+    }
+
+    private Ball addBall(int x, int y, float vx, float vy) {
+        Ball ball = new Ball(x, y, 0, 12, app);
+        ball.setXVelocity(vx);
+        ball.setYVelocity(vy);
+        ball.setIsActive(true);
+        store.add(ball);
+        return ball;
+    }
+
+    @Test
+    public void testCollide_HeadOnBallsSwapVelocities() {
+        // Equal balls meeting head on should exchange their velocities
+        Ball left = addBall(100, 100, 2, 0);
+        Ball right = addBall(120, 100, -1, 0);
+
+        assertEquals(1, sweep.collide(store));
+        assertEquals(-1, left.getXVelocity(), 0.001);
+        assertEquals(2, right.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testCollide_GlancingBlowKeepsTangentialVelocity() {
+        // Only the velocity along the line between the centers should be exchanged
+        Ball moving = addBall(100, 100, 0, 2);
+        Ball resting = addBall(100, 120, 0, 0);
+        moving.setXVelocity(1);
+
+        sweep.collide(store);
+
+        assertEquals(1, moving.getXVelocity(), 0.001);
+        assertEquals(0, moving.getYVelocity(), 0.001);
+        assertEquals(2, resting.getYVelocity(), 0.001);
+    }
+
+    @Test
+    public void testCollide_SeparatingBallsAreLeftAlone() {
+        // Overlapping balls moving apart should not be bounced back together
+        Ball left = addBall(100, 100, -1, 0);
+        Ball right = addBall(110, 100, 1, 0);
+
+        assertEquals(0, sweep.collide(store));
+        assertEquals(-1, left.getXVelocity(), 0.001);
+        assertEquals(1, right.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testCollide_InactiveBallsAreIgnored() {
+        // Balls that are not active should not take part in collisions
+        Ball left = addBall(100, 100, 2, 0);
+        addBall(120, 100, -1, 0).setIsActive(false);
+
+        assertEquals(0, sweep.collide(store));
+        assertEquals(2, left.getXVelocity(), 0.001);
+    }
+
+    @Test
+    public void testCollide_OnlyOverlappingExtentsArePaired() {
+        // Balls far apart horizontally should never be tested against each other
+        addBall(100, 100, 0, 0);
+        addBall(300, 100, 0, 0);
+        addBall(500, 100, 0, 0);
+
+        sweep.collide(store);
+
+        assertEquals(0, sweep.candidatePairs);
+    }
+
+    @Test
+    public void testUpdate_KeepsOrderAfterMovesAndRemovals() {
+        // The sweep order should follow the balls as they move past each other
+        Ball first = addBall(100, 100, 0, 0);
+        Ball second = addBall(200, 100, 0, 0);
+        Ball third = addBall(300, 100, 0, 0);
+        sweep.update(store);
+
+        first.setX(400);
+        sweep.update(store);
+        assertEquals(second.slot, sweep.slotAt(0));
+        assertEquals(third.slot, sweep.slotAt(1));
+        assertEquals(first.slot, sweep.slotAt(2));
+
+        store.remove(second.slot);
+        sweep.update(store);
+        assertEquals(third.slot, sweep.slotAt(0));
+        assertEquals(first.slot, sweep.slotAt(1));
+    }
+
+    /**
+     * Moves balls spread at the same density as a busy level, in a strip that widens with their
+     * number, and collides them every tick.
+     *
+     * @param count  The number of balls.
+     * @param warmUp The number of ticks run before counting, to let the JIT compile the sweep.
+     * @param ticks  The number of ticks counted.
+     * @param nanos  Receives the time taken by the counted ticks, if not null.
+     * @return The average number of candidate pairs tested per ball per tick.
+     */
+    private float runStrip(int count, int warmUp, int ticks, long[] nanos) {
+        int width = count * 29;
+        Random random = new Random(42);
+        store = new BallStore(count);
+        for (int i = 0; i < count; i++) {
+            addBall(random.nextInt(width), random.nextInt(576), random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2);
+        }
+
+        long pairs = 0;
+        long start = 0;
+        for (int tick = 0; tick < warmUp + ticks; tick++) {
+            if (tick == warmUp) {
+                start = System.nanoTime();
+                pairs = 0;
+            }
+            for (int i = 0; i < count; i++) {
+                store.x[i] = Math.floorMod((int) (store.x[i] + store.vx[i]), width);
+                store.y[i] = Math.floorMod((int) (store.y[i] + store.vy[i]), 576);
+            }
+            sweep.collide(store);
+            pairs += sweep.candidatePairs;
+        }
+        if (nanos != null) {
+            nanos[0] = System.nanoTime() - start;
+        }
+        return pairs / ((float) ticks * count);
+    }
+
+    @Test
+    public void testCandidatePairs_ScaleNearLinearly() {
+        // The pairs tested per ball should stay the same as the number of balls grows
+        float small = runStrip(100, 0, 20, null);
+        float large = runStrip(2000, 0, 20, null);
+
+        // A quadratic broad phase would test 20 times more pairs per ball at 2000 balls
+        assertTrue(large < 2 * small + 1);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkCollide_ScalesNearLinearly() {
+        // Both the pairs tested and the time taken per ball should stay about the same from
+        // 1000 to 20000 balls, where a quadratic broad phase would do 20 times the work per ball
+        int[] counts = {1000, 10000, 20000};
+        float[] pairsPerBall = new float[counts.length];
+        float[] nanosPerBall = new float[counts.length];
+        long[] nanos = new long[1];
+        for (int c = 0; c < counts.length; c++) {
+            pairsPerBall[c] = runStrip(counts[c], 100, 200, nanos);
+            nanosPerBall[c] = nanos[0] / (200f * counts[c]);
+            System.out.printf("SweepAndPrune %d balls: %.0f ns and %.2f candidate pairs per ball per tick%n",
+                    counts[c], nanosPerBall[c], pairsPerBall[c]);
+        }
+
+        assertTrue(pairsPerBall[2] < 2 * pairsPerBall[0] + 1);
+        // Sorting adds a log factor, so the time per ball is allowed to grow a little
+        assertTrue(nanosPerBall[2] < 4 * nanosPerBall[0]);
+    }
+}
@@ -0,0 +1,102 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SweptCollisionTest {
+
+    float[] normal;
+
+    @BeforeEach
+    public void beforeEach() {
+        normal = new float[2];
+    }
+
+    @Test
+    public void testCircleAabb_HitLeftFace() {
+        // A ball moving right should hit the left face of the box
+        float t = SweptCollision.sweepCircleAabb(50, 116, 40, 0, 12, 100, 100, 132, 132, normal);
+        assertEquals(38f / 40f, t, 0.0001);
+        assertEquals(-1, normal[0], 0.0001);
+        assertEquals(0, normal[1], 0.0001);
+    }
+
+    @Test
+    public void testCircleAabb_HitTopFace() {
+        // A ball moving down should hit the top face of the box
+        float t = SweptCollision.sweepCircleAabb(116, 50, 0, 50, 12, 100, 100, 132, 132, normal);
+        assertEquals(38f / 50f, t, 0.0001);
+        assertEquals(0, normal[0], 0.0001);
+        assertEquals(-1, normal[1], 0.0001);
+    }
+
+    @Test
+    public void testCircleAabb_HitCorner() {
+        // A ball moving diagonally towards a corner should hit the rounded corner
+        float t = SweptCollision.sweepCircleAabb(80, 80, 20, 20, 12, 100, 100, 132, 132, normal);
+        assertTrue(t > 0 && t < 1);
+        assertEquals(-Math.sqrt(0.5), normal[0], 0.0001);
+        assertEquals(-Math.sqrt(0.5), normal[1], 0.0001);
+    }
+
+    @Test
+    public void testCircleAabb_Miss() {
+        // A ball passing beside the box should not hit it
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.sweepCircleAabb(50, 50, 200, 0, 12, 100, 100, 132, 132, normal));
+    }
+
+    @Test
+    public void testCircleAabb_TooShort() {
+        // A ball that stops before reaching the box should not hit it
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.sweepCircleAabb(50, 116, 10, 0, 12, 100, 100, 132, 132, normal));
+    }
+
+    @Test
+    public void testCircleAabb_MovingAway() {
+        // A ball moving away from the box should not hit it
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.sweepCircleAabb(80, 116, -10, 0, 12, 100, 100, 132, 132, normal));
+    }
+
+    @Test
+    public void testCircleAabb_StartingInside() {
+        // Overlaps at the start of the step are left to the regular collision checks
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.sweepCircleAabb(95, 116, 10, 0, 12, 100, 100, 132, 132, normal));
+    }
+
+    @Test
+    public void testCircleCapsule_HitSide() {
+        // A fast ball should hit a thin horizontal segment instead of passing through it
+        float t = SweptCollision.sweepCircleCapsule(150, 50, 0, 100, 12, 100, 100, 200, 100, 5, normal);
+        assertEquals(33f / 100f, t, 0.0001);
+        assertEquals(0, normal[0], 0.0001);
+        assertEquals(-1, normal[1], 0.0001);
+    }
+
+    @Test
+    public void testCircleCapsule_HitEnd() {
+        // A ball moving along the segment's axis should hit its rounded end
+        float t = SweptCollision.sweepCircleCapsule(50, 100, 40, 0, 12, 100, 100, 200, 100, 5, normal);
+        assertEquals(33f / 40f, t, 0.0001);
+        assertEquals(-1, normal[0], 0.0001);
+        assertEquals(0, normal[1], 0.0001);
+    }
+
+    @Test
+    public void testCircleCapsule_Miss() {
+        // A ball moving parallel to the segment should not hit it
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.sweepCircleCapsule(50, 50, 200, 0, 12, 100, 100, 200, 100, 5, normal));
+    }
+
+    @Test
+    public void testCircleCapsule_DegenerateSegment() {
+        // A segment with both endpoints equal behaves like a circle
+        float t = SweptCollision.sweepCircleCapsule(100, 50, 0, 100, 12, 100, 100, 100, 100, 5, normal);
+        assertEquals(33f / 100f, t, 0.0001);
+        assertEquals(-1, normal[1], 0.0001);
+    }
+}
@@ -0,0 +1,205 @@
+package inkball;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import processing.core.PApplet;
+
+public class TileMapTest {
+
+    static App app;
+    TileMap tileMap;
+
+    @BeforeAll
+    public static void setup() {
+        app = new App();
+        PApplet.runSketch(new String[]{"App"}, app);
+        app.setup();
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // 4x4 map of 32px tiles starting below the top bar
+        tileMap = new TileMap(0, App.TOPBAR, 4, 4, App.CELLSIZE);
+        tileMap.loadImages(app);
+    }
+
+    @Test
+    public void testNewMapIsEmpty() {
+        // A new tile map should not contain any walls
+        assertEquals(0, tileMap.getWallCount());
+        assertEquals(TileMap.EMPTY, tileMap.getColor(0, 0));
+        assertFalse(tileMap.isWall(0, 0));
+    }
+
+    @Test
+    public void testSetColor() {
+        // Setting a color should add a wall, and setting EMPTY should remove it
+        tileMap.setColor(1, 2, 3);
+        assertEquals(3, tileMap.getColor(1, 2));
+        assertEquals(1, tileMap.getWallCount());
+
+        tileMap.setColor(1, 2, 2);
+        assertEquals(2, tileMap.getColor(1, 2));
+        assertEquals(1, tileMap.getWallCount());
+
+        tileMap.setColor(1, 2, TileMap.EMPTY);
+        assertFalse(tileMap.isWall(1, 2));
+        assertEquals(0, tileMap.getWallCount());
+    }
+
+    @Test
+    public void testSetColor_Invalid() {
+        // Invalid colors and cells outside the map should be rejected
+        assertThrows(IllegalArgumentException.class, () -> tileMap.setColor(0, 0, 7));
+        assertThrows(IndexOutOfBoundsException.class, () -> tileMap.setColor(4, 0, 1));
+    }
+
+    @Test
+    public void testGetColor_OutsideMap() {
+        // Cells outside the map are treated as empty
+        assertEquals(TileMap.EMPTY, tileMap.getColor(-1, 0));
+        assertEquals(TileMap.EMPTY, tileMap.getColor(0, 10));
+    }
+
+    @Test
+    public void testGetWall() {
+        // Walls are returned as views in row order
+        tileMap.setColor(2, 1, 4);
+        tileMap.setColor(0, 0, 1);
+
+        Wall first = tileMap.getWall(0);
+        Wall second = tileMap.getWall(1);
+        assertEquals(0, first.getX());
+        assertEquals(App.TOPBAR, first.getY());
+        assertEquals(1, first.getColor());
+        assertEquals(2 * App.CELLSIZE, second.getX());
+        assertEquals(App.TOPBAR + App.CELLSIZE, second.getY());
+        assertEquals(4, second.getColor());
+        assertThrows(IndexOutOfBoundsException.class, () -> tileMap.getWall(2));
+    }
+
+    @Test
+    public void testGetWall_ViewIsReadOnly() {
+        // Moving a view would not move the tile, so it is rejected
+        tileMap.setColor(2, 1, 4);
+        Wall view = tileMap.getWall(0);
+
+        assertThrows(UnsupportedOperationException.class, () -> view.setX(0));
+        assertThrows(UnsupportedOperationException.class, () -> view.setY(0));
+        assertEquals(4, tileMap.getColor(2, 1));
+    }
+
+    @Test
+    public void testGetWallAt_Empty() {
+        // Empty cells have no wall view
+        assertNull(tileMap.getWallAt(3, 3));
+    }
+
+    @Test
+    public void testCheckCollision_FromLeft() {
+        // A ball moving into a colored tile should bounce and take the tile's color
+        tileMap.setColor(1, 0, 2);
+        Ball ball = new Ball(App.CELLSIZE - 10, App.TOPBAR + 16, 1, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(0);
+
+        tileMap.checkCollision(ball, app);
+
+        assertEquals(-2, ball.getXVelocity(), 0.01);
+        assertEquals(2, ball.getColor());
+        assertTrue(ball.getX() + ball.getRadius() <= App.CELLSIZE);
+    }
+
+    @Test
+    public void testCheckCollision_NoWall() {
+        // A ball away from any tile should not be affected
+        tileMap.setColor(3, 3, 1);
+        Ball ball = new Ball(20, App.TOPBAR + 20, 0, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(2);
+
+        tileMap.checkCollision(ball, app);
+
+        assertEquals(2, ball.getXVelocity(), 0.01);
+        assertEquals(2, ball.getYVelocity(), 0.01);
+        assertEquals(0, ball.getColor());
+    }
+
+    @Test
+    public void testMerge_BorderIntoFourRects() {
+        // A closed border of one color should merge into two full rows and two side columns
+        TileMap border = new TileMap(0, App.TOPBAR, App.BOARD_WIDTH, 6, App.CELLSIZE);
+        for (int col = 0; col < App.BOARD_WIDTH; col++) {
+            border.setColor(col, 0, 0);
+            border.setColor(col, 5, 0);
+        }
+        for (int row = 1; row < 5; row++) {
+            border.setColor(0, row, 0);
+            border.setColor(App.BOARD_WIDTH - 1, row, 0);
+        }
+        assertEquals(2 * App.BOARD_WIDTH + 8, border.getWallCount());
+        assertEquals(4, border.getRectCount());
+
+        // Changing a tile's color splits its rectangle
+        border.setColor(5, 0, 2);
+        assertEquals(6, border.getRectCount());
+    }
+
+    @Test
+    public void testCheckCollision_NoSnagOnSeam() {
+        // A ball rolling along a row of tiles across the seam between two of them should only
+        // bounce off the top surface
+        tileMap.setColor(0, 2, 1);
+        tileMap.setColor(1, 2, 1);
+        tileMap.setColor(2, 2, 1);
+        Ball ball = new Ball(2 * App.CELLSIZE - 4, App.TOPBAR + 2 * App.CELLSIZE - 10, 1, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(2);
+
+        assertTrue(tileMap.checkCollision(ball, app));
+
+        assertEquals(2, ball.getXVelocity(), 0.01);
+        assertEquals(-2, ball.getYVelocity(), 0.01);
+        assertTrue(ball.getY() + ball.getRadius() <= App.TOPBAR + 2 * App.CELLSIZE);
+    }
+
+    @Test
+    public void testCheckCollision_BlockedSide() {
+        // A ball hitting the side of a column of walls just below the seam between two of them
+        // should bounce off the side, not off the bottom of the upper wall
+        tileMap.setColor(1, 1, 2);
+        tileMap.setColor(1, 2, 3);
+        Ball ball = new Ball(App.CELLSIZE - 2, App.TOPBAR + 2 * App.CELLSIZE + 6, 1, 12, app);
+        ball.setXVelocity(2);
+        ball.setYVelocity(-2);
+
+        tileMap.checkCollision(ball, app);
+
+        assertEquals(-2, ball.getXVelocity(), 0.01);
+        assertEquals(-2, ball.getYVelocity(), 0.01);
+        assertTrue(ball.getX() + ball.getRadius() <= App.CELLSIZE);
+    }
+
+    @Test
+    public void testSweep_MergedRow() {
+        // A ball moving down onto the seam between two tiles should hit one flat surface
+        tileMap.setColor(0, 2, 1);
+        tileMap.setColor(1, 2, 1);
+        SweepHit hit = new SweepHit();
+
+        tileMap.sweep(App.CELLSIZE, App.TOPBAR + App.CELLSIZE, 0, 20, 12, hit);
+
+        assertTrue(hit.isHit());
+        assertEquals(0, hit.getNormalX(), 0.001);
+        assertEquals(-1, hit.getNormalY(), 0.001);
+        assertEquals(1, hit.getColor());
+    }
+
+    @Test
+    public void testDraw_NoExceptions() {
+        // Drawing a map with walls should not throw
+        tileMap.setColor(0, 0, 0);
+        tileMap.setColor(1, 1, 4);
+        assertDoesNotThrow(() -> tileMap.draw(app));
+    }
+}
@@ -31,8 +31,6 @@ public class WallTest {
         ball.setXVelocity(5);
         ball.setYVelocity(0);
 
-        // Move collisionBuffer to exceed BUFFER_THRESHOLD
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
         wall.checkCollision(ball, app);
 
         // Ball's X velocity should be reflected
@@ -52,7 +50,6 @@ public class WallTest {
         ball.setXVelocity(-5);
         ball.setYVelocity(0);
 
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
         wall.checkCollision(ball, app);
 
         // Ball's X velocity should be reflected
@@ -72,7 +69,6 @@ public class WallTest {
         ball.setXVelocity(0);
         ball.setYVelocity(5);
 
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
         wall.checkCollision(ball, app);
 
         // Ball's Y velocity should be reflected
@@ -91,7 +87,6 @@ public class WallTest {
         Ball ball = new Ball(110, 110 + wall.height + 10, 1, 12, app);
         ball.setXVelocity(0);
         ball.setYVelocity(-5);
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
         wall.checkCollision(ball, app);
 
         // Ball's Y velocity should be reflected
@@ -112,7 +107,6 @@ public class WallTest {
         ball.setXVelocity(-5);
         ball.setYVelocity(0);
 
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
         wall.checkCollision(ball, app);
 
         if (ball.getXVelocity() == -5) {
@@ -131,7 +125,6 @@ public class WallTest {
         ball.setXVelocity(0);
         ball.setYVelocity(0);
 
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
         wall.checkCollision(ball, app);
 
         // Ball's position should be adjusted so it's no longer inside the wall
@@ -178,35 +171,21 @@ public class WallTest {
     }
 
     @Test
-    public void testCollisionBufferIncrement() {
-        // Test that collisionBuffer increments correctly
-        Ball ball = new Ball(0, 0, 1, 12, app);
-        int initialBuffer = wall.collisionBuffer;
-        wall.checkCollision(ball, app);
-
-        assertEquals(initialBuffer + 1, wall.collisionBuffer);
-    }
-
-    @Test
-    public void testCollisionBufferResetsAfterCollision() {
-        // Test that collisionBuffer resets after collision
+    public void testCheckCollision_ReportsCollision() {
+        // Test that checkCollision reports a detected collision
         Ball ball = new Ball(90, 110, 1, 12, app);
         ball.setXVelocity(5);
         ball.setYVelocity(0);
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
-        wall.checkCollision(ball, app);
 
-        assertEquals(0, wall.collisionBuffer);
+        assertTrue(wall.checkCollision(ball, app));
     }
 
     @Test
-    public void testCollisionBufferDoesNotResetWithoutCollision() {
-        // Test that collisionBuffer does not reset if no collision occurs
+    public void testCheckCollision_ReportsNoCollision() {
+        // Test that checkCollision reports when no collision occurs
         Ball ball = new Ball(0, 0, 1, 12, app);
-        wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
-        wall.checkCollision(ball, app);
 
-        assertEquals(Wall.BUFFER_THRESHOLD + 1, wall.collisionBuffer);
+        assertFalse(wall.checkCollision(ball, app));
     }
 
     @Test
@@ -217,7 +196,6 @@ public class WallTest {
         ball.setYVelocity(0);
 
         for (int i = 0; i < 10; i++) {
-            wall.collisionBuffer = Wall.BUFFER_THRESHOLD;
             wall.checkCollision(ball, app);
         }
 